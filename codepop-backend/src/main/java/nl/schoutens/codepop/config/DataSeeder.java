@@ -7,6 +7,7 @@ import nl.schoutens.codepop.entity.Topic;
 import nl.schoutens.codepop.repository.QuestionOptionRepository;
 import nl.schoutens.codepop.repository.QuestionRepository;
 import nl.schoutens.codepop.repository.TopicRepository;
+import nl.schoutens.codepop.service.SqliteWriter;
 import org.springframework.stereotype.Component;
 
 @Component
@@ -15,14 +16,17 @@ public class DataSeeder {
   private final TopicRepository topicRepository;
   private final QuestionRepository questionRepository;
   private final QuestionOptionRepository questionOptionRepository;
+  private final SqliteWriter sqliteWriter;
 
   public DataSeeder(
       TopicRepository topicRepository,
       QuestionRepository questionRepository,
-      QuestionOptionRepository questionOptionRepository) {
+      QuestionOptionRepository questionOptionRepository,
+      SqliteWriter sqliteWriter) {
     this.topicRepository = topicRepository;
     this.questionRepository = questionRepository;
     this.questionOptionRepository = questionOptionRepository;
+    this.sqliteWriter = sqliteWriter;
   }
 
   @PostConstruct
@@ -32,9 +36,14 @@ public class DataSeeder {
       return;
     }
 
-    seedTopics();
-    seedJavaRecordsQuestions();
-    seedJavascriptReactQuestions();
+    // One transaction on the SQLite writer thread
+    sqliteWriter.write(
+        status -> {
+          seedTopics();
+          seedJavaRecordsQuestions();
+          seedJavascriptReactQuestions();
+          return null;
+        });
   }
 
   private void seedTopics() {
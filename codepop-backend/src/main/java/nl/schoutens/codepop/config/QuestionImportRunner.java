@@ -0,0 +1,66 @@
+package nl.schoutens.codepop.config;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import lombok.extern.slf4j.Slf4j;
+import nl.schoutens.codepop.dto.ImportReportDTO;
+import nl.schoutens.codepop.service.QuestionImporter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.stereotype.Component;
+
+/**
+ * Command-line bulk import: started with {@code --codepop.import.file=bank.ndjson} ({@code -} reads
+ * standard input), the application imports the file with {@link QuestionImporter} and exits
+ * instead of serving requests. Exits with status 1 when the import fails; skipped invalid or
+ * duplicate lines do not count as failure.
+ */
+@Component
+@ConditionalOnProperty(name = "codepop.import.file")
+@Slf4j
+public class QuestionImportRunner implements ApplicationRunner {
+
+  private final QuestionImporter questionImporter;
+  private final ConfigurableApplicationContext context;
+  private final String file;
+
+  public QuestionImportRunner(
+      QuestionImporter questionImporter,
+      ConfigurableApplicationContext context,
+      @Value("${codepop.import.file}") String file) {
+    this.questionImporter = questionImporter;
+    this.context = context;
+    this.file = file;
+  }
+
+  @Override
+  public void run(ApplicationArguments args) {
+    int exitCode;
+    try (InputStream in = file.equals("-") ? System.in : Files.newInputStream(Path.of(file))) {
+      ImportReportDTO report = questionImporter.importQuestions(in);
+      report.errors().forEach(error -> log.warn("[QuestionImportRunner] Skipped " + error));
+      log.info(
+          "[QuestionImportRunner] Imported "
+              + report.imported()
+              + " questions from "
+              + file
+              + ", "
+              + report.duplicates()
+              + " duplicates and "
+              + report.invalid()
+              + " invalid lines skipped");
+      exitCode = 0;
+    } catch (IOException | RuntimeException e) {
+      log.error("[QuestionImportRunner] Import of " + file + " failed", e);
+      exitCode = 1;
+    }
+    int status = exitCode;
+    System.exit(SpringApplication.exit(context, () -> status));
+  }
+}
@@ -0,0 +1,56 @@
+package nl.schoutens.codepop.config;
+
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import java.io.IOException;
+import nl.schoutens.codepop.dto.QuestionDTO;
+import nl.schoutens.codepop.dto.QuizBatchDTO;
+import nl.schoutens.codepop.dto.QuizDTO;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.stereotype.Component;
+
+/**
+ * Writes responses as CBOR (RFC 8949) for clients that send {@code Accept: application/cbor}. The
+ * document has the same fields as the JSON responses, but numbers, booleans and string lengths are
+ * binary, which makes quiz responses noticeably smaller and cheaper to parse on mobile clients.
+ *
+ * <p>Write-only, and only for quiz responses ({@link QuizDTO}, {@link QuizBatchDTO} and {@link
+ * QuestionDTO}); ordered after {@link QuizJsonMessageConverter} so clients that accept anything
+ * keep getting JSON.
+ */
+@Component
+@Order(2)
+public class QuizCborMessageConverter extends AbstractHttpMessageConverter<Object> {
+
+  private final CBORMapper mapper = new CBORMapper();
+
+  public QuizCborMessageConverter() {
+    super(MediaType.APPLICATION_CBOR);
+  }
+
+  @Override
+  protected boolean supports(Class<?> clazz) {
+    return QuizDTO.class == clazz || QuestionDTO.class == clazz || QuizBatchDTO.class == clazz;
+  }
+
+  @Override
+  protected boolean canRead(MediaType mediaType) {
+    return false;
+  }
+
+  @Override
+  protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage) {
+    throw new HttpMessageNotReadableException("Not readable: " + clazz.getName(), inputMessage);
+  }
+
+  @Override
+  protected void writeInternal(Object body, HttpOutputMessage outputMessage) throws IOException {
+    byte[] cbor = mapper.writeValueAsBytes(body);
+    outputMessage.getHeaders().setContentLength(cbor.length);
+    outputMessage.getBody().write(cbor);
+  }
+}
@@ -0,0 +1,131 @@
+package nl.schoutens.codepop.config;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import nl.schoutens.codepop.dto.QuestionDTO;
+import nl.schoutens.codepop.dto.QuizBatchDTO;
+import nl.schoutens.codepop.dto.QuizDTO;
+import nl.schoutens.codepop.service.QuestionJsonCache;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.stereotype.Component;
+
+/**
+ * Writes {@link QuizDTO}, {@link QuizBatchDTO} and {@link QuestionDTO} responses as JSON by
+ * concatenating the cached per-question fragments of {@link QuestionJsonCache}; only the small quiz
+ * envelope is encoded per request. Picked up ahead of the Jackson converter as an {@code
+ * HttpMessageConverter} bean, so it serves {@code GET /api/quiz/{topic}}, {@code POST
+ * /api/quiz/batch} and the {@code question} events of the SSE stream. The output is identical to
+ * what Jackson produces for the records.
+ *
+ * <p>Write-only: request bodies still go through Jackson. Without a {@link QuestionJsonCache} bean
+ * (web slice tests) fragments are encoded on every call.
+ */
+@Component
+@Order(1)
+public class QuizJsonMessageConverter extends AbstractHttpMessageConverter<Object> {
+
+  private static final byte[] COMMA = {','};
+
+  private final ObjectProvider<QuestionJsonCache> jsonCache;
+
+  public QuizJsonMessageConverter(ObjectProvider<QuestionJsonCache> jsonCache) {
+    super(MediaType.APPLICATION_JSON);
+    this.jsonCache = jsonCache;
+  }
+
+  @Override
+  protected boolean supports(Class<?> clazz) {
+    return QuizDTO.class == clazz || QuestionDTO.class == clazz || QuizBatchDTO.class == clazz;
+  }
+
+  @Override
+  protected boolean canRead(MediaType mediaType) {
+    return false;
+  }
+
+  @Override
+  protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage) {
+    throw new HttpMessageNotReadableException("Not readable: " + clazz.getName(), inputMessage);
+  }
+
+  @Override
+  protected void writeInternal(Object body, HttpOutputMessage outputMessage) throws IOException {
+    QuestionJsonCache cache = jsonCache.getIfAvailable();
+    List<byte[]> parts = new ArrayList<>();
+    if (body instanceof QuestionDTO question) {
+      parts.add(fragment(cache, question));
+    } else if (body instanceof QuizBatchDTO batch) {
+      parts.add(ascii("{\"quizzes\":["));
+      for (int i = 0; i < batch.quizzes().size(); i++) {
+        if (i > 0) {
+          parts.add(COMMA);
+        }
+        addQuizParts(parts, batch.quizzes().get(i), cache);
+      }
+      parts.add(ascii("]}"));
+    } else {
+      addQuizParts(parts, (QuizDTO) body, cache);
+    }
+
+    // A known length lets the server skip compression below server.compression.min-response-size
+    long length = 0;
+    for (byte[] part : parts) {
+      length += part.length;
+    }
+    outputMessage.getHeaders().setContentLength(length);
+
+    OutputStream out = outputMessage.getBody();
+    for (byte[] part : parts) {
+      out.write(part);
+    }
+    out.flush();
+  }
+
+  private static void addQuizParts(List<byte[]> parts, QuizDTO quiz, QuestionJsonCache cache)
+      throws IOException {
+    List<QuestionDTO> questions = quiz.questions() != null ? quiz.questions() : List.of();
+
+    ByteArrayOutputStream head = new ByteArrayOutputStream(64);
+    head.write(ascii("{\"topic\":"));
+    QuestionJsonCache.writeString(head, quiz.topic());
+    head.write(ascii(",\"totalQuestions\":" + quiz.totalQuestions() + ",\"questions\":"));
+    head.write(quiz.questions() != null ? ascii("[") : ascii("null"));
+    parts.add(head.toByteArray());
+
+    for (int i = 0; i < questions.size(); i++) {
+      if (i > 0) {
+        parts.add(COMMA);
+      }
+      parts.add(fragment(cache, questions.get(i)));
+    }
+
+    ByteArrayOutputStream tail = new ByteArrayOutputStream(64);
+    if (quiz.questions() != null) {
+      tail.write(']');
+    }
+    if (quiz.excludeToken() != null) {
+      tail.write(ascii(",\"excludeToken\":"));
+      QuestionJsonCache.writeString(tail, quiz.excludeToken());
+    }
+    tail.write('}');
+    parts.add(tail.toByteArray());
+  }
+
+  private static byte[] fragment(QuestionJsonCache cache, QuestionDTO question) {
+    return cache != null ? cache.fragment(question) : QuestionJsonCache.encode(question);
+  }
+
+  private static byte[] ascii(String value) {
+    return value.getBytes(StandardCharsets.US_ASCII);
+  }
+}
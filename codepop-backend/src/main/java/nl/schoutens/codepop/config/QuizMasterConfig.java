@@ -0,0 +1,57 @@
+package nl.schoutens.codepop.config;
+
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.concurrent.ThreadPoolExecutor;
+import nl.schoutens.codepop.service.FanOutQuizMaster;
+import nl.schoutens.codepop.service.GenerationCoalescer;
+import nl.schoutens.codepop.service.OllamaQuizMaster;
+import nl.schoutens.codepop.service.QuizMaster;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+@Configuration
+@Profile("!test")
+public class QuizMasterConfig {
+
+  /**
+   * Runs the prompts of fan-outs. Kept apart from the shared application executor, whose tasks (a
+   * batch quiz, a quiz stream) may be the ones waiting for these prompts. Not a bean: any Executor
+   * bean would replace Spring Boot's application executor.
+   */
+  private final ThreadPoolTaskExecutor fanOutExecutor = new ThreadPoolTaskExecutor();
+
+  /**
+   * The QuizMaster used by the application: Ollama, split into concurrent prompts as far as the
+   * coalescer's LLM permits allow.
+   */
+  @Bean
+  @Primary
+  public QuizMaster fanOutQuizMaster(
+      OllamaQuizMaster ollamaQuizMaster,
+      GenerationCoalescer generationCoalescer,
+      @Value("${codepop.llm.fan-out.parallelism:3}") int parallelism,
+      @Value("${codepop.llm.fan-out.deadline:60s}") Duration deadline,
+      @Value("${codepop.llm.fan-out.threads:8}") int threads) {
+    int size = Math.max(1, threads);
+    fanOutExecutor.setThreadNamePrefix("llm-fan-out-");
+    fanOutExecutor.setDaemon(true);
+    fanOutExecutor.setCorePoolSize(size);
+    fanOutExecutor.setMaxPoolSize(size);
+    fanOutExecutor.setQueueCapacity(size);
+    // A full queue degrades to running the prompt on the requesting thread, one after another
+    fanOutExecutor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+    fanOutExecutor.initialize();
+    return new FanOutQuizMaster(
+        ollamaQuizMaster, fanOutExecutor, parallelism, deadline, generationCoalescer);
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    fanOutExecutor.shutdown();
+  }
+}
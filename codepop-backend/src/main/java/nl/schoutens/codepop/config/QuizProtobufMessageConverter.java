@@ -0,0 +1,147 @@
+package nl.schoutens.codepop.config;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import nl.schoutens.codepop.dto.OptionDTO;
+import nl.schoutens.codepop.dto.QuestionDTO;
+import nl.schoutens.codepop.dto.QuizBatchDTO;
+import nl.schoutens.codepop.dto.QuizDTO;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.stereotype.Component;
+
+/**
+ * Writes {@link QuizDTO}, {@link QuizBatchDTO} and {@link QuestionDTO} responses in the Protocol
+ * Buffers wire format for clients that send {@code Accept: application/x-protobuf}. The schema is
+ * {@code src/main/proto/quiz.proto}; the handful of messages it defines are encoded here directly,
+ * so the backend needs neither protoc nor the protobuf runtime. Null DTO fields are left out.
+ *
+ * <p>Write-only; ordered after the JSON and CBOR converters.
+ */
+@Component
+@Order(3)
+public class QuizProtobufMessageConverter extends AbstractHttpMessageConverter<Object> {
+
+  public static final MediaType APPLICATION_PROTOBUF = new MediaType("application", "x-protobuf");
+
+  private static final int VARINT = 0;
+  private static final int LENGTH_DELIMITED = 2;
+
+  public QuizProtobufMessageConverter() {
+    super(APPLICATION_PROTOBUF);
+  }
+
+  @Override
+  protected boolean supports(Class<?> clazz) {
+    return QuizDTO.class == clazz || QuestionDTO.class == clazz || QuizBatchDTO.class == clazz;
+  }
+
+  @Override
+  protected boolean canRead(MediaType mediaType) {
+    return false;
+  }
+
+  @Override
+  protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage) {
+    throw new HttpMessageNotReadableException("Not readable: " + clazz.getName(), inputMessage);
+  }
+
+  @Override
+  protected void writeInternal(Object body, HttpOutputMessage outputMessage) throws IOException {
+    byte[] message;
+    if (body instanceof QuestionDTO question) {
+      message = encode(question);
+    } else if (body instanceof QuizBatchDTO batch) {
+      message = encode(batch);
+    } else {
+      message = encode((QuizDTO) body);
+    }
+    outputMessage.getHeaders().setContentLength(message.length);
+    outputMessage.getBody().write(message);
+  }
+
+  /** {@code codepop.quiz.QuizBatch} */
+  public static byte[] encode(QuizBatchDTO batch) {
+    ByteArrayOutputStream out = new ByteArrayOutputStream(8192);
+    for (QuizDTO quiz : batch.quizzes()) {
+      writeBytes(out, 1, encode(quiz));
+    }
+    return out.toByteArray();
+  }
+
+  /** {@code codepop.quiz.Quiz} */
+  public static byte[] encode(QuizDTO quiz) {
+    ByteArrayOutputStream out = new ByteArrayOutputStream(1024);
+    writeString(out, 1, quiz.topic());
+    if (quiz.totalQuestions() != null) {
+      writeVarint(out, 2, quiz.totalQuestions());
+    }
+    if (quiz.questions() != null) {
+      for (QuestionDTO question : quiz.questions()) {
+        writeBytes(out, 3, encode(question));
+      }
+    }
+    writeString(out, 4, quiz.excludeToken());
+    return out.toByteArray();
+  }
+
+  /** {@code codepop.quiz.Question} */
+  public static byte[] encode(QuestionDTO question) {
+    ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+    if (question.id() != null) {
+      writeVarint(out, 1, question.id());
+    }
+    writeString(out, 2, question.text());
+    writeString(out, 3, question.difficulty());
+    writeString(out, 4, question.explanation());
+    if (question.options() != null) {
+      for (OptionDTO option : question.options()) {
+        writeBytes(out, 5, encode(option));
+      }
+    }
+    return out.toByteArray();
+  }
+
+  private static byte[] encode(OptionDTO option) {
+    ByteArrayOutputStream out = new ByteArrayOutputStream(64);
+    if (option.id() != null) {
+      writeVarint(out, 1, option.id());
+    }
+    writeString(out, 2, option.text());
+    if (option.isCorrect() != null) {
+      writeVarint(out, 3, option.isCorrect() ? 1 : 0);
+    }
+    return out.toByteArray();
+  }
+
+  private static void writeString(ByteArrayOutputStream out, int field, String value) {
+    if (value != null) {
+      writeBytes(out, field, value.getBytes(StandardCharsets.UTF_8));
+    }
+  }
+
+  private static void writeBytes(ByteArrayOutputStream out, int field, byte[] value) {
+    writeRawVarint(out, (field << 3) | LENGTH_DELIMITED);
+    writeRawVarint(out, value.length);
+    out.writeBytes(value);
+  }
+
+  private static void writeVarint(ByteArrayOutputStream out, int field, long value) {
+    writeRawVarint(out, (field << 3) | VARINT);
+    writeRawVarint(out, value);
+  }
+
+  /** Base-128 varint; negative values take ten bytes, as for protobuf int32/int64. */
+  private static void writeRawVarint(ByteArrayOutputStream out, long value) {
+    while ((value & ~0x7FL) != 0) {
+      out.write((int) ((value & 0x7F) | 0x80));
+      value >>>= 7;
+    }
+    out.write((int) value);
+  }
+}
@@ -0,0 +1,106 @@
+package nl.schoutens.codepop.config;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import java.time.Duration;
+import javax.sql.DataSource;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.sqlite.SQLiteConfig;
+import org.sqlite.SQLiteDataSource;
+
+/**
+ * SQLite in WAL mode with separate reader and writer pools ({@code codepop.sqlite.mode=wal}).
+ *
+ * <p>In the default rollback-journal mode readers and the writer lock each other out, and every
+ * connection of the single default pool competes for the write lock. In WAL mode readers see the
+ * last committed state while a write is in progress, so:
+ *
+ * <ul>
+ *   <li>the writer pool holds exactly one connection, used by non-read-only work (in practice the
+ *       {@code SqliteWriter} thread, Flyway and schema setup);
+ *   <li>the reader pool holds {@code codepop.sqlite.readers} connections opened read-only;
+ *   <li>the application's {@link DataSource} routes {@code @Transactional(readOnly = true)} work to
+ *       the readers and everything else to the writer.
+ * </ul>
+ *
+ * <p>Every connection gets {@code synchronous=NORMAL} (no fsync per commit, still durable against
+ * application crashes in WAL mode), a {@code busy_timeout}, a page cache of {@code
+ * codepop.sqlite.cache-size-kib} and memory-mapped reads up to {@code codepop.sqlite.mmap-size}.
+ */
+@Configuration
+@ConditionalOnProperty(name = "codepop.sqlite.mode", havingValue = "wal")
+public class SqliteDataSourceConfig {
+
+  @Value("${spring.datasource.url}")
+  private String url;
+
+  @Value("${codepop.sqlite.busy-timeout:5s}")
+  private Duration busyTimeout;
+
+  @Value("${codepop.sqlite.cache-size-kib:16384}")
+  private int cacheSizeKib;
+
+  @Value("${codepop.sqlite.mmap-size:268435456}")
+  private long mmapSize;
+
+  @Bean(defaultCandidate = false)
+  public HikariDataSource sqliteWriterDataSource() {
+    SQLiteConfig config = tunedConfig();
+    config.setJournalMode(SQLiteConfig.JournalMode.WAL);
+    // Take the write lock when the transaction starts instead of upgrading a read lock later
+    config.setTransactionMode(SQLiteConfig.TransactionMode.IMMEDIATE);
+    return pool("sqlite-writer", config, 1, false);
+  }
+
+  /** Opened after the writer, which creates the database file and switches it to WAL. */
+  @Bean(defaultCandidate = false)
+  @DependsOn("sqliteWriterDataSource")
+  public HikariDataSource sqliteReaderDataSource(
+      @Value("${codepop.sqlite.readers:4}") int readers) {
+    SQLiteConfig config = tunedConfig();
+    config.setReadOnly(true);
+    return pool("sqlite-reader", config, Math.max(1, readers), true);
+  }
+
+  @Bean
+  @Primary
+  public DataSource dataSource(
+      @Qualifier("sqliteWriterDataSource") DataSource writer,
+      @Qualifier("sqliteReaderDataSource") DataSource reader) {
+    LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(writer);
+    dataSource.setReadOnlyDataSource(reader);
+    return dataSource;
+  }
+
+  private SQLiteConfig tunedConfig() {
+    SQLiteConfig config = new SQLiteConfig();
+    config.setSynchronous(SQLiteConfig.SynchronousMode.NORMAL);
+    config.setBusyTimeout((int) busyTimeout.toMillis());
+    // Negative cache_size is in KiB rather than pages
+    config.setCacheSize(-cacheSizeKib);
+    return config;
+  }
+
+  private HikariDataSource pool(String name, SQLiteConfig config, int size, boolean readOnly) {
+    SQLiteDataSource sqlite = new SQLiteDataSource(config);
+    sqlite.setUrl(url);
+
+    HikariConfig hikari = new HikariConfig();
+    hikari.setPoolName(name);
+    hikari.setDataSource(sqlite);
+    hikari.setMaximumPoolSize(size);
+    hikari.setMinimumIdle(size);
+    // Must match the SQLite flag: the driver cannot switch a connection between read-only and
+    // read-write, and Hikari resets every pooled connection to this value
+    hikari.setReadOnly(readOnly);
+    hikari.setConnectionInitSql("PRAGMA mmap_size = " + mmapSize);
+    return new HikariDataSource(hikari);
+  }
+}
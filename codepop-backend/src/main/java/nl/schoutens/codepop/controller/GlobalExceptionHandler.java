@@ -2,8 +2,11 @@ package nl.schoutens.codepop.controller;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.stream.Collectors;
+import nl.schoutens.codepop.service.ExclusionTokenCodec.InvalidExclusionTokenException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 
@@ -18,6 +21,29 @@ public class GlobalExceptionHandler {
     return ResponseEntity.status(HttpStatus.NOT_FOUND).body(error);
   }
 
+  @ExceptionHandler(InvalidExclusionTokenException.class)
+  public ResponseEntity<Map<String, String>> handleInvalidExclusionToken(
+      InvalidExclusionTokenException ex) {
+    Map<String, String> error = new HashMap<>();
+    error.put("error", ex.getMessage());
+    error.put("status", "400");
+    return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
+  }
+
+  @ExceptionHandler(MethodArgumentNotValidException.class)
+  public ResponseEntity<Map<String, String>> handleInvalidRequestBody(
+      MethodArgumentNotValidException ex) {
+    Map<String, String> error = new HashMap<>();
+    error.put(
+        "error",
+        "Invalid request: "
+            + ex.getBindingResult().getFieldErrors().stream()
+                .map(fieldError -> fieldError.getField() + " " + fieldError.getDefaultMessage())
+                .collect(Collectors.joining(", ")));
+    error.put("status", "400");
+    return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
+  }
+
   @ExceptionHandler(Exception.class)
   public ResponseEntity<Map<String, String>> handleGenericException(Exception ex) {
     Map<String, String> error = new HashMap<>();
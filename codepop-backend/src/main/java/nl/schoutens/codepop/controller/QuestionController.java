@@ -0,0 +1,89 @@
+package nl.schoutens.codepop.controller;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import nl.schoutens.codepop.dto.ExplanationDTO;
+import nl.schoutens.codepop.dto.ImportReportDTO;
+import nl.schoutens.codepop.service.QuestionExporter;
+import nl.schoutens.codepop.service.QuestionImporter;
+import nl.schoutens.codepop.service.QuizService;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+@RestController
+@RequestMapping("/api/questions")
+@RequiredArgsConstructor
+@Slf4j
+public class QuestionController {
+
+  /** Upper bound for one explanations request; a quiz has 5 questions. */
+  static final int MAX_EXPLANATION_IDS = 100;
+
+  private final QuizService quizService;
+  private final QuestionExporter questionExporter;
+  private final QuestionImporter questionImporter;
+
+  /**
+   * Explanations of the given questions, for clients of slim quizzes ({@code GET
+   * /api/quiz/{topic}?slim=true}). Returned in the requested order; unknown ids are left out.
+   */
+  @GetMapping("/explanations")
+  public ResponseEntity<?> getExplanations(@RequestParam List<Long> ids) {
+    log.info("[QuestionController] GET /api/questions/explanations for " + ids.size() + " ids");
+
+    if (ids.size() > MAX_EXPLANATION_IDS) {
+      return ResponseEntity.badRequest()
+          .body(
+              Map.of(
+                  "error",
+                  "At most " + MAX_EXPLANATION_IDS + " ids per request",
+                  "status",
+                  "400"));
+    }
+    List<ExplanationDTO> explanations = quizService.getExplanations(ids);
+    return ResponseEntity.ok(explanations);
+  }
+
+  /**
+   * Stream the question bank as NDJSON (see {@link QuestionExporter} for the line format). {@code
+   * since} is a question id cursor: the {@code cursor} of the final line of an earlier export, or
+   * the last question id received by an export that was cut off. {@code createdAfter} limits the
+   * export to questions created after that time.
+   */
+  @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+  public ResponseEntity<StreamingResponseBody> export(
+      @RequestParam(defaultValue = "0") long since,
+      @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+          LocalDateTime createdAfter) {
+    log.info(
+        "[QuestionController] GET /api/questions/export since "
+            + since
+            + ", created after "
+            + createdAfter);
+
+    return ResponseEntity.ok()
+        .contentType(MediaType.APPLICATION_NDJSON)
+        .body(out -> questionExporter.export(out, since, createdAfter));
+  }
+
+  /**
+   * Bulk import of curated questions from an NDJSON body, one question per line (see {@link
+   * QuestionImporter} for the format; export output is accepted too). Invalid and duplicate lines
+   * are skipped and counted in the report. For very large files prefer the command-line import,
+   * which does not hold an HTTP request open.
+   */
+  @PostMapping(value = "/import", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+  public ResponseEntity<ImportReportDTO> importQuestions(InputStream body) throws IOException {
+    log.info("[QuestionController] POST /api/questions/import");
+
+    return ResponseEntity.ok(questionImporter.importQuestions(body));
+  }
+}
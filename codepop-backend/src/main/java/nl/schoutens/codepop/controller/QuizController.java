@@ -1,12 +1,27 @@
 package nl.schoutens.codepop.controller;
 
+import jakarta.validation.Valid;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import nl.schoutens.codepop.dto.QuizBatchDTO;
+import nl.schoutens.codepop.dto.QuizBatchRequestDTO;
 import nl.schoutens.codepop.dto.QuizDTO;
+import nl.schoutens.codepop.dto.SessionDTO;
+import nl.schoutens.codepop.service.ExclusionTokenCodec;
 import nl.schoutens.codepop.service.QuizService;
+import nl.schoutens.codepop.service.QuizSessionStore;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 @RestController
 @RequestMapping("/api/quiz")
@@ -15,18 +30,158 @@ import org.springframework.web.bind.annotation.*;
 public class QuizController {
 
   private final QuizService quizService;
+  private final QuizSessionStore sessionStore;
+  private final ExclusionTokenCodec tokenCodec;
+  private final TaskExecutor taskExecutor;
 
+  /** Upper bound for one streamed quiz, including a full LLM generation. */
+  private static final long STREAM_TIMEOUT_MILLIS = 180_000;
+
+  /**
+   * Get a quiz for the topic. Seen questions can be excluded in three ways: an explicit {@code
+   * excludeQuestionIds} list, a server-side {@code sessionId}, or a stateless {@code excludeToken}.
+   * When a token is sent (use an empty value to start), the response carries the updated token.
+   *
+   * <p>With {@code slim=true} the questions carry no explanation; clients fetch them for answered
+   * questions from {@code GET /api/questions/explanations}.
+   */
   @GetMapping("/{topic}")
   public ResponseEntity<QuizDTO> getQuiz(
-      @PathVariable String topic, @RequestParam(required = false) List<Long> excludeQuestionIds) {
+      @PathVariable String topic,
+      @RequestParam(required = false) List<Long> excludeQuestionIds,
+      @RequestParam(required = false) String sessionId,
+      @RequestParam(required = false) String excludeToken,
+      @RequestParam(defaultValue = "false") boolean slim) {
 
     log.info(
         "[QuizController] GET /api/quiz/"
             + topic
             + " with excludeQuestionIds: "
-            + excludeQuestionIds);
+            + excludeQuestionIds
+            + ", sessionId: "
+            + sessionId
+            + ", excludeToken: "
+            + (excludeToken == null ? null : excludeToken.length() + " chars")
+            + ", slim: "
+            + slim);
+
+    if (excludeToken == null) {
+      return ResponseEntity.ok(quizService.getQuiz(topic, excludeQuestionIds, sessionId, !slim));
+    }
+
+    Set<Long> seen = new HashSet<>();
+    if (!excludeToken.isEmpty()) {
+      for (long id : tokenCodec.decode(excludeToken)) {
+        seen.add(id);
+      }
+    }
+    if (excludeQuestionIds != null) {
+      // The token only holds question ids, which are never negative
+      for (Long id : excludeQuestionIds) {
+        if (id == null || id < 0) {
+          throw new ExclusionTokenCodec.InvalidExclusionTokenException(
+              "Excluded question ids must not be negative: " + id);
+        }
+      }
+      seen.addAll(excludeQuestionIds);
+    }
+
+    QuizDTO quiz = quizService.getQuiz(topic, new ArrayList<>(seen), sessionId, !slim);
+    quiz.questions().forEach(question -> seen.add(question.id()));
+    return ResponseEntity.ok(quiz.withExcludeToken(tokenCodec.encode(seen)));
+  }
+
+  /**
+   * Build many quizzes in one round-trip, e.g. one per student at the start of a lesson. Each
+   * topic is resolved once and each topic's pool is read, and if needed generated for, once (see
+   * {@link QuizService#getQuizzes}). Quizzes are returned in request order; {@code slim} works as
+   * for {@link #getQuiz}.
+   */
+  @PostMapping("/batch")
+  public ResponseEntity<QuizBatchDTO> getQuizzes(
+      @RequestBody @Valid QuizBatchRequestDTO request,
+      @RequestParam(defaultValue = "false") boolean slim) {
+    log.info(
+        "[QuizController] POST /api/quiz/batch with "
+            + request.quizzes().size()
+            + " quizzes, slim: "
+            + slim);
+    return ResponseEntity.ok(new QuizBatchDTO(quizService.getQuizzes(request.quizzes(), !slim)));
+  }
+
+  /**
+   * Stream a quiz as Server-Sent Events. Unseen questions already in the database are sent right
+   * away as {@code question} events; generated questions follow one by one as soon as they are
+   * saved. The stream ends with a {@code complete} event carrying the full {@link QuizDTO}, or an
+   * {@code error} event with the same body as the regular error responses.
+   */
+  @GetMapping(value = "/{topic}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+  public SseEmitter streamQuiz(
+      @PathVariable String topic,
+      @RequestParam(required = false) List<Long> excludeQuestionIds,
+      @RequestParam(required = false) String sessionId) {
+
+    log.info(
+        "[QuizController] GET /api/quiz/"
+            + topic
+            + "/stream with excludeQuestionIds: "
+            + excludeQuestionIds
+            + ", sessionId: "
+            + sessionId);
+
+    SseEmitter emitter = new SseEmitter(STREAM_TIMEOUT_MILLIS);
+    taskExecutor.execute(
+        () -> {
+          try {
+            QuizDTO quiz =
+                quizService.streamQuiz(
+                    topic,
+                    excludeQuestionIds,
+                    sessionId,
+                    question -> send(emitter, "question", question));
+            send(emitter, "complete", quiz);
+          } catch (IllegalArgumentException e) {
+            send(emitter, "error", Map.of("error", e.getMessage(), "status", "404"));
+          } catch (Exception e) {
+            log.error("[QuizController] Quiz stream for " + topic + " failed", e);
+            send(
+                emitter,
+                "error",
+                Map.of(
+                    "error", "An unexpected error occurred: " + e.getMessage(), "status", "500"));
+          }
+          emitter.complete();
+        });
+    return emitter;
+  }
+
+  /**
+   * Send one event. A client that went away is not an error for the quiz itself: generation keeps
+   * running so its questions still end up in the pool.
+   */
+  private static void send(SseEmitter emitter, String event, Object data) {
+    try {
+      emitter.send(SseEmitter.event().name(event).data(data, MediaType.APPLICATION_JSON));
+    } catch (IOException | IllegalStateException e) {
+      log.debug("[QuizController] Dropping " + event + " event, client is gone: " + e.getMessage());
+    }
+  }
+
+  /**
+   * Start a server-side session. Passing its id as {@code sessionId} makes the backend remember
+   * which questions were served, so the client no longer needs to send {@code excludeQuestionIds}.
+   */
+  @PostMapping("/sessions")
+  public ResponseEntity<SessionDTO> createSession() {
+    String sessionId = sessionStore.create();
+    log.info("[QuizController] POST /api/quiz/sessions created session " + sessionId);
+    return ResponseEntity.status(HttpStatus.CREATED)
+        .body(new SessionDTO(sessionId, sessionStore.ttl().toSeconds()));
+  }
 
-    QuizDTO quiz = quizService.getQuiz(topic, excludeQuestionIds);
-    return ResponseEntity.ok(quiz);
+  @DeleteMapping("/sessions/{sessionId}")
+  public ResponseEntity<Void> deleteSession(@PathVariable String sessionId) {
+    sessionStore.remove(sessionId);
+    return ResponseEntity.noContent().build();
   }
 }
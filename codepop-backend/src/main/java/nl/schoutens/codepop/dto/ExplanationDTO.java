@@ -0,0 +1,4 @@
+package nl.schoutens.codepop.dto;
+
+/** Explanation of one question, fetched separately by clients that request slim quizzes. */
+public record ExplanationDTO(Long id, String explanation) {}
@@ -0,0 +1,16 @@
+package nl.schoutens.codepop.dto;
+
+import java.util.List;
+
+/**
+ * Outcome of a bulk question import.
+ *
+ * @param lines Non-empty input lines read
+ * @param imported Questions saved
+ * @param duplicates Questions skipped because the topic already has the same text
+ * @param invalid Lines rejected by validation
+ * @param errors Reasons for the first rejected lines, e.g. {@code "line 12: expected 4 options,
+ *     got 5"}
+ */
+public record ImportReportDTO(
+    long lines, long imported, long duplicates, long invalid, List<String> errors) {}
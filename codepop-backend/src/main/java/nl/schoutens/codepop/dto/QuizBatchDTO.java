@@ -0,0 +1,6 @@
+package nl.schoutens.codepop.dto;
+
+import java.util.List;
+
+/** Response of {@code POST /api/quiz/batch}: one quiz per requested spec, in request order. */
+public record QuizBatchDTO(List<QuizDTO> quizzes) {}
@@ -0,0 +1,23 @@
+package nl.schoutens.codepop.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import java.util.List;
+
+/** Body of {@code POST /api/quiz/batch}: the quizzes to build, e.g. one per student. */
+public record QuizBatchRequestDTO(@NotEmpty @Size(max = 500) List<@Valid QuizSpec> quizzes) {
+
+  /**
+   * One quiz of the batch.
+   *
+   * @param topic Topic input, as for {@code GET /api/quiz/{topic}}
+   * @param count Number of questions (default 5)
+   * @param excludeQuestionIds Question ids this quiz must not contain (may be null)
+   */
+  public record QuizSpec(
+      @NotBlank String topic, @Min(1) @Max(20) Integer count, List<Long> excludeQuestionIds) {}
+}
@@ -1,5 +1,23 @@
 package nl.schoutens.codepop.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import java.util.List;
 
-public record QuizDTO(String topic, Integer totalQuestions, List<QuestionDTO> questions) {}
+/**
+ * Quiz response. {@code excludeToken} is only present when the client uses exclusion tokens; it
+ * carries every question id the client has seen so far, including this quiz's questions.
+ */
+public record QuizDTO(
+    String topic,
+    Integer totalQuestions,
+    List<QuestionDTO> questions,
+    @JsonInclude(JsonInclude.Include.NON_NULL) String excludeToken) {
+
+  public QuizDTO(String topic, Integer totalQuestions, List<QuestionDTO> questions) {
+    this(topic, totalQuestions, questions, null);
+  }
+
+  public QuizDTO withExcludeToken(String excludeToken) {
+    return new QuizDTO(topic, totalQuestions, questions, excludeToken);
+  }
+}
@@ -0,0 +1,3 @@
+package nl.schoutens.codepop.dto;
+
+public record SessionDTO(String sessionId, Long ttlSeconds) {}
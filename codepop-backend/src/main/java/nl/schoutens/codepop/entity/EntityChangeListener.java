@@ -0,0 +1,45 @@
+package nl.schoutens.codepop.entity;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import nl.schoutens.codepop.entity.QuestionChangedEvent.Change;
+import org.springframework.context.ApplicationEventPublisher;
+
+/**
+ * JPA entity listener that turns changes to questions and topics into application events. Caches
+ * subscribe with {@code @TransactionalEventListener}, so they react once the surrounding
+ * transaction commits and never observe uncommitted rows.
+ */
+public class EntityChangeListener {
+
+  private final ApplicationEventPublisher publisher;
+
+  public EntityChangeListener(ApplicationEventPublisher publisher) {
+    this.publisher = publisher;
+  }
+
+  @PostPersist
+  public void onPersist(Object entity) {
+    publish(entity, Change.PERSISTED);
+  }
+
+  @PostUpdate
+  public void onUpdate(Object entity) {
+    publish(entity, Change.UPDATED);
+  }
+
+  @PostRemove
+  public void onRemove(Object entity) {
+    publish(entity, Change.REMOVED);
+  }
+
+  private void publish(Object entity, Change change) {
+    if (entity instanceof Question question) {
+      Long topicId = question.getTopic() != null ? question.getTopic().getId() : null;
+      publisher.publishEvent(new QuestionChangedEvent(question.getId(), topicId, change));
+    } else if (entity instanceof Topic topic) {
+      publisher.publishEvent(new TopicChangedEvent(topic.getId()));
+    }
+  }
+}
@@ -10,6 +10,7 @@ import lombok.Setter;
 
 @Entity
 @Table(name = "questions")
+@EntityListeners(EntityChangeListener.class)
 @Getter
 @Setter
 @NoArgsConstructor
@@ -0,0 +1,14 @@
+package nl.schoutens.codepop.entity;
+
+/**
+ * Published by {@link EntityChangeListener} when a {@link Question} is persisted, updated or
+ * removed through JPA. Ids may be null for an entity that was never flushed.
+ */
+public record QuestionChangedEvent(Long questionId, Long topicId, Change change) {
+
+  public enum Change {
+    PERSISTED,
+    UPDATED,
+    REMOVED
+  }
+}
@@ -0,0 +1,14 @@
+package nl.schoutens.codepop.entity;
+
+import java.util.List;
+
+/**
+ * Published after questions were bulk-inserted outside the JPA entity lifecycle, so no {@link
+ * QuestionChangedEvent} is published for them. The questions have their ids assigned.
+ */
+public record QuestionsInsertedEvent(List<Question> questions) {
+
+  public QuestionsInsertedEvent {
+    questions = List.copyOf(questions);
+  }
+}
@@ -9,6 +9,7 @@ import lombok.Setter;
 
 @Entity
 @Table(name = "topics")
+@EntityListeners(EntityChangeListener.class)
 @Getter
 @Setter
 @NoArgsConstructor
@@ -0,0 +1,7 @@
+package nl.schoutens.codepop.entity;
+
+/**
+ * Published by {@link EntityChangeListener} when a {@link Topic} is persisted, updated or removed
+ * through JPA.
+ */
+public record TopicChangedEvent(Long topicId) {}
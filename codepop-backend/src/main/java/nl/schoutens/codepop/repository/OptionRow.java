@@ -0,0 +1,4 @@
+package nl.schoutens.codepop.repository;
+
+/** Flat, unmanaged projection of a question option. */
+public record OptionRow(Long questionId, Long id, String text, Boolean isCorrect) {}
@@ -1,6 +1,8 @@
 package nl.schoutens.codepop.repository;
 
+import java.util.Collection;
 import java.util.List;
+import nl.schoutens.codepop.dto.ExplanationDTO;
 import nl.schoutens.codepop.entity.Question;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
@@ -13,8 +15,112 @@ public interface QuestionRepository extends JpaRepository<Question, Long> {
   @Query("SELECT q FROM Question q LEFT JOIN FETCH q.options WHERE q.topic.id = :topicId")
   List<Question> findByTopicId(@Param("topicId") Long topicId);
 
+  // Subtopic matching goes through the questions_fts full-text index (see QuestionSearchIndex):
+  // the *Match queries take an FTS5 query, the default methods build it from the subtopic. JPQL
+  // queries use it through subtopic_match (see SubtopicMatchFunction).
+
+  /** Questions (with options) of the topic whose subtopic matches, see QuestionSearchIndex. */
+  default List<Question> findByTopicIdAndSubtopicMatching(Long topicId, String subtopic) {
+    String match = QuestionSearchIndex.subtopicQuery(subtopic);
+    return match == null ? List.of() : findByTopicIdAndSubtopicMatch(topicId, match);
+  }
+
+  @Query(
+      "SELECT DISTINCT q FROM Question q LEFT JOIN FETCH q.options WHERE q.topic.id = :topicId AND subtopic_match(q.id, :match)")
+  List<Question> findByTopicIdAndSubtopicMatch(
+      @Param("topicId") Long topicId, @Param("match") String match);
+
+  @Query(
+      value =
+          "SELECT q.id FROM questions q WHERE q.topic_id = :topicId AND q.id IN (SELECT rowid FROM questions_fts WHERE questions_fts MATCH :match)",
+      nativeQuery = true)
+  List<Number> findIdsByTopicIdAndSubtopicMatch(
+      @Param("topicId") Long topicId, @Param("match") String match);
+
+  // Random sampling: count and pick ids inside SQLite, then load only the chosen questions.
+  // excludedIds must not be empty (pass a non-existent id such as -1 instead).
+
+  @Query("SELECT COUNT(q) FROM Question q WHERE q.topic.id = :topicId AND q.id NOT IN :excludedIds")
+  long countAvailableByTopicId(
+      @Param("topicId") Long topicId, @Param("excludedIds") Collection<Long> excludedIds);
+
+  default long countAvailableByTopicIdAndSubtopic(
+      Long topicId, String subtopic, Collection<Long> excludedIds) {
+    String match = QuestionSearchIndex.subtopicQuery(subtopic);
+    return match == null ? 0 : countAvailableByTopicIdAndSubtopicMatch(topicId, match, excludedIds);
+  }
+
+  @Query(
+      value =
+          "SELECT COUNT(*) FROM questions q WHERE q.topic_id = :topicId AND q.id IN (SELECT rowid FROM questions_fts WHERE questions_fts MATCH :match) AND q.id NOT IN (:excludedIds)",
+      nativeQuery = true)
+  long countAvailableByTopicIdAndSubtopicMatch(
+      @Param("topicId") Long topicId,
+      @Param("match") String match,
+      @Param("excludedIds") Collection<Long> excludedIds);
+
+  @Query(
+      value =
+          "SELECT q.id FROM questions q WHERE q.topic_id = :topicId AND q.id NOT IN (:excludedIds) ORDER BY RANDOM() LIMIT :limit",
+      nativeQuery = true)
+  List<Number> sampleIdsByTopicId(
+      @Param("topicId") Long topicId,
+      @Param("excludedIds") Collection<Long> excludedIds,
+      @Param("limit") int limit);
+
+  default List<Number> sampleIdsByTopicIdAndSubtopic(
+      Long topicId, String subtopic, Collection<Long> excludedIds, int limit) {
+    String match = QuestionSearchIndex.subtopicQuery(subtopic);
+    return match == null
+        ? List.of()
+        : sampleIdsByTopicIdAndSubtopicMatch(topicId, match, excludedIds, limit);
+  }
+
   @Query(
-      "SELECT q FROM Question q LEFT JOIN FETCH q.options WHERE q.topic.id = :topicId AND LOWER(q.subtopic) LIKE LOWER(CONCAT('%', :subtopic, '%'))")
-  List<Question> findByTopicIdAndSubtopicContainingIgnoreCase(
-      @Param("topicId") Long topicId, @Param("subtopic") String subtopic);
+      value =
+          "SELECT q.id FROM questions q WHERE q.topic_id = :topicId AND q.id IN (SELECT rowid FROM questions_fts WHERE questions_fts MATCH :match) AND q.id NOT IN (:excludedIds) ORDER BY RANDOM() LIMIT :limit",
+      nativeQuery = true)
+  List<Number> sampleIdsByTopicIdAndSubtopicMatch(
+      @Param("topicId") Long topicId,
+      @Param("match") String match,
+      @Param("excludedIds") Collection<Long> excludedIds,
+      @Param("limit") int limit);
+
+  @Query("SELECT DISTINCT q FROM Question q LEFT JOIN FETCH q.options WHERE q.id IN :ids")
+  List<Question> findWithOptionsByIdIn(@Param("ids") Collection<Long> ids);
+
+  // DTO projections for the read-only quiz path: no managed entities, no JOIN FETCH duplication.
+
+  @Query(
+      "SELECT new nl.schoutens.codepop.repository.QuestionRow(q.id, q.questionText, q.difficulty) FROM Question q WHERE q.topic.id = :topicId")
+  List<QuestionRow> findRowsByTopicId(@Param("topicId") Long topicId);
+
+  default List<QuestionRow> findRowsByTopicIdAndSubtopicMatching(Long topicId, String subtopic) {
+    String match = QuestionSearchIndex.subtopicQuery(subtopic);
+    return match == null ? List.of() : findRowsByTopicIdAndSubtopicMatch(topicId, match);
+  }
+
+  @Query(
+      "SELECT new nl.schoutens.codepop.repository.QuestionRow(q.id, q.questionText, q.difficulty) FROM Question q WHERE q.topic.id = :topicId AND subtopic_match(q.id, :match)")
+  List<QuestionRow> findRowsByTopicIdAndSubtopicMatch(
+      @Param("topicId") Long topicId, @Param("match") String match);
+
+  @Query(
+      "SELECT new nl.schoutens.codepop.repository.OptionRow(o.question.id, o.id, o.optionText, o.isCorrect) FROM QuestionOption o WHERE o.question.id IN :questionIds ORDER BY o.id")
+  List<OptionRow> findOptionRowsByQuestionIdIn(@Param("questionIds") Collection<Long> questionIds);
+
+  /** Explanations of the given questions, for slim quizzes and for the rows of a quiz. */
+  @Query(
+      "SELECT new nl.schoutens.codepop.dto.ExplanationDTO(q.id, q.explanation) FROM Question q WHERE q.id IN :ids")
+  List<ExplanationDTO> findExplanationsByIdIn(@Param("ids") Collection<Long> ids);
+
+  /** Topic id and text of every question, without loading entities or options. */
+  @Query("SELECT q.topic.id AS topicId, q.questionText AS text FROM Question q")
+  List<QuestionText> findAllQuestionTexts();
+
+  interface QuestionText {
+    Long getTopicId();
+
+    String getText();
+  }
 }
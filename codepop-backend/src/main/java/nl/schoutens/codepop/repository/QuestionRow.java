@@ -0,0 +1,9 @@
+package nl.schoutens.codepop.repository;
+
+import nl.schoutens.codepop.entity.Question.Difficulty;
+
+/**
+ * Flat, unmanaged projection of a question without its options or explanation. Pools are selected
+ * from these rows; explanations are only read for the questions that end up in a quiz.
+ */
+public record QuestionRow(Long id, String text, Difficulty difficulty) {}
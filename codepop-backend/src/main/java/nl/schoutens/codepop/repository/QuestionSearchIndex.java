@@ -0,0 +1,39 @@
+package nl.schoutens.codepop.repository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Queries for the SQLite FTS5 full-text index over the subtopic and text of every question ({@code
+ * questions_fts}). Subtopic lookups used {@code LOWER(subtopic) LIKE '%x%'}, which cannot use an
+ * index and scans every question of the topic; a MATCH against this table only reads the posting
+ * lists of the query's terms.
+ *
+ * <p>The table and the triggers that keep it in sync with {@code questions} are created by the
+ * {@code V3__questions_fts} migration. Text is tokenized with {@code unicode61} and stemmed with
+ * {@code porter}, so "record" matches "Records".
+ */
+public final class QuestionSearchIndex {
+
+  private static final Pattern TOKEN = Pattern.compile("[\\p{L}\\p{N}]+");
+
+  private QuestionSearchIndex() {}
+
+  /**
+   * FTS5 query that matches questions whose subtopic contains every word of {@code subtopic} as a
+   * (stemmed) word prefix, e.g. {@code subtopic : ("pattern"* "matching"*)} for "Pattern matching";
+   * FTS5 stems the quoted words too. Words are quoted, so user input cannot inject FTS operators.
+   * Returns null when the input has no words, which matches nothing.
+   */
+  public static String subtopicQuery(String subtopic) {
+    List<String> terms = new ArrayList<>();
+    Matcher matcher = TOKEN.matcher(subtopic.toLowerCase(Locale.ROOT));
+    while (matcher.find()) {
+      terms.add("\"" + matcher.group() + "\"*");
+    }
+    return terms.isEmpty() ? null : "subtopic : (" + String.join(" ", terms) + ")";
+  }
+}
@@ -0,0 +1,29 @@
+package nl.schoutens.codepop.repository;
+
+import org.hibernate.boot.model.FunctionContributions;
+import org.hibernate.boot.model.FunctionContributor;
+import org.hibernate.type.StandardBasicTypes;
+
+/**
+ * Registers the JPQL function {@code subtopic_match(q.id, :match)}: true when the question's
+ * subtopic matches the FTS5 query (see {@link QuestionSearchIndex#subtopicQuery}). It renders as a
+ * subquery on {@code questions_fts}, so JPQL queries filter by subtopic in one statement instead of
+ * first collecting the matching ids. Registered through {@code META-INF/services}.
+ */
+public class SubtopicMatchFunction implements FunctionContributor {
+
+  static final String NAME = "subtopic_match";
+
+  @Override
+  public void contributeFunctions(FunctionContributions contributions) {
+    contributions
+        .getFunctionRegistry()
+        .registerPattern(
+            NAME,
+            "(?1 in (select rowid from questions_fts where questions_fts match ?2))",
+            contributions
+                .getTypeConfiguration()
+                .getBasicTypeRegistry()
+                .resolve(StandardBasicTypes.BOOLEAN));
+  }
+}
@@ -0,0 +1,226 @@
+package nl.schoutens.codepop.service;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Encodes the set of question ids a client has already seen into a compact, signed, opaque token.
+ * Any backend node configured with the same secret can decode it, so no shared session state is
+ * needed between instances.
+ *
+ * <p>Layout (before URL-safe Base64): {@code [version][flags][payload][mac]}. The payload is the id
+ * count followed by the sorted ids as varint-encoded deltas, optionally raw-deflated when that is
+ * smaller. The mac is a truncated HMAC-SHA256 over everything before it.
+ */
+@Component
+@Slf4j
+public class ExclusionTokenCodec {
+
+  private static final byte VERSION = 1;
+  private static final byte FLAG_DEFLATED = 1;
+  private static final int MAC_LENGTH = 12;
+  private static final int HEADER_LENGTH = 2;
+  private static final String MAC_ALGORITHM = "HmacSHA256";
+
+  /** Upper bounds that keep a forged or corrupt token from exhausting memory. */
+  static final int MAX_IDS = 100_000;
+
+  private static final int MAX_PAYLOAD_BYTES = MAX_IDS * 10 + 5;
+
+  private final SecretKeySpec key;
+
+  public ExclusionTokenCodec(@Value("${codepop.exclusion-token.secret:}") String secret) {
+    byte[] keyBytes;
+    if (secret == null || secret.isBlank()) {
+      log.warn(
+          "[ExclusionTokenCodec] codepop.exclusion-token.secret is not set; using a random"
+              + " per-process secret. Tokens will not be portable between instances.");
+      keyBytes = new byte[32];
+      new SecureRandom().nextBytes(keyBytes);
+    } else {
+      keyBytes = secret.getBytes(StandardCharsets.UTF_8);
+    }
+    this.key = new SecretKeySpec(keyBytes, MAC_ALGORITHM);
+  }
+
+  /**
+   * Encode the given question ids (order and duplicates are irrelevant) into a token.
+   *
+   * @throws InvalidExclusionTokenException if an id is negative or there are more than {@value
+   *     #MAX_IDS} distinct ids; a client whose token grew that large has to start over without one
+   */
+  public String encode(Collection<Long> ids) {
+    long[] sorted = ids.stream().mapToLong(Long::longValue).sorted().distinct().toArray();
+    if (sorted.length > MAX_IDS) {
+      throw new InvalidExclusionTokenException(
+          "Exclusion token would hold " + sorted.length + " ids, at most " + MAX_IDS + " allowed");
+    }
+    if (sorted.length > 0 && sorted[0] < 0) {
+      throw new InvalidExclusionTokenException("Question ids must not be negative");
+    }
+
+    ByteArrayOutputStream raw = new ByteArrayOutputStream(sorted.length + 8);
+    writeVarint(raw, sorted.length);
+    long previous = 0;
+    for (long id : sorted) {
+      writeVarint(raw, id - previous);
+      previous = id;
+    }
+    byte[] payload = raw.toByteArray();
+    byte flags = 0;
+    byte[] deflated = deflate(payload);
+    if (deflated.length < payload.length) {
+      payload = deflated;
+      flags = FLAG_DEFLATED;
+    }
+
+    byte[] token = new byte[HEADER_LENGTH + payload.length + MAC_LENGTH];
+    token[0] = VERSION;
+    token[1] = flags;
+    System.arraycopy(payload, 0, token, HEADER_LENGTH, payload.length);
+    byte[] mac = mac(token, HEADER_LENGTH + payload.length);
+    System.arraycopy(mac, 0, token, HEADER_LENGTH + payload.length, MAC_LENGTH);
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(token);
+  }
+
+  /**
+   * Decode and verify a token produced by {@link #encode}.
+   *
+   * @throws InvalidExclusionTokenException if the token is malformed, tampered with or signed with
+   *     a different secret
+   */
+  public long[] decode(String token) {
+    byte[] bytes;
+    try {
+      bytes = Base64.getUrlDecoder().decode(token);
+    } catch (IllegalArgumentException e) {
+      throw new InvalidExclusionTokenException("Exclusion token is not valid Base64");
+    }
+    if (bytes.length < HEADER_LENGTH + MAC_LENGTH) {
+      throw new InvalidExclusionTokenException("Exclusion token is too short");
+    }
+
+    int signedLength = bytes.length - MAC_LENGTH;
+    byte[] expected = mac(bytes, signedLength);
+    byte[] actual = Arrays.copyOfRange(bytes, signedLength, bytes.length);
+    if (!MessageDigest.isEqual(expected, actual)) {
+      throw new InvalidExclusionTokenException("Exclusion token signature does not match");
+    }
+    if (bytes[0] != VERSION) {
+      throw new InvalidExclusionTokenException("Unsupported exclusion token version: " + bytes[0]);
+    }
+
+    byte[] payload = Arrays.copyOfRange(bytes, HEADER_LENGTH, signedLength);
+    if ((bytes[1] & FLAG_DEFLATED) != 0) {
+      payload = inflate(payload);
+    }
+
+    int[] position = {0};
+    long count = readVarint(payload, position);
+    if (count > MAX_IDS) {
+      throw new InvalidExclusionTokenException("Exclusion token holds too many ids");
+    }
+    long[] ids = new long[(int) count];
+    long previous = 0;
+    for (int i = 0; i < ids.length; i++) {
+      previous += readVarint(payload, position);
+      ids[i] = previous;
+    }
+    return ids;
+  }
+
+  private byte[] mac(byte[] data, int length) {
+    try {
+      Mac mac = Mac.getInstance(MAC_ALGORITHM);
+      mac.init(key);
+      mac.update(data, 0, length);
+      return Arrays.copyOf(mac.doFinal(), MAC_LENGTH);
+    } catch (GeneralSecurityException e) {
+      throw new IllegalStateException("HMAC-SHA256 is not available", e);
+    }
+  }
+
+  private static byte[] deflate(byte[] data) {
+    Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION, true);
+    try {
+      deflater.setInput(data);
+      deflater.finish();
+      ByteArrayOutputStream out = new ByteArrayOutputStream(data.length);
+      byte[] buffer = new byte[512];
+      while (!deflater.finished()) {
+        out.write(buffer, 0, deflater.deflate(buffer));
+      }
+      return out.toByteArray();
+    } finally {
+      deflater.end();
+    }
+  }
+
+  private static byte[] inflate(byte[] data) {
+    Inflater inflater = new Inflater(true);
+    try {
+      inflater.setInput(data);
+      ByteArrayOutputStream out = new ByteArrayOutputStream(data.length * 4);
+      byte[] buffer = new byte[512];
+      while (!inflater.finished()) {
+        int n = inflater.inflate(buffer);
+        if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+          throw new InvalidExclusionTokenException("Exclusion token payload is truncated");
+        }
+        out.write(buffer, 0, n);
+        if (out.size() > MAX_PAYLOAD_BYTES) {
+          throw new InvalidExclusionTokenException("Exclusion token payload is too large");
+        }
+      }
+      return out.toByteArray();
+    } catch (DataFormatException e) {
+      throw new InvalidExclusionTokenException("Exclusion token payload is corrupt");
+    } finally {
+      inflater.end();
+    }
+  }
+
+  private static void writeVarint(ByteArrayOutputStream out, long value) {
+    while ((value & ~0x7FL) != 0) {
+      out.write((int) ((value & 0x7F) | 0x80));
+      value >>>= 7;
+    }
+    out.write((int) value);
+  }
+
+  private static long readVarint(byte[] data, int[] position) {
+    long value = 0;
+    for (int shift = 0; shift < 64; shift += 7) {
+      if (position[0] >= data.length) {
+        throw new InvalidExclusionTokenException("Exclusion token payload is truncated");
+      }
+      byte b = data[position[0]++];
+      value |= (long) (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) {
+        return value;
+      }
+    }
+    throw new InvalidExclusionTokenException("Exclusion token contains a malformed number");
+  }
+
+  /** Thrown when a client sends an exclusion token that cannot be decoded or verified. */
+  public static class InvalidExclusionTokenException extends RuntimeException {
+    public InvalidExclusionTokenException(String message) {
+      super(message);
+    }
+  }
+}
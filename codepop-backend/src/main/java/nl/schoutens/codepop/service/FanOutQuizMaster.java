@@ -0,0 +1,216 @@
+package nl.schoutens.codepop.service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import lombok.extern.slf4j.Slf4j;
+import nl.schoutens.codepop.entity.Question;
+import nl.schoutens.codepop.entity.Question.Difficulty;
+import org.springframework.core.task.AsyncTaskExecutor;
+
+/**
+ * {@link QuizMaster} decorator that splits one generation into several smaller prompts and runs
+ * them concurrently. LLM latency is dominated by the number of output tokens a single prompt has to
+ * decode, so {@code parallelism} prompts of {@code count / parallelism} questions finish in roughly
+ * {@code 1 / parallelism} of the time, at the cost of sending the shared instructions and existing
+ * questions once per prompt.
+ *
+ * <p>The split follows the usual 40% easy, 40% medium, 20% hard mix: each prompt asks for a single
+ * difficulty, large buckets are split further and, when {@code parallelism} is smaller than the
+ * number of buckets, the smallest ones are merged into one mixed prompt. Results are merged in
+ * arrival order, de-duplicated against each other and the existing questions, and trimmed to {@code
+ * count}. Prompts still running when the {@code deadline} passes are cancelled and the questions
+ * received so far are returned.
+ *
+ * <p>With a {@link GenerationCoalescer}, one prompt runs on the LLM permit the calling generation
+ * already holds and every further prompt needs a permit of its own: the generation is split into
+ * as many prompts as there are permits free right now, at most {@code parallelism}, so fan-outs
+ * never exceed {@code codepop.llm.max-concurrency}. Without one, every generation is split {@code
+ * parallelism} ways.
+ *
+ * <p>The executor should be reserved for these prompts: a caller that itself runs on it would wait
+ * for prompts queued behind it.
+ */
+@Slf4j
+public class FanOutQuizMaster implements QuizMaster {
+
+  private static final Question SLICE_DONE = new Question();
+
+  private final QuizMaster delegate;
+  private final AsyncTaskExecutor executor;
+  private final int parallelism;
+  private final Duration deadline;
+  private final GenerationCoalescer permits;
+
+  public FanOutQuizMaster(
+      QuizMaster delegate, AsyncTaskExecutor executor, int parallelism, Duration deadline) {
+    this(delegate, executor, parallelism, deadline, null);
+  }
+
+  public FanOutQuizMaster(
+      QuizMaster delegate,
+      AsyncTaskExecutor executor,
+      int parallelism,
+      Duration deadline,
+      GenerationCoalescer permits) {
+    this.delegate = delegate;
+    this.executor = executor;
+    this.parallelism = Math.max(1, parallelism);
+    this.deadline = deadline;
+    this.permits = permits;
+  }
+
+  /** One prompt of the fan-out: {@code count} questions of one difficulty, or mixed if null. */
+  record Slice(Difficulty difficulty, int count) {}
+
+  @Override
+  public List<Question> generateQuestions(
+      String topic, int count, List<String> existingQuestionTexts) {
+    return generateQuestions(topic, count, existingQuestionTexts, question -> {});
+  }
+
+  @Override
+  public List<Question> generateQuestions(
+      String topic, int count, List<String> existingQuestionTexts, Consumer<Question> onQuestion) {
+    List<Slice> slices = slices(count, parallelism);
+    int extraPermits = 0;
+    if (permits != null && slices.size() > 1) {
+      extraPermits = permits.tryAcquireAdditionalPermits(slices.size() - 1);
+      if (extraPermits < slices.size() - 1) {
+        slices = slices(count, extraPermits + 1);
+      }
+    }
+    try {
+      return generate(topic, count, existingQuestionTexts, onQuestion, slices);
+    } finally {
+      // Prompts cancelled at the deadline may still be winding down when these are returned
+      if (permits != null) {
+        permits.releaseAdditionalPermits(extraPermits);
+      }
+    }
+  }
+
+  private List<Question> generate(
+      String topic,
+      int count,
+      List<String> existingQuestionTexts,
+      Consumer<Question> onQuestion,
+      List<Slice> slices) {
+    if (slices.size() < 2) {
+      return delegate.generateQuestions(topic, count, existingQuestionTexts, onQuestion);
+    }
+    log.info("[FanOutQuizMaster] Generating " + count + " questions as " + slices);
+
+    BlockingQueue<Question> arrivals = new LinkedBlockingQueue<>();
+    List<Future<?>> running = new ArrayList<>(slices.size());
+    for (Slice slice : slices) {
+      running.add(
+          executor.submit(
+              () -> {
+                try {
+                  delegate.generateQuestions(
+                      topic,
+                      slice.count(),
+                      existingQuestionTexts,
+                      slice.difficulty(),
+                      arrivals::add);
+                } catch (RuntimeException e) {
+                  log.warn("[FanOutQuizMaster] Prompt " + slice + " failed: " + e.getMessage());
+                } finally {
+                  arrivals.add(SLICE_DONE);
+                }
+              }));
+    }
+
+    // Merge on the caller thread, so onQuestion sees the same thread as without fan-out
+    Set<String> seen = new HashSet<>();
+    existingQuestionTexts.forEach(text -> seen.add(QuestionPoolCache.normalize(text)));
+    List<Question> merged = new ArrayList<>(count);
+    long deadlineNanos = System.nanoTime() + deadline.toNanos();
+    int done = 0;
+    try {
+      while (done < slices.size() && merged.size() < count) {
+        Question question = arrivals.poll(deadlineNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+        if (question == null) {
+          log.warn(
+              "[FanOutQuizMaster] Deadline of "
+                  + deadline
+                  + " passed with "
+                  + merged.size()
+                  + " of "
+                  + count
+                  + " questions");
+          break;
+        }
+        if (question == SLICE_DONE) {
+          done++;
+        } else if (seen.add(QuestionPoolCache.normalize(question.getQuestionText()))) {
+          merged.add(question);
+          onQuestion.accept(question);
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      running.forEach(future -> future.cancel(true));
+    }
+    return merged;
+  }
+
+  @Override
+  public List<Question> generateQuestions(
+      String topic,
+      int count,
+      List<String> existingQuestionTexts,
+      Difficulty difficulty,
+      Consumer<Question> onQuestion) {
+    if (difficulty == null) {
+      return generateQuestions(topic, count, existingQuestionTexts, onQuestion);
+    }
+    return delegate.generateQuestions(topic, count, existingQuestionTexts, difficulty, onQuestion);
+  }
+
+  /** Split {@code count} questions into at most {@code parallelism} prompts. */
+  static List<Slice> slices(int count, int parallelism) {
+    int easy = (int) Math.ceil(count * 0.4);
+    int hard = Math.min((int) Math.ceil(count * 0.2), count - easy);
+    List<Slice> slices = new ArrayList<>();
+    for (Slice slice :
+        List.of(
+            new Slice(Difficulty.EASY, easy),
+            new Slice(Difficulty.MEDIUM, count - easy - hard),
+            new Slice(Difficulty.HARD, hard))) {
+      if (slice.count() > 0) {
+        slices.add(slice);
+      }
+    }
+
+    Comparator<Slice> bySize = Comparator.comparingInt(Slice::count);
+    while (slices.size() > parallelism) {
+      slices.sort(bySize);
+      Slice smallest = slices.remove(0);
+      Slice next = slices.remove(0);
+      slices.add(new Slice(null, smallest.count() + next.count()));
+    }
+    while (slices.size() < parallelism) {
+      Slice largest = slices.stream().max(bySize).orElseThrow();
+      if (largest.count() < 2) {
+        break;
+      }
+      slices.remove(largest);
+      int half = largest.count() / 2;
+      slices.add(new Slice(largest.difficulty(), largest.count() - half));
+      slices.add(new Slice(largest.difficulty(), half));
+    }
+    slices.sort(bySize.reversed());
+    return slices;
+  }
+}
@@ -0,0 +1,288 @@
+package nl.schoutens.codepop.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import lombok.extern.slf4j.Slf4j;
+import nl.schoutens.codepop.entity.Question;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Single-flight coalescing of LLM generations per topic/subtopic pool. When several requests run
+ * short of questions for the same pool at the same time, only the first one (the leader) calls the
+ * {@link QuizMaster}; the others join and receive the leader's saved questions once it is done.
+ *
+ * <p>Joiners wait as long as the leader may take: {@code codepop.generation.wait-timeout} for an
+ * LLM permit plus {@code codepop.llm.fan-out.deadline} for the generation. Then they continue with
+ * whatever the pool holds. Leader, joined and timed-out requests are counted in {@code
+ * codepop.generation.requests} (tag {@code role}), so the coalescing ratio is {@code joined /
+ * (leader + joined + timeout)}.
+ *
+ * <p>All LLM generations (request path and background replenishment) go through this class, so it
+ * also enforces the global {@code codepop.llm.max-concurrency} limit: a leader waits for a permit
+ * before it calls the model. Request-path leaders wait at most the same wait-timeout and then
+ * continue without generating (counted as timeout). Background generations ({@link
+ * #generateInBackground}) leave one permit free for the request path whenever the limit is above
+ * one. A generation that splits into concurrent prompts ({@link FanOutQuizMaster}) takes a further
+ * permit per extra prompt with {@link #tryAcquireAdditionalPermits}, so the limit counts LLM calls,
+ * not generations.
+ */
+@Component
+@Slf4j
+public class GenerationCoalescer implements MeterBinder {
+
+  private final ConcurrentMap<QuestionPoolCache.Key, CompletableFuture<List<Question>>> inFlight =
+      new ConcurrentHashMap<>();
+  private final Duration waitTimeout;
+  private final Duration joinTimeout;
+  private final Semaphore llmPermits;
+  /** Held by background generations next to an LLM permit; one fewer than there are permits. */
+  private final Semaphore backgroundPermits;
+  /** Whether the generation running on this thread is a background one; unset outside of one. */
+  private final ThreadLocal<Boolean> runningInBackground = new ThreadLocal<>();
+
+  private final LongAdder leaders = new LongAdder();
+  private final LongAdder joined = new LongAdder();
+  private final LongAdder timedOut = new LongAdder();
+
+  public GenerationCoalescer(
+      @Value("${codepop.generation.wait-timeout:30s}") Duration waitTimeout,
+      @Value("${codepop.llm.fan-out.deadline:60s}") Duration generationDeadline,
+      @Value("${codepop.llm.max-concurrency:2}") int maxConcurrency) {
+    this.waitTimeout = waitTimeout;
+    this.joinTimeout = waitTimeout.plus(generationDeadline);
+    int permits = Math.max(1, maxConcurrency);
+    this.llmPermits = new Semaphore(permits, true);
+    this.backgroundPermits = new Semaphore(Math.max(1, permits - 1), true);
+  }
+
+  /**
+   * Run the given generation for the pool unless one is already in flight, in which case wait for
+   * that one instead. The generation is expected to save its questions before returning.
+   *
+   * @return the questions saved by the generation that ran, or an empty list if this caller gave up
+   *     waiting for another caller's generation or for an LLM permit
+   */
+  public List<Question> generate(
+      Long topicId, String subtopic, Supplier<List<Question>> generation) {
+    QuestionPoolCache.Key key = QuestionPoolCache.Key.of(topicId, subtopic);
+    CompletableFuture<List<Question>> flight = new CompletableFuture<>();
+    CompletableFuture<List<Question>> existing = inFlight.putIfAbsent(key, flight);
+    if (existing != null) {
+      return await(key, existing);
+    }
+    leaders.increment();
+    return lead(key, flight, () -> generateWithPermit(key, generation));
+  }
+
+  /**
+   * Like {@link #generate}, for background jobs: waits for a permit as long as it takes, and never
+   * takes the last free one from the request path. The job only becomes the pool's in-flight
+   * generation once it holds its permits, so a request that arrives while it waits leads a
+   * generation of its own instead of joining one that has not started.
+   */
+  public List<Question> generateInBackground(
+      Long topicId, String subtopic, Supplier<List<Question>> generation) {
+    QuestionPoolCache.Key key = QuestionPoolCache.Key.of(topicId, subtopic);
+    acquireBackgroundPermits();
+    CompletableFuture<List<Question>> flight = new CompletableFuture<>();
+    CompletableFuture<List<Question>> existing = inFlight.putIfAbsent(key, flight);
+    if (existing != null) {
+      // A request is generating for this pool already: wait for it without holding the permits
+      releaseBackgroundPermits();
+      return await(key, existing);
+    }
+    leaders.increment();
+    try {
+      return lead(key, flight, () -> run(generation, true));
+    } finally {
+      releaseBackgroundPermits();
+    }
+  }
+
+  private List<Question> lead(
+      QuestionPoolCache.Key key,
+      CompletableFuture<List<Question>> flight,
+      Supplier<List<Question>> generation) {
+    try {
+      List<Question> result = generation.get();
+      // Remove before completing: a request that arrives later re-reads the refreshed pool first
+      inFlight.remove(key, flight);
+      flight.complete(result);
+      return result;
+    } catch (RuntimeException | Error e) {
+      inFlight.remove(key, flight);
+      flight.completeExceptionally(e);
+      throw e;
+    }
+  }
+
+  private List<Question> generateWithPermit(
+      QuestionPoolCache.Key key, Supplier<List<Question>> generation) {
+    try {
+      if (!llmPermits.tryAcquire(waitTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+        timedOut.increment();
+        log.warn(
+            "[GenerationCoalescer] No LLM permit within "
+                + waitTimeout
+                + ", not generating "
+                + key);
+        return List.of();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while waiting for an LLM permit", e);
+    }
+    try {
+      return run(generation, false);
+    } finally {
+      llmPermits.release();
+    }
+  }
+
+  private void acquireBackgroundPermits() {
+    try {
+      backgroundPermits.acquire();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while waiting for an LLM permit", e);
+    }
+    try {
+      llmPermits.acquire();
+    } catch (InterruptedException e) {
+      backgroundPermits.release();
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while waiting for an LLM permit", e);
+    }
+  }
+
+  private void releaseBackgroundPermits() {
+    llmPermits.release();
+    backgroundPermits.release();
+  }
+
+  private List<Question> run(Supplier<List<Question>> generation, boolean background) {
+    runningInBackground.set(background);
+    try {
+      return generation.get();
+    } finally {
+      runningInBackground.remove();
+    }
+  }
+
+  /**
+   * Take up to {@code wanted} more LLM permits for the generation running on the calling thread,
+   * without waiting, for prompts it runs next to its own. Background generations only take permits
+   * the request path can spare. Outside of a generation nothing is granted.
+   *
+   * @return the number of permits taken, to be returned with {@link #releaseAdditionalPermits}
+   */
+  public int tryAcquireAdditionalPermits(int wanted) {
+    Boolean background = runningInBackground.get();
+    if (background == null) {
+      return 0;
+    }
+    int granted = 0;
+    try {
+      // A zero timeout respects the fair ordering, so waiting leaders are not overtaken
+      while (granted < wanted) {
+        if (background && !backgroundPermits.tryAcquire(0, TimeUnit.MILLISECONDS)) {
+          break;
+        }
+        if (!llmPermits.tryAcquire(0, TimeUnit.MILLISECONDS)) {
+          if (background) {
+            backgroundPermits.release();
+          }
+          break;
+        }
+        granted++;
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    return granted;
+  }
+
+  /** Return permits taken with {@link #tryAcquireAdditionalPermits}, on the same thread. */
+  public void releaseAdditionalPermits(int permits) {
+    if (permits == 0) {
+      return;
+    }
+    llmPermits.release(permits);
+    if (Boolean.TRUE.equals(runningInBackground.get())) {
+      backgroundPermits.release(permits);
+    }
+  }
+
+  /**
+   * Number of generations currently running, or waiting for an LLM permit on the request path.
+   */
+  public int inFlightCount() {
+    return inFlight.size();
+  }
+
+  private List<Question> await(
+      QuestionPoolCache.Key key, CompletableFuture<List<Question>> flight) {
+    log.info("[GenerationCoalescer] Joining in-flight generation for " + key);
+    try {
+      List<Question> result = flight.get(joinTimeout.toMillis(), TimeUnit.MILLISECONDS);
+      joined.increment();
+      return result;
+    } catch (TimeoutException e) {
+      timedOut.increment();
+      log.warn(
+          "[GenerationCoalescer] Gave up waiting " + joinTimeout + " for generation of " + key);
+      return List.of();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      timedOut.increment();
+      return List.of();
+    } catch (ExecutionException e) {
+      joined.increment();
+      if (e.getCause() instanceof RuntimeException runtimeException) {
+        throw runtimeException;
+      }
+      throw new IllegalStateException("Question generation failed", e.getCause());
+    }
+  }
+
+  long leaderCount() {
+    return leaders.sum();
+  }
+
+  long joinedCount() {
+    return joined.sum();
+  }
+
+  long timeoutCount() {
+    return timedOut.sum();
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    counter(registry, "leader", leaders);
+    counter(registry, "joined", joined);
+    counter(registry, "timeout", timedOut);
+    registry.gauge("codepop.generation.in-flight", inFlight, ConcurrentMap::size);
+    registry.gauge("codepop.llm.permits.available", llmPermits, Semaphore::availablePermits);
+  }
+
+  private static void counter(MeterRegistry registry, String role, LongAdder adder) {
+    FunctionCounter.builder("codepop.generation.requests", adder, LongAdder::sum)
+        .tag("role", role)
+        .description("Quiz requests that needed an LLM generation, by coalescing role")
+        .register(registry);
+  }
+}
@@ -0,0 +1,235 @@
+package nl.schoutens.codepop.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import lombok.extern.slf4j.Slf4j;
+import nl.schoutens.codepop.entity.Question;
+import nl.schoutens.codepop.repository.QuestionRepository;
+import nl.schoutens.codepop.service.SimilarQuestionSelector.Signature;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * In-memory near-duplicate index over all stored question texts, per topic. Generated questions are
+ * checked against it before they are saved, so paraphrases of existing questions (which the LLM
+ * returns despite the avoid-list) do not bloat the bank.
+ *
+ * <p>Uses locality-sensitive hashing over the MinHash signatures of {@link
+ * SimilarQuestionSelector}: the {@value SimilarQuestionSelector#HASHES} hashes are split into
+ * {@value #BANDS} bands and two texts become candidates when any band matches exactly. Candidates
+ * are confirmed when their estimated Jaccard similarity reaches {@code
+ * codepop.dedup.similarity-threshold}. A check looks at a handful of buckets instead of every
+ * question, so it stays well below a millisecond for large topics.
+ *
+ * <p>The index is loaded from {@link QuestionRepository} once the application is up. Checking does
+ * not add to the index: callers {@link #index} the questions once their transaction has committed,
+ * so a failed save never leaves signatures of questions that do not exist. Two generations for the
+ * same pool are coalesced (see {@link GenerationCoalescer}), so they rarely check at the same time.
+ * Accepted and rejected questions are counted in {@code codepop.dedup.questions} (tag {@code
+ * outcome}).
+ */
+@Component
+@Slf4j
+public class NearDuplicateIndex implements MeterBinder {
+
+  static final int BANDS = 16;
+  private static final int ROWS = SimilarQuestionSelector.HASHES / BANDS;
+
+  private final QuestionRepository questionRepository;
+  private final boolean enabled;
+  private final double similarityThreshold;
+  private final ConcurrentMap<Long, TopicBuckets> topics = new ConcurrentHashMap<>();
+
+  private final LongAdder accepted = new LongAdder();
+  private final LongAdder rejected = new LongAdder();
+
+  public NearDuplicateIndex(
+      QuestionRepository questionRepository,
+      @Value("${codepop.dedup.enabled:true}") boolean enabled,
+      @Value("${codepop.dedup.similarity-threshold:0.7}") double similarityThreshold) {
+    this.questionRepository = questionRepository;
+    this.enabled = enabled;
+    this.similarityThreshold = similarityThreshold;
+  }
+
+  /** Index every stored question once the application (and the data seeder) is up. */
+  @EventListener(ApplicationReadyEvent.class)
+  public void rebuild() {
+    if (!enabled) {
+      return;
+    }
+    long start = System.nanoTime();
+    int count = 0;
+    for (QuestionRepository.QuestionText question : questionRepository.findAllQuestionTexts()) {
+      buckets(question.getTopicId()).add(SimilarQuestionSelector.signature(question.getText()));
+      count++;
+    }
+    log.info(
+        "[NearDuplicateIndex] Indexed "
+            + count
+            + " questions of "
+            + topics.size()
+            + " topics in "
+            + (System.nanoTime() - start) / 1_000_000
+            + " ms");
+  }
+
+  /**
+   * Return the questions that are not near-duplicates of an indexed question of the topic (or of an
+   * earlier question in the list). The index is left unchanged; {@link #index} the questions once
+   * they are saved.
+   */
+  public List<Question> filterNew(Long topicId, List<Question> questions) {
+    if (!enabled || questions.isEmpty()) {
+      return questions;
+    }
+    TopicBuckets buckets = buckets(topicId);
+    TopicBuckets batch = new TopicBuckets();
+    List<Question> kept = new ArrayList<>(questions.size());
+    for (Question question : questions) {
+      Signature signature = SimilarQuestionSelector.signature(question.getQuestionText());
+      if (buckets.isNew(signature, similarityThreshold)
+          && batch.addIfNew(signature, similarityThreshold)) {
+        accepted.increment();
+        kept.add(question);
+      } else {
+        rejected.increment();
+        log.info("[NearDuplicateIndex] Rejected near-duplicate: " + question.getQuestionText());
+      }
+    }
+    return kept;
+  }
+
+  /**
+   * Add questions to the index once they are committed: the ones {@link #filterNew} kept, and
+   * curated questions that are saved without a check (see {@link QuestionImporter}).
+   */
+  public void index(Long topicId, List<Question> questions) {
+    if (!enabled || questions.isEmpty()) {
+      return;
+    }
+    TopicBuckets buckets = buckets(topicId);
+    for (Question question : questions) {
+      buckets.add(SimilarQuestionSelector.signature(question.getQuestionText()));
+    }
+  }
+
+  /** Number of indexed questions of the topic. */
+  public int size(Long topicId) {
+    TopicBuckets buckets = topics.get(topicId);
+    return buckets == null ? 0 : buckets.size();
+  }
+
+  long acceptedCount() {
+    return accepted.sum();
+  }
+
+  long rejectedCount() {
+    return rejected.sum();
+  }
+
+  private TopicBuckets buckets(Long topicId) {
+    return topics.computeIfAbsent(topicId, id -> new TopicBuckets());
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    counter(registry, "accepted", accepted);
+    counter(registry, "rejected", rejected);
+  }
+
+  private static void counter(MeterRegistry registry, String outcome, LongAdder adder) {
+    FunctionCounter.builder("codepop.dedup.questions", adder, LongAdder::sum)
+        .tag("outcome", outcome)
+        .description("Generated questions checked for near-duplicates, by outcome")
+        .register(registry);
+  }
+
+  /** LSH buckets of one topic: band key to the signatures that share it. */
+  private static final class TopicBuckets {
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<Long, List<Signature>> buckets = new HashMap<>();
+    private int size;
+
+    void add(Signature signature) {
+      lock.lock();
+      try {
+        insert(signature);
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    boolean isNew(Signature signature, double similarityThreshold) {
+      lock.lock();
+      try {
+        return !matches(signature, similarityThreshold);
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    boolean addIfNew(Signature signature, double similarityThreshold) {
+      lock.lock();
+      try {
+        if (matches(signature, similarityThreshold)) {
+          return false;
+        }
+        insert(signature);
+        return true;
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    int size() {
+      lock.lock();
+      try {
+        return size;
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    private boolean matches(Signature signature, double similarityThreshold) {
+      for (int band = 0; band < BANDS; band++) {
+        List<Signature> candidates = buckets.get(bandKey(signature, band));
+        if (candidates == null) {
+          continue;
+        }
+        for (Signature candidate : candidates) {
+          if (signature.jaccard(candidate) >= similarityThreshold) {
+            return true;
+          }
+        }
+      }
+      return false;
+    }
+
+    private void insert(Signature signature) {
+      for (int band = 0; band < BANDS; band++) {
+        buckets.computeIfAbsent(bandKey(signature, band), key -> new ArrayList<>(1)).add(signature);
+      }
+      size++;
+    }
+
+    private static long bandKey(Signature signature, int band) {
+      int hash = 1;
+      for (int row = band * ROWS; row < (band + 1) * ROWS; row++) {
+        hash = 31 * hash + signature.minHashes()[row];
+      }
+      return ((long) band << 32) | (hash & 0xffffffffL);
+    }
+  }
+}
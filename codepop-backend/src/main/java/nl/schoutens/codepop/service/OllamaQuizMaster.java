@@ -5,6 +5,9 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import nl.schoutens.codepop.entity.Question;
 import nl.schoutens.codepop.entity.Question.Difficulty;
 import nl.schoutens.codepop.entity.QuestionOption;
@@ -12,25 +15,33 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.ai.chat.client.ChatClient;
 import org.springframework.ai.chat.client.advisor.SimpleLoggerAdvisor;
-import org.springframework.context.annotation.Primary;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
 
 /**
  * Ollama LLM implementation of QuizMaster. Generates quiz questions using Ollama API via Spring AI
  * ChatClient. Only active in non-test profiles.
+ *
+ * <p>With {@code codepop.llm.streaming} enabled (the default) the response is consumed as a token
+ * stream: each {@code ### QUESTION N ###} block is parsed as soon as the next header arrives, and
+ * the stream is cancelled once the requested number of valid questions has been parsed.
  */
 @Service
-@Primary
 @Profile("!test")
 public class OllamaQuizMaster implements QuizMaster {
 
   private static final Logger logger = LoggerFactory.getLogger(OllamaQuizMaster.class);
   private static final ObjectMapper objectMapper = new ObjectMapper();
+  private static final Pattern QUESTION_HEADER = Pattern.compile("###\\s*QUESTION\\s+\\d+\\s*###");
 
   private final ChatClient chatClient;
+  private final boolean streaming;
 
-  public OllamaQuizMaster(ChatClient.Builder builder) {
+  public OllamaQuizMaster(
+      ChatClient.Builder builder, @Value("${codepop.llm.streaming:true}") boolean streaming) {
+    this.streaming = streaming;
     this.chatClient =
         builder
             .defaultAdvisors(new SimpleLoggerAdvisor())
@@ -42,27 +53,101 @@ public class OllamaQuizMaster implements QuizMaster {
   @Override
   public List<Question> generateQuestions(
       String topic, int count, List<String> existingQuestionTexts) {
+    if (streaming) {
+      return generateQuestions(topic, count, existingQuestionTexts, question -> {});
+    }
     logger.info("Generating {} questions for topic: {}", count, topic);
 
-    String prompt = buildPrompt(topic, count, existingQuestionTexts);
-    String response;
+    String response = call(buildPrompt(topic, count, existingQuestionTexts, null));
+    return response == null ? List.of() : parseResponse(response);
+  }
 
+  /** Blocking call; returns null when the LLM could not be reached. */
+  private String call(String prompt) {
     try {
-      response = chatClient.prompt(prompt).call().content();
+      String response = chatClient.prompt(prompt).call().content();
       logger.debug("LLM response received: {}", response);
+      return response;
     } catch (Exception e) {
       logger.error("Failed to call Ollama LLM", e);
-      return List.of();
+      return null;
     }
+  }
 
-    return parseResponse(response);
+  @Override
+  public List<Question> generateQuestions(
+      String topic, int count, List<String> existingQuestionTexts, Consumer<Question> onQuestion) {
+    return generateQuestions(topic, count, existingQuestionTexts, null, onQuestion);
   }
 
-  private String buildPrompt(String topic, int count, List<String> existingQuestionTexts) {
+  @Override
+  public List<Question> generateQuestions(
+      String topic,
+      int count,
+      List<String> existingQuestionTexts,
+      Difficulty difficulty,
+      Consumer<Question> onQuestion) {
+    if (!streaming) {
+      String response = call(buildPrompt(topic, count, existingQuestionTexts, difficulty));
+      if (response == null) {
+        return List.of();
+      }
+      List<Question> questions = parseResponse(response);
+      questions.forEach(onQuestion);
+      return questions;
+    }
+    logger.info("Streaming {} {} questions for topic: {}", count, difficulty, topic);
+
+    String prompt = buildPrompt(topic, count, existingQuestionTexts, difficulty);
+    List<Question> questions = new ArrayList<>();
+    StringBuilder response = new StringBuilder();
+    DelimitedStreamParser parser = new DelimitedStreamParser();
+
+    try {
+      Flux<String> content = chatClient.prompt(prompt).stream().content();
+      Iterable<Question> parsed =
+          content
+              .doOnNext(response::append)
+              .concatMapIterable(parser::accept)
+              .concatWith(Flux.defer(() -> Flux.fromIterable(parser.finish())))
+              // Cancels the model stream as soon as enough questions have been parsed
+              .take(count)
+              .toIterable();
+      // Consume on the calling thread, so onQuestion may block (e.g. to save the question)
+      for (Question question : parsed) {
+        questions.add(question);
+        onQuestion.accept(question);
+      }
+    } catch (Exception e) {
+      logger.error("Failed to stream from Ollama LLM after {} questions", questions.size(), e);
+      return questions;
+    }
+
+    if (questions.isEmpty() && response.length() > 0) {
+      // Model ignored the delimiter format; fall back to the full-response parsers
+      for (Question question : parseResponse(response.toString())) {
+        if (questions.size() == count) {
+          break;
+        }
+        questions.add(question);
+        onQuestion.accept(question);
+      }
+    }
+    logger.info("Streamed {} questions ({} chars received)", questions.size(), response.length());
+    return questions;
+  }
+
+  private String buildPrompt(
+      String topic, int count, List<String> existingQuestionTexts, Difficulty difficulty) {
     // Calculate difficulty distribution (40% easy, 40% medium, 20% hard)
     int easyCount = (int) Math.ceil(count * 0.4);
-    int hardCount = (int) Math.ceil(count * 0.2);
+    int hardCount = Math.min((int) Math.ceil(count * 0.2), count - easyCount);
     int mediumCount = count - easyCount - hardCount;
+    if (difficulty != null) {
+      easyCount = difficulty == Difficulty.EASY ? count : 0;
+      mediumCount = difficulty == Difficulty.MEDIUM ? count : 0;
+      hardCount = difficulty == Difficulty.HARD ? count : 0;
+    }
 
     StringBuilder prompt = new StringBuilder();
     prompt.append("You are a quiz master specialized in coding topics. ");
@@ -298,36 +383,78 @@ public class OllamaQuizMaster implements QuizMaster {
    * snippets.
    */
   private List<Question> parseDelimitedFormat(String response) {
-    List<Question> questions = new ArrayList<>();
+    DelimitedStreamParser parser = new DelimitedStreamParser();
+    List<Question> questions = new ArrayList<>(parser.accept(response));
+    questions.addAll(parser.finish());
 
-    // Split into question blocks using the delimiter
-    String[] blocks = response.split("###\\s*QUESTION\\s+\\d+\\s*###");
+    logger.info("Successfully parsed {} questions from delimited format", questions.size());
+    return questions;
+  }
 
-    for (int i = 1; i < blocks.length; i++) { // Start at 1 to skip any preamble
-      String block = blocks[i].trim();
-      if (block.isEmpty()) {
-        continue;
+  /**
+   * Incremental version of {@link #parseDelimitedFormat}: text is fed in arbitrary chunks and each
+   * question block is parsed as soon as the header of the next block (or the end of the stream)
+   * shows that it is complete. Only the current, incomplete block is buffered.
+   */
+  static final class DelimitedStreamParser {
+    private final StringBuilder buffer = new StringBuilder();
+    private boolean inBlock;
+    private int blockIndex;
+
+    /** Append a chunk and return the questions of all blocks it completed. */
+    List<Question> accept(String chunk) {
+      buffer.append(chunk);
+      List<Question> completed = new ArrayList<>();
+      Matcher header = QUESTION_HEADER.matcher(buffer);
+      int blockStart = 0;
+      while (header.find()) {
+        if (inBlock) {
+          parseBlock(buffer.substring(blockStart, header.start()), completed);
+        }
+        inBlock = true;
+        blockStart = header.end();
+      }
+      // Text before the first header is preamble; text after the last one is still incomplete
+      buffer.delete(0, inBlock ? blockStart : Math.max(0, buffer.length() - 64));
+      return completed;
+    }
+
+    /** Signal the end of the stream and return the question of the last block, if valid. */
+    List<Question> finish() {
+      List<Question> completed = new ArrayList<>();
+      if (inBlock) {
+        parseBlock(buffer.toString(), completed);
       }
+      buffer.setLength(0);
+      inBlock = false;
+      return completed;
+    }
 
+    private void parseBlock(String text, List<Question> completed) {
+      blockIndex++;
+      String block = text.trim();
+      if (block.isEmpty()) {
+        return;
+      }
       try {
         Question question = parseDelimitedQuestion(block);
         if (validateQuestion(question)) {
-          questions.add(question);
+          completed.add(question);
         }
       } catch (Exception e) {
-        logger.warn("Failed to parse delimited question block {}, skipping: {}", i, e.getMessage());
+        logger.warn(
+            "Failed to parse delimited question block {}, skipping: {}",
+            blockIndex,
+            e.getMessage());
       }
     }
-
-    logger.info("Successfully parsed {} questions from delimited format", questions.size());
-    return questions;
   }
 
   /**
    * Parse a single question from a delimited block. Extracts DIFFICULTY, QUESTION, OPTIONs, and
    * EXPLANATION.
    */
-  private Question parseDelimitedQuestion(String block) {
+  private static Question parseDelimitedQuestion(String block) {
     String difficulty = null;
     StringBuilder questionText = new StringBuilder();
     List<String> options = new ArrayList<>();
@@ -428,7 +555,7 @@ public class OllamaQuizMaster implements QuizMaster {
     return question;
   }
 
-  private Difficulty parseDifficulty(String difficultyStr) {
+  private static Difficulty parseDifficulty(String difficultyStr) {
     return switch (difficultyStr) {
       case "easy" -> Difficulty.EASY;
       case "medium" -> Difficulty.MEDIUM;
@@ -440,7 +567,7 @@ public class OllamaQuizMaster implements QuizMaster {
     };
   }
 
-  private boolean validateQuestion(Question question) {
+  private static boolean validateQuestion(Question question) {
     if (question.getQuestionText() == null || question.getQuestionText().trim().isEmpty()) {
       logger.warn("Question has empty text");
       return false;
@@ -0,0 +1,274 @@
+package nl.schoutens.codepop.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import lombok.extern.slf4j.Slf4j;
+import nl.schoutens.codepop.entity.Question;
+import nl.schoutens.codepop.entity.Topic;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Refills question pools in the background before users run dry. Every served quiz reports the size
+ * of its topic/subtopic pool; once a pool drops below {@code codepop.replenish.low-watermark} a job
+ * is queued that generates questions until the pool reaches {@code
+ * codepop.replenish.high-watermark}.
+ *
+ * <p>Jobs run on a small fixed worker pool ({@code codepop.replenish.workers}) and are taken from a
+ * priority queue ordered by recent demand: an exponentially decaying request count per pool with
+ * half-life {@code codepop.replenish.demand-half-life}. Generation goes through {@link
+ * GenerationCoalescer}, so background jobs share the global LLM concurrency limit (leaving a permit
+ * for requests) and request-path callers can join a running background generation. The prompt's
+ * "avoid these" list is chosen by {@link SimilarQuestionSelector}, like on the request path.
+ */
+@Component
+@Slf4j
+public class PoolReplenisher implements MeterBinder {
+
+  private final QuizMaster quizMaster;
+  private final QuizService.TransactionalOperations txOps;
+  private final GenerationCoalescer generationCoalescer;
+  private final NearDuplicateIndex nearDuplicateIndex;
+  private final SimilarQuestionSelector similarQuestionSelector;
+
+  private final boolean enabled;
+  private final int lowWatermark;
+  private final int highWatermark;
+  private final int batchSize;
+  private final int queueCapacity;
+  private final double halfLifeNanos;
+
+  private final Cache<QuestionPoolCache.Key, Demand> demand;
+  private final ConcurrentMap<QuestionPoolCache.Key, Job> pending = new ConcurrentHashMap<>();
+  private final ThreadPoolExecutor workers;
+  private final AtomicLong sequence = new AtomicLong();
+
+  private final LongAdder jobsCompleted = new LongAdder();
+  private final LongAdder jobsRejected = new LongAdder();
+  private final LongAdder questionsGenerated = new LongAdder();
+
+  public PoolReplenisher(
+      QuizMaster quizMaster,
+      QuizService.TransactionalOperations txOps,
+      GenerationCoalescer generationCoalescer,
+      NearDuplicateIndex nearDuplicateIndex,
+      SimilarQuestionSelector similarQuestionSelector,
+      @Value("${codepop.replenish.enabled:true}") boolean enabled,
+      @Value("${codepop.replenish.low-watermark:15}") int lowWatermark,
+      @Value("${codepop.replenish.high-watermark:40}") int highWatermark,
+      @Value("${codepop.replenish.batch-size:10}") int batchSize,
+      @Value("${codepop.replenish.workers:1}") int workerCount,
+      @Value("${codepop.replenish.queue-capacity:100}") int queueCapacity,
+      @Value("${codepop.replenish.demand-half-life:10m}") Duration demandHalfLife) {
+    this.quizMaster = quizMaster;
+    this.txOps = txOps;
+    this.generationCoalescer = generationCoalescer;
+    this.nearDuplicateIndex = nearDuplicateIndex;
+    this.similarQuestionSelector = similarQuestionSelector;
+    this.enabled = enabled;
+    this.lowWatermark = lowWatermark;
+    this.highWatermark = Math.max(highWatermark, lowWatermark);
+    this.batchSize = Math.max(1, batchSize);
+    this.queueCapacity = queueCapacity;
+    this.halfLifeNanos = Math.max(1, demandHalfLife.toNanos());
+    this.demand =
+        Caffeine.newBuilder()
+            .maximumSize(10_000)
+            .expireAfterAccess(demandHalfLife.multipliedBy(6))
+            .build();
+    int threads = Math.max(1, workerCount);
+    this.workers =
+        new ThreadPoolExecutor(
+            threads,
+            threads,
+            0L,
+            TimeUnit.MILLISECONDS,
+            new PriorityBlockingQueue<>(),
+            daemonThreads("pool-replenisher-"));
+  }
+
+  /**
+   * Record that a quiz was served from the given pool and queue a replenishment job if the pool has
+   * fallen below the low watermark. Never blocks on generation.
+   */
+  public void recordDemand(Topic topic, String subtopic, int poolSize) {
+    if (!enabled) {
+      return;
+    }
+    QuestionPoolCache.Key key = QuestionPoolCache.Key.of(topic.getId(), subtopic);
+    double score = demand.get(key, k -> new Demand()).hit(System.nanoTime(), halfLifeNanos);
+    if (poolSize >= lowWatermark || pending.containsKey(key)) {
+      return;
+    }
+    if (pending.size() >= queueCapacity) {
+      jobsRejected.increment();
+      log.warn("[PoolReplenisher] Queue full, not replenishing " + key);
+      return;
+    }
+
+    Job job = new Job(key, topic, subtopic, score, sequence.incrementAndGet());
+    if (pending.putIfAbsent(key, job) == null) {
+      log.info(
+          "[PoolReplenisher] Pool "
+              + key
+              + " has "
+              + poolSize
+              + " questions (low watermark "
+              + lowWatermark
+              + "), queued with demand "
+              + String.format("%.2f", score));
+      workers.execute(job);
+    }
+  }
+
+  /** Number of queued or running replenishment jobs. */
+  public int pendingJobs() {
+    return pending.size();
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    workers.shutdownNow();
+  }
+
+  private void replenish(Job job) {
+    Long topicId = job.topic.getId();
+    List<String> existingQuestionTexts =
+        new ArrayList<>(txOps.fetchQuestionTexts(topicId, job.subtopic));
+    int size = existingQuestionTexts.size();
+    String prompt =
+        job.subtopic == null ? job.topic.getName() : job.topic.getName() + " " + job.subtopic;
+
+    while (size < highWatermark && !Thread.currentThread().isInterrupted()) {
+      int count = Math.min(batchSize, highWatermark - size);
+      List<Question> saved =
+          generationCoalescer.generateInBackground(
+              topicId,
+              job.subtopic,
+              () -> generateAndSave(job, prompt, count, existingQuestionTexts));
+      if (saved.isEmpty()) {
+        break;
+      }
+      size += saved.size();
+      saved.forEach(q -> existingQuestionTexts.add(q.getQuestionText()));
+    }
+    log.info("[PoolReplenisher] Pool " + job.key + " now has " + size + " questions");
+  }
+
+  private List<Question> generateAndSave(
+      Job job, String prompt, int count, List<String> existingQuestionTexts) {
+    List<Question> newQuestions =
+        nearDuplicateIndex.filterNew(
+            job.topic.getId(),
+            quizMaster.generateQuestions(
+                prompt,
+                count,
+                List.copyOf(similarQuestionSelector.select(prompt, existingQuestionTexts))));
+    if (!newQuestions.isEmpty()) {
+      for (Question newQ : newQuestions) {
+        newQ.setTopic(job.topic);
+        if (job.subtopic != null) {
+          newQ.setSubtopic(job.subtopic);
+        }
+      }
+      txOps.saveQuestions(newQuestions);
+      nearDuplicateIndex.index(job.topic.getId(), newQuestions);
+      questionsGenerated.add(newQuestions.size());
+    }
+    return newQuestions;
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    counter(registry, "codepop.replenish.jobs", "completed", jobsCompleted);
+    counter(registry, "codepop.replenish.jobs", "rejected", jobsRejected);
+    FunctionCounter.builder("codepop.replenish.questions", questionsGenerated, LongAdder::sum)
+        .description("Questions generated by background replenishment")
+        .register(registry);
+    registry.gauge("codepop.replenish.pending", pending, ConcurrentMap::size);
+  }
+
+  private static void counter(
+      MeterRegistry registry, String name, String outcome, LongAdder adder) {
+    FunctionCounter.builder(name, adder, LongAdder::sum).tag("outcome", outcome).register(registry);
+  }
+
+  private static ThreadFactory daemonThreads(String prefix) {
+    AtomicInteger counter = new AtomicInteger();
+    return runnable -> {
+      Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    };
+  }
+
+  /** Exponentially decaying request count of one pool. */
+  private static final class Demand {
+    private final ReentrantLock lock = new ReentrantLock();
+    private double score;
+    private long updatedAt = System.nanoTime();
+
+    double hit(long now, double halfLifeNanos) {
+      lock.lock();
+      try {
+        score = score * Math.pow(0.5, (now - updatedAt) / halfLifeNanos) + 1;
+        updatedAt = now;
+        return score;
+      } finally {
+        lock.unlock();
+      }
+    }
+  }
+
+  /** A queued replenishment; higher demand runs first, ties in arrival order. */
+  final class Job implements Runnable, Comparable<Job> {
+    private final QuestionPoolCache.Key key;
+    private final Topic topic;
+    private final String subtopic;
+    private final double priority;
+    private final long sequence;
+
+    Job(QuestionPoolCache.Key key, Topic topic, String subtopic, double priority, long sequence) {
+      this.key = key;
+      this.topic = topic;
+      this.subtopic = subtopic;
+      this.priority = priority;
+      this.sequence = sequence;
+    }
+
+    @Override
+    public void run() {
+      try {
+        replenish(this);
+        jobsCompleted.increment();
+      } catch (RuntimeException e) {
+        log.warn("[PoolReplenisher] Replenishing " + key + " failed: " + e.getMessage());
+      } finally {
+        pending.remove(key, this);
+      }
+    }
+
+    @Override
+    public int compareTo(Job other) {
+      int byPriority = Double.compare(other.priority, priority);
+      return byPriority != 0 ? byPriority : Long.compare(sequence, other.sequence);
+    }
+  }
+}
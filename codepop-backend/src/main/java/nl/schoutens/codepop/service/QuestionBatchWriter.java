@@ -0,0 +1,150 @@
+package nl.schoutens.codepop.service;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import nl.schoutens.codepop.entity.Question;
+import nl.schoutens.codepop.entity.QuestionOption;
+import nl.schoutens.codepop.entity.QuestionsInsertedEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Bulk insert path for new questions and their options that bypasses the JPA entity lifecycle.
+ * Saving through the repository issues one INSERT per question and per option, each followed by an
+ * id round-trip (IDENTITY ids cannot be batched), all while holding SQLite's single write lock.
+ *
+ * <p>This writer instead sends multi-row {@code INSERT ... VALUES (...), (...)} statements of up to
+ * {@value #ROWS_PER_STATEMENT} rows, questions first and then options in the same order. The ids of
+ * a statement's rows are derived from {@code last_insert_rowid()}: the id columns are SQLite rowid
+ * aliases, so the rows of one statement get consecutive ids in {@code VALUES} order. The generated
+ * ids are written back to the entities.
+ *
+ * <p>Entity listeners do not run, so this class sets {@code createdAt} itself and publishes a
+ * {@link QuestionsInsertedEvent}; the caches pick up the new questions once the transaction
+ * commits.
+ */
+@Component
+public class QuestionBatchWriter {
+
+  /** Rows per INSERT statement; keeps bound parameters well below SQLite's limit of 32766. */
+  static final int ROWS_PER_STATEMENT = 500;
+
+  private static final String INSERT_QUESTIONS =
+      "INSERT INTO questions (topic_id, question_text, subtopic, difficulty, explanation,"
+          + " created_at) VALUES ";
+  private static final String QUESTION_ROW = "(?, ?, ?, ?, ?, ?)";
+  private static final String INSERT_OPTIONS =
+      "INSERT INTO question_options (question_id, option_text, is_correct) VALUES ";
+  private static final String OPTION_ROW = "(?, ?, ?)";
+
+  private final JdbcTemplate jdbcTemplate;
+  private final ApplicationEventPublisher eventPublisher;
+
+  public QuestionBatchWriter(JdbcTemplate jdbcTemplate, ApplicationEventPublisher eventPublisher) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.eventPublisher = eventPublisher;
+  }
+
+  /**
+   * Insert the questions (which must have a persisted topic) and their options, and assign the
+   * generated ids. Joins the caller's transaction; all statements run on its connection.
+   */
+  @Transactional(propagation = Propagation.MANDATORY)
+  public void insert(List<Question> questions) {
+    if (questions.isEmpty()) {
+      return;
+    }
+    List<QuestionOption> options = new ArrayList<>();
+    for (Question question : questions) {
+      question.setCreatedAt(LocalDateTime.now());
+      options.addAll(question.getOptions());
+    }
+
+    jdbcTemplate.execute(
+        (ConnectionCallback<Void>)
+            connection -> {
+              for (int from = 0; from < questions.size(); from += ROWS_PER_STATEMENT) {
+                insertQuestions(
+                    connection,
+                    questions.subList(from, Math.min(from + ROWS_PER_STATEMENT, questions.size())));
+              }
+              for (int from = 0; from < options.size(); from += ROWS_PER_STATEMENT) {
+                insertOptions(
+                    connection,
+                    options.subList(from, Math.min(from + ROWS_PER_STATEMENT, options.size())));
+              }
+              return null;
+            });
+
+    eventPublisher.publishEvent(new QuestionsInsertedEvent(questions));
+  }
+
+  private static void insertQuestions(Connection connection, List<Question> rows)
+      throws SQLException {
+    try (PreparedStatement statement =
+        connection.prepareStatement(INSERT_QUESTIONS + values(QUESTION_ROW, rows.size()))) {
+      int index = 1;
+      for (Question question : rows) {
+        statement.setLong(index++, question.getTopic().getId());
+        statement.setString(index++, question.getQuestionText());
+        statement.setString(index++, question.getSubtopic());
+        statement.setString(index++, question.getDifficulty().name());
+        statement.setString(index++, question.getExplanation());
+        statement.setTimestamp(index++, Timestamp.valueOf(question.getCreatedAt()));
+      }
+      statement.executeUpdate();
+    }
+    long id = firstInsertedId(connection, rows.size());
+    for (Question question : rows) {
+      question.setId(id++);
+    }
+  }
+
+  private static void insertOptions(Connection connection, List<QuestionOption> rows)
+      throws SQLException {
+    try (PreparedStatement statement =
+        connection.prepareStatement(INSERT_OPTIONS + values(OPTION_ROW, rows.size()))) {
+      int index = 1;
+      for (QuestionOption option : rows) {
+        statement.setLong(index++, option.getQuestion().getId());
+        statement.setString(index++, option.getOptionText());
+        statement.setBoolean(index++, option.getIsCorrect());
+      }
+      statement.executeUpdate();
+    }
+    long id = firstInsertedId(connection, rows.size());
+    for (QuestionOption option : rows) {
+      option.setId(id++);
+    }
+  }
+
+  private static long firstInsertedId(Connection connection, int rows) throws SQLException {
+    try (Statement statement = connection.createStatement();
+        ResultSet result = statement.executeQuery("SELECT last_insert_rowid()")) {
+      result.next();
+      return result.getLong(1) - rows + 1;
+    }
+  }
+
+  private static String values(String row, int rows) {
+    StringBuilder sql = new StringBuilder(rows * (row.length() + 2));
+    for (int i = 0; i < rows; i++) {
+      if (i > 0) {
+        sql.append(", ");
+      }
+      sql.append(row);
+    }
+    return sql.toString();
+  }
+}
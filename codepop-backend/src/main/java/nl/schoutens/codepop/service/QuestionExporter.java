@@ -0,0 +1,227 @@
+package nl.schoutens.codepop.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import lombok.extern.slf4j.Slf4j;
+import nl.schoutens.codepop.repository.OptionRow;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Streams the question bank as NDJSON, one JSON object per line, for backups and offline analysis.
+ * Unlike copying {@code codepop.db}, this is safe while the application writes.
+ *
+ * <p>The output starts with every topic ({@code "type":"topic"}), followed by the questions with
+ * their options ({@code "type":"question"}) in id order, and ends with one {@code "type":"end"}
+ * line carrying the {@code cursor} (the last exported question id, or the given {@code since}
+ * when nothing was exported). An export without that last line was cut off; passing the id of
+ * the last question received as {@code since} resumes it, and passing the cursor of the last
+ * export fetches only the questions added since.
+ *
+ * <p>Questions are read with keyset pagination ({@code WHERE id > ? ORDER BY id LIMIT ?}) in pages
+ * of {@code codepop.export.page-size}, each page in its own short read-only transaction. Memory use
+ * is bounded by one page however large the bank is, and a slow client never holds a reader
+ * connection or a WAL snapshot. The pages therefore do not share one snapshot: questions inserted
+ * during an export appear in it when their id lies beyond the current page.
+ */
+@Component
+@Slf4j
+public class QuestionExporter {
+
+  private static final String SELECT_TOPICS =
+      "SELECT id, name, category, created_at FROM topics ORDER BY id";
+  private static final String SELECT_QUESTIONS =
+      "SELECT id, topic_id, question_text, subtopic, difficulty, explanation, created_at"
+          + " FROM questions WHERE id > ?";
+  private static final String CREATED_AFTER = " AND created_at > ?";
+  private static final String PAGE = " ORDER BY id LIMIT ?";
+  // A range over the page's ids instead of an IN list: one index range scan, two parameters
+  private static final String SELECT_OPTIONS =
+      "SELECT question_id, id, option_text, is_correct FROM question_options"
+          + " WHERE question_id BETWEEN ? AND ? ORDER BY question_id, id";
+
+  private static final JsonFactory JSON = new JsonFactory();
+
+  private final JdbcTemplate jdbcTemplate;
+  private final TransactionTemplate readOnlyTransaction;
+  private final int pageSize;
+
+  public QuestionExporter(
+      JdbcTemplate jdbcTemplate,
+      PlatformTransactionManager transactionManager,
+      @Value("${codepop.export.page-size:500}") int pageSize) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+    this.readOnlyTransaction.setReadOnly(true);
+    this.pageSize = Math.max(1, pageSize);
+  }
+
+  /**
+   * Write the topics and every question with an id above {@code since} (and, if given, created
+   * after {@code createdAfter}) to {@code out}. The stream is flushed after every page and not
+   * closed.
+   *
+   * @return The cursor written on the last line
+   */
+  public long export(OutputStream out, long since, LocalDateTime createdAfter)
+      throws IOException {
+    log.info("[QuestionExporter] Export since " + since + ", created after " + createdAfter);
+
+    JsonGenerator json = JSON.createGenerator(out);
+    json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+    // Root values are separated by the newline written after each of them
+    json.setRootValueSeparator(null);
+    Timestamp createdAfterTimestamp = createdAfter != null ? Timestamp.valueOf(createdAfter) : null;
+
+    List<ExportTopic> topics =
+        readOnlyTransaction.execute(
+            status ->
+                jdbcTemplate.query(
+                    SELECT_TOPICS,
+                    (rs, row) ->
+                        new ExportTopic(
+                            rs.getLong(1),
+                            rs.getString(2),
+                            rs.getString(3),
+                            rs.getTimestamp(4))));
+    for (ExportTopic topic : topics) {
+      writeTopic(json, topic);
+    }
+    json.flush();
+
+    long cursor = since;
+    long exported = 0;
+    List<ExportQuestion> page;
+    do {
+      long after = cursor;
+      page = readOnlyTransaction.execute(status -> readPage(after, createdAfterTimestamp));
+      for (ExportQuestion question : page) {
+        writeQuestion(json, question);
+        cursor = question.id();
+      }
+      exported += page.size();
+      json.flush();
+    } while (page.size() == pageSize);
+
+    json.writeStartObject();
+    json.writeStringField("type", "end");
+    json.writeNumberField("cursor", cursor);
+    json.writeNumberField("questions", exported);
+    json.writeEndObject();
+    json.writeRaw('\n');
+    json.close();
+
+    log.info("[QuestionExporter] Exported " + exported + " questions, cursor " + cursor);
+    return cursor;
+  }
+
+  /** The next page of questions after {@code after}, with their options. */
+  private List<ExportQuestion> readPage(long after, Timestamp createdAfter) {
+    String sql = SELECT_QUESTIONS + (createdAfter != null ? CREATED_AFTER : "") + PAGE;
+    Object[] args =
+        createdAfter != null
+            ? new Object[] {after, createdAfter, pageSize}
+            : new Object[] {after, pageSize};
+    List<ExportQuestion> questions =
+        jdbcTemplate.query(
+            sql,
+            (rs, row) ->
+                new ExportQuestion(
+                    rs.getLong(1),
+                    rs.getLong(2),
+                    rs.getString(3),
+                    rs.getString(4),
+                    rs.getString(5),
+                    rs.getString(6),
+                    rs.getTimestamp(7),
+                    new ArrayList<>(4)),
+            args);
+    if (questions.isEmpty()) {
+      return questions;
+    }
+
+    // Both lists are ordered by question id; options of questions outside the page (skipped by
+    // the created_at filter) are passed over
+    int[] index = {0};
+    jdbcTemplate.query(
+        SELECT_OPTIONS,
+        (RowCallbackHandler)
+            rs -> {
+              long questionId = rs.getLong(1);
+              while (index[0] < questions.size() && questions.get(index[0]).id() < questionId) {
+                index[0]++;
+              }
+              if (index[0] < questions.size() && questions.get(index[0]).id() == questionId) {
+                OptionRow option =
+                    new OptionRow(questionId, rs.getLong(2), rs.getString(3), rs.getBoolean(4));
+                questions.get(index[0]).options().add(option);
+              }
+            },
+        questions.get(0).id(),
+        questions.get(questions.size() - 1).id());
+    return questions;
+  }
+
+  private static void writeTopic(JsonGenerator json, ExportTopic topic) throws IOException {
+    json.writeStartObject();
+    json.writeStringField("type", "topic");
+    json.writeNumberField("id", topic.id());
+    json.writeStringField("name", topic.name());
+    json.writeStringField("category", topic.category());
+    writeTimestamp(json, "createdAt", topic.createdAt());
+    json.writeEndObject();
+    json.writeRaw('\n');
+  }
+
+  private static void writeQuestion(JsonGenerator json, ExportQuestion question)
+      throws IOException {
+    json.writeStartObject();
+    json.writeStringField("type", "question");
+    json.writeNumberField("id", question.id());
+    json.writeNumberField("topicId", question.topicId());
+    json.writeStringField("text", question.text());
+    json.writeStringField("subtopic", question.subtopic());
+    json.writeStringField("difficulty", question.difficulty());
+    json.writeStringField("explanation", question.explanation());
+    writeTimestamp(json, "createdAt", question.createdAt());
+    json.writeArrayFieldStart("options");
+    for (OptionRow option : question.options()) {
+      json.writeStartObject();
+      json.writeNumberField("id", option.id());
+      json.writeStringField("text", option.text());
+      json.writeBooleanField("isCorrect", option.isCorrect());
+      json.writeEndObject();
+    }
+    json.writeEndArray();
+    json.writeEndObject();
+    json.writeRaw('\n');
+  }
+
+  /** ISO-8601 local date-time, as Jackson writes {@code LocalDateTime}. */
+  private static void writeTimestamp(JsonGenerator json, String field, Timestamp value)
+      throws IOException {
+    json.writeStringField(field, value != null ? value.toLocalDateTime().toString() : null);
+  }
+
+  private record ExportTopic(long id, String name, String category, Timestamp createdAt) {}
+
+  private record ExportQuestion(
+      long id,
+      long topicId,
+      String text,
+      String subtopic,
+      String difficulty,
+      String explanation,
+      Timestamp createdAt,
+      List<OptionRow> options) {}
+}
@@ -0,0 +1,348 @@
+package nl.schoutens.codepop.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.stream.Collectors;
+import lombok.extern.slf4j.Slf4j;
+import nl.schoutens.codepop.dto.ImportReportDTO;
+import nl.schoutens.codepop.entity.Question;
+import nl.schoutens.codepop.entity.QuestionOption;
+import nl.schoutens.codepop.entity.Topic;
+import nl.schoutens.codepop.repository.QuestionRepository;
+import nl.schoutens.codepop.repository.TopicRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Bulk import of curated questions from NDJSON, without the LLM. Each line is one question:
+ *
+ * <pre>{@code
+ * {"topic": "Java", "subtopic": "records", "difficulty": "EASY", "text": "...",
+ *  "explanation": "...", "options": [{"text": "...", "isCorrect": true}, ...]}
+ * }</pre>
+ *
+ * <p>The output of {@link QuestionExporter} is accepted as well: its topic lines map the {@code
+ * topicId} of the question lines that follow to a topic name, and its end line is ignored. Topics
+ * are matched by name and must exist.
+ *
+ * <p>Lines are validated and deduplicated in the same pass that parses them. A question needs a
+ * text, a difficulty and exactly {@value #OPTIONS_PER_QUESTION} options of which exactly one is
+ * correct. Questions whose normalized text the topic already has, in the database or earlier in the
+ * input, are skipped; the check uses 64-bit hashes of the stored texts, loaded once per import.
+ * Invalid lines are skipped and reported, they do not stop the import.
+ *
+ * <p>Accepted questions are saved in batches of {@code codepop.import.batch-size} through {@link
+ * QuestionBatchWriter} on the {@link SqliteWriter} thread, one transaction per batch. The next
+ * batch is parsed while the previous one commits. Batches committed before a failure stay; since
+ * their texts are then known, running the same import again only adds the remaining questions.
+ */
+@Component
+@Slf4j
+public class QuestionImporter {
+
+  static final int OPTIONS_PER_QUESTION = 4;
+  /** Rejected lines listed in the report; later ones are only counted. */
+  static final int MAX_REPORTED_ERRORS = 100;
+
+  private static final ObjectReader LINE_READER =
+      new ObjectMapper()
+          .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false)
+          .readerFor(ImportLine.class);
+
+  private final TopicRepository topicRepository;
+  private final QuestionRepository questionRepository;
+  private final QuizService.TransactionalOperations txOps;
+  private final NearDuplicateIndex nearDuplicateIndex;
+  private final TaskExecutor taskExecutor;
+  private final int batchSize;
+
+  public QuestionImporter(
+      TopicRepository topicRepository,
+      QuestionRepository questionRepository,
+      QuizService.TransactionalOperations txOps,
+      NearDuplicateIndex nearDuplicateIndex,
+      TaskExecutor taskExecutor,
+      @Value("${codepop.import.batch-size:5000}") int batchSize) {
+    this.topicRepository = topicRepository;
+    this.questionRepository = questionRepository;
+    this.txOps = txOps;
+    this.nearDuplicateIndex = nearDuplicateIndex;
+    this.taskExecutor = taskExecutor;
+    this.batchSize = Math.max(1, batchSize);
+  }
+
+  /**
+   * Import every question of {@code in} (UTF-8 NDJSON). Progress is logged after every batch. The
+   * stream is read to the end but not closed.
+   *
+   * @throws IOException when reading fails; batches committed until then stay
+   */
+  public ImportReportDTO importQuestions(InputStream in) throws IOException {
+    long start = System.nanoTime();
+    ImportRun run = new ImportRun(existingTextHashes());
+    log.info("[QuestionImporter] Import started, " + run.textHashes.size() + " questions stored");
+
+    BufferedReader reader =
+        new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), 1 << 16);
+    List<Question> batch = new ArrayList<>(batchSize);
+    CompletableFuture<Void> pending = CompletableFuture.completedFuture(null);
+    int pendingSize = 0;
+    String line;
+    while ((line = reader.readLine()) != null) {
+      Question question = run.accept(line);
+      if (question == null) {
+        continue;
+      }
+      batch.add(question);
+      if (batch.size() == batchSize) {
+        // At most one batch in flight: wait for the previous one before handing over this one
+        join(pending);
+        run.imported += pendingSize;
+        logProgress(run, start);
+        List<Question> full = batch;
+        pending = CompletableFuture.runAsync(() -> save(full), taskExecutor);
+        pendingSize = full.size();
+        batch = new ArrayList<>(batchSize);
+      }
+    }
+    join(pending);
+    run.imported += pendingSize;
+    save(batch);
+    run.imported += batch.size();
+
+    logProgress(run, start);
+    log.info(
+        "[QuestionImporter] Import finished in "
+            + (System.nanoTime() - start) / 1_000_000
+            + " ms");
+    return run.report();
+  }
+
+  private void save(List<Question> batch) {
+    if (batch.isEmpty()) {
+      return;
+    }
+    txOps.saveQuestions(batch);
+    batch.stream()
+        .collect(Collectors.groupingBy(q -> q.getTopic().getId()))
+        .forEach(nearDuplicateIndex::index);
+  }
+
+  private Set<Long> existingTextHashes() {
+    Set<Long> hashes = new HashSet<>();
+    for (QuestionRepository.QuestionText question : questionRepository.findAllQuestionTexts()) {
+      hashes.add(textHash(question.getTopicId(), question.getText()));
+    }
+    return hashes;
+  }
+
+  private static void join(CompletableFuture<Void> pending) {
+    try {
+      pending.join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException cause) {
+        throw cause;
+      }
+      throw e;
+    }
+  }
+
+  private static void logProgress(ImportRun run, long start) {
+    double seconds = (System.nanoTime() - start) / 1e9;
+    log.info(
+        "[QuestionImporter] "
+            + run.lines
+            + " lines: "
+            + run.imported
+            + " imported, "
+            + run.duplicates
+            + " duplicates, "
+            + run.invalid
+            + " invalid ("
+            + Math.round(run.imported / seconds)
+            + " questions/s)");
+  }
+
+  /** FNV-1a over the normalized text, seeded with the topic: equal for the same question. */
+  static long textHash(long topicId, String text) {
+    String normalized = QuestionPoolCache.normalize(text);
+    long hash = 0xcbf29ce484222325L ^ (topicId * 0x9E3779B97F4A7C15L);
+    for (int i = 0; i < normalized.length(); i++) {
+      hash ^= normalized.charAt(i);
+      hash *= 0x100000001b3L;
+    }
+    return hash;
+  }
+
+  /**
+   * Why the question cannot be imported, or null when it is valid.
+   *
+   * <p>Checks the text, the difficulty and that there are exactly {@value #OPTIONS_PER_QUESTION}
+   * options with a text, exactly one of them correct.
+   */
+  static String validate(ImportLine line) {
+    if (line.text() == null || line.text().isBlank()) {
+      return "text is missing";
+    }
+    if (difficulty(line.difficulty()) == null) {
+      return "difficulty must be EASY, MEDIUM or HARD";
+    }
+    if (line.options() == null || line.options().size() != OPTIONS_PER_QUESTION) {
+      return "expected "
+          + OPTIONS_PER_QUESTION
+          + " options, got "
+          + (line.options() == null ? 0 : line.options().size());
+    }
+    int correct = 0;
+    for (ImportOption option : line.options()) {
+      if (option == null || option.text() == null || option.text().isBlank()) {
+        return "option text is missing";
+      }
+      if (Boolean.TRUE.equals(option.isCorrect())) {
+        correct++;
+      }
+    }
+    if (correct != 1) {
+      return "expected exactly one correct option, got " + correct;
+    }
+    return null;
+  }
+
+  private static Question.Difficulty difficulty(String value) {
+    if (value == null) {
+      return null;
+    }
+    try {
+      return Question.Difficulty.valueOf(value.trim().toUpperCase(Locale.ROOT));
+    } catch (IllegalArgumentException e) {
+      return null;
+    }
+  }
+
+  /** One input line; fields of export lines that the import does not need are ignored. */
+  record ImportLine(
+      String type,
+      Long id,
+      String name,
+      String topic,
+      Long topicId,
+      String text,
+      String subtopic,
+      String difficulty,
+      String explanation,
+      List<ImportOption> options) {}
+
+  record ImportOption(String text, Boolean isCorrect) {}
+
+  /** Counters and lookups of one import; used by the importing thread only. */
+  private final class ImportRun {
+    private final Set<Long> textHashes;
+    private final Map<String, Topic> topics = new HashMap<>();
+    private final Map<Long, String> exportedTopicNames = new HashMap<>();
+    private final List<String> errors = new ArrayList<>();
+    private long lineNumber;
+    private long lines;
+    private long imported;
+    private long duplicates;
+    private long invalid;
+
+    ImportRun(Set<Long> textHashes) {
+      this.textHashes = textHashes;
+    }
+
+    /** The question of the line if it is to be saved, otherwise null (after counting why). */
+    Question accept(String text) {
+      lineNumber++;
+      if (text.isBlank()) {
+        return null;
+      }
+      lines++;
+
+      ImportLine line;
+      try {
+        line = LINE_READER.readValue(text);
+      } catch (JsonProcessingException e) {
+        return reject("not a JSON object");
+      }
+      String type = line.type() != null ? line.type() : "question";
+      switch (type) {
+        case "topic":
+          if (line.id() != null && line.name() != null) {
+            exportedTopicNames.put(line.id(), line.name());
+          }
+          return null;
+        case "end":
+          return null;
+        case "question":
+          break;
+        default:
+          return reject("unknown type " + type);
+      }
+
+      String error = validate(line);
+      if (error != null) {
+        return reject(error);
+      }
+      String topicName =
+          line.topic() != null ? line.topic() : exportedTopicNames.get(line.topicId());
+      if (topicName == null) {
+        return reject("topic is missing");
+      }
+      String key = topicName.trim().toLowerCase(Locale.ROOT);
+      if (!topics.containsKey(key)) {
+        // Unknown topics are remembered as null, so each name is looked up once
+        topics.put(key, topicRepository.findByNameIgnoreCase(topicName.trim()).orElse(null));
+      }
+      Topic topic = topics.get(key);
+      if (topic == null) {
+        return reject("unknown topic " + topicName);
+      }
+      if (!textHashes.add(textHash(topic.getId(), line.text()))) {
+        duplicates++;
+        return null;
+      }
+
+      Question question =
+          new Question(
+              topic,
+              line.text(),
+              line.subtopic(),
+              difficulty(line.difficulty()),
+              line.explanation());
+      for (ImportOption option : line.options()) {
+        question.addOption(
+            new QuestionOption(null, option.text(), Boolean.TRUE.equals(option.isCorrect())));
+      }
+      return question;
+    }
+
+    private Question reject(String reason) {
+      invalid++;
+      if (errors.size() < MAX_REPORTED_ERRORS) {
+        errors.add("line " + lineNumber + ": " + reason);
+      }
+      return null;
+    }
+
+    ImportReportDTO report() {
+      return new ImportReportDTO(lines, imported, duplicates, invalid, List.copyOf(errors));
+    }
+  }
+}
@@ -0,0 +1,135 @@
+package nl.schoutens.codepop.service;
+
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import nl.schoutens.codepop.dto.OptionDTO;
+import nl.schoutens.codepop.dto.QuestionDTO;
+import nl.schoutens.codepop.entity.QuestionChangedEvent;
+import nl.schoutens.codepop.entity.QuestionChangedEvent.Change;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Pre-encoded UTF-8 JSON of each question, keyed by question id and whether the explanation is
+ * included. Question content does not change after insert, so a question is encoded once on its
+ * first read and quiz responses are assembled by copying these fragments (see {@code
+ * QuizJsonMessageConverter}) instead of serializing the same DTOs through Jackson on every request.
+ *
+ * <p>A fragment is byte-for-byte what Jackson writes for the {@link QuestionDTO} record: fields in
+ * component order, nulls included. Fragments are weighed by their length and evicted once {@code
+ * codepop.json-cache.max-bytes} is exceeded. Questions updated or removed through JPA are dropped
+ * after the transaction commits (see {@link #onQuestionChanged}), so a reused id never serves stale
+ * JSON.
+ */
+@Component
+public class QuestionJsonCache implements MeterBinder {
+
+  static final String CACHE_NAME = "questionJson";
+
+  private static final JsonStringEncoder ENCODER = JsonStringEncoder.getInstance();
+
+  /** Slim quizzes leave explanations out, so a question can have two fragments (see key). */
+  private final Cache<Long, byte[]> cache;
+
+  public QuestionJsonCache(@Value("${codepop.json-cache.max-bytes:33554432}") long maxBytes) {
+    this.cache =
+        Caffeine.newBuilder()
+            .maximumWeight(maxBytes)
+            .weigher((Long id, byte[] json) -> json.length + 64)
+            .recordStats()
+            .build();
+  }
+
+  /** The question's JSON, encoded on first use. */
+  public byte[] fragment(QuestionDTO question) {
+    if (question.id() == null) {
+      return encode(question);
+    }
+    return cache.get(key(question.id(), question.explanation() != null), k -> encode(question));
+  }
+
+  public void invalidate(Long questionId) {
+    cache.invalidateAll(List.of(key(questionId, true), key(questionId, false)));
+  }
+
+  /** Drop the fragments of a question updated or removed through JPA, once committed. */
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onQuestionChanged(QuestionChangedEvent event) {
+    if (event.change() != Change.PERSISTED && event.questionId() != null) {
+      invalidate(event.questionId());
+    }
+  }
+
+  private static long key(long questionId, boolean withExplanation) {
+    return questionId << 1 | (withExplanation ? 1 : 0);
+  }
+
+  public void invalidateAll() {
+    cache.invalidateAll();
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    CaffeineCacheMetrics.monitor(registry, cache, CACHE_NAME);
+  }
+
+  /** Encode a question the way Jackson serializes the record. */
+  public static byte[] encode(QuestionDTO question) {
+    ByteArrayOutputStream json = new ByteArrayOutputStream(256);
+    try {
+      json.write(ascii("{\"id\":" + question.id() + ",\"text\":"));
+      writeString(json, question.text());
+      json.write(ascii(",\"difficulty\":"));
+      writeString(json, question.difficulty());
+      json.write(ascii(",\"explanation\":"));
+      writeString(json, question.explanation());
+      json.write(ascii(",\"options\":"));
+      if (question.options() == null) {
+        json.write(ascii("null"));
+      } else {
+        json.write('[');
+        boolean first = true;
+        for (OptionDTO option : question.options()) {
+          if (!first) {
+            json.write(',');
+          }
+          first = false;
+          json.write(ascii("{\"id\":" + option.id() + ",\"text\":"));
+          writeString(json, option.text());
+          json.write(ascii(",\"isCorrect\":" + option.isCorrect() + "}"));
+        }
+        json.write(']');
+      }
+      json.write('}');
+    } catch (IOException e) {
+      // ByteArrayOutputStream does not throw
+      throw new IllegalStateException(e);
+    }
+    return json.toByteArray();
+  }
+
+  /** Write a JSON string literal (or {@code null}) as UTF-8. */
+  public static void writeString(OutputStream out, String value) throws IOException {
+    if (value == null) {
+      out.write(ascii("null"));
+      return;
+    }
+    out.write('"');
+    out.write(ENCODER.quoteAsUTF8(value));
+    out.write('"');
+  }
+
+  private static byte[] ascii(String value) {
+    return value.getBytes(StandardCharsets.US_ASCII);
+  }
+}
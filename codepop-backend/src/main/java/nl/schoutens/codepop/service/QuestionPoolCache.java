@@ -0,0 +1,213 @@
+package nl.schoutens.codepop.service;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import nl.schoutens.codepop.dto.OptionDTO;
+import nl.schoutens.codepop.dto.QuestionDTO;
+import nl.schoutens.codepop.entity.QuestionChangedEvent;
+import nl.schoutens.codepop.entity.QuestionsInsertedEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Bounded cache of immutable question pools, keyed by topic id and normalized subtopic. Hot quizzes
+ * (e.g. "Java", "React hooks") are served from memory instead of re-running the JOIN FETCH query on
+ * every request.
+ *
+ * <p>Entries are weighed by their estimated heap size and evicted (W-TinyLFU, a frequency-aware
+ * LRU) once {@code codepop.question-cache.max-bytes} is exceeded. All pools of a topic are dropped
+ * once a change to any question of that topic commits (see {@link #onQuestionChanged}). Hit, miss
+ * and eviction counts are published as {@code cache.*} metrics with {@code cache=questionPools}.
+ *
+ * <p>Pools leave explanations out. The explanations of the questions actually served are cached
+ * next to them by question id, bounded by {@code codepop.question-cache.explanation-max-bytes}, so
+ * a quiz served from a cached pool needs no query at all. They are dropped when their question is
+ * updated or removed, and published with {@code cache=questionExplanations}.
+ *
+ * <p>Loads run on the calling thread but outside Caffeine's map locks: the cache only holds a
+ * future while a pool is loading. A JDBC load inside {@code compute} would keep a hash bin locked
+ * (and a virtual thread pinned to its carrier) for the whole query.
+ */
+@Component
+public class QuestionPoolCache implements MeterBinder {
+
+  static final String CACHE_NAME = "questionPools";
+  static final String EXPLANATIONS_CACHE_NAME = "questionExplanations";
+
+  /** Cached for questions without an explanation, so they are not read again either. */
+  private static final String NO_EXPLANATION = "";
+
+  private final AsyncCache<Key, List<QuestionDTO>> cache;
+  private final Cache<Long, String> explanations;
+
+  public QuestionPoolCache(
+      @Value("${codepop.question-cache.max-bytes:67108864}") long maxBytes,
+      @Value("${codepop.question-cache.explanation-max-bytes:16777216}") long explanationMaxBytes) {
+    this.cache =
+        Caffeine.newBuilder()
+            .maximumWeight(maxBytes)
+            .weigher((Key key, List<QuestionDTO> pool) -> estimateBytes(pool))
+            .recordStats()
+            .buildAsync();
+    this.explanations =
+        Caffeine.newBuilder()
+            .maximumWeight(explanationMaxBytes)
+            .weigher((Long id, String explanation) -> 32 + (int) chars(explanation))
+            .recordStats()
+            .build();
+  }
+
+  /** Cache key: topic id plus case-folded, whitespace-normalized subtopic ("" for none). */
+  record Key(Long topicId, String subtopic) {
+    static Key of(Long topicId, String subtopic) {
+      return new Key(topicId, normalize(subtopic));
+    }
+  }
+
+  /**
+   * Return the cached pool for the topic/subtopic, loading it with the given loader on a miss. The
+   * returned list is immutable and may be shared between concurrent requests.
+   */
+  public List<QuestionDTO> get(Long topicId, String subtopic, Supplier<List<QuestionDTO>> loader) {
+    CompletableFuture<List<QuestionDTO>> created = new CompletableFuture<>();
+    CompletableFuture<List<QuestionDTO>> pool =
+        cache.get(Key.of(topicId, subtopic), (key, executor) -> created);
+    if (pool == created) {
+      // Concurrent callers for the same key wait on this future instead of loading again
+      try {
+        created.complete(List.copyOf(loader.get()));
+      } catch (RuntimeException | Error e) {
+        created.completeExceptionally(e);
+        throw e;
+      }
+    }
+    return pool.join();
+  }
+
+  /** Return the cached pool, or null when it is not cached or still loading (does not load). */
+  public List<QuestionDTO> getIfPresent(Long topicId, String subtopic) {
+    CompletableFuture<List<QuestionDTO>> pool = cache.getIfPresent(Key.of(topicId, subtopic));
+    return pool != null && pool.isDone() && !pool.isCompletedExceptionally() ? pool.join() : null;
+  }
+
+  /**
+   * Explanations of the given questions by id; questions without one and unknown ids are left
+   * out. The ids not cached are read with one call of {@code loader}, which returns the
+   * explanation (or null) of every id it found.
+   */
+  public Map<Long, String> explanations(
+      Collection<Long> questionIds, Function<Set<Long>, Map<Long, String>> loader) {
+    Map<Long, String> cached =
+        explanations.getAll(
+            questionIds,
+            missing -> {
+              Map<Long, String> loaded = new HashMap<>(missing.size() * 2);
+              loader
+                  .apply(Set.copyOf(missing))
+                  .forEach((id, text) -> loaded.put(id, text != null ? text : NO_EXPLANATION));
+              return loaded;
+            });
+    Map<Long, String> result = new HashMap<>(cached.size() * 2);
+    cached.forEach(
+        (id, text) -> {
+          if (!text.equals(NO_EXPLANATION)) {
+            result.put(id, text);
+          }
+        });
+    return result;
+  }
+
+  public void invalidateExplanation(Long questionId) {
+    explanations.invalidate(questionId);
+  }
+
+  /** Drop every cached pool (all subtopics) of the given topic. */
+  public void invalidateTopic(Long topicId) {
+    cache.asMap().keySet().removeIf(key -> key.topicId().equals(topicId));
+  }
+
+  /**
+   * Drop the pools of the question's topic and its explanation once the change is committed, so a
+   * reload never observes uncommitted rows.
+   */
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onQuestionChanged(QuestionChangedEvent event) {
+    if (event.topicId() != null) {
+      invalidateTopic(event.topicId());
+    }
+    if (event.questionId() != null) {
+      invalidateExplanation(event.questionId());
+    }
+  }
+
+  /** Drop the pools of every topic that received bulk-inserted questions, once committed. */
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onQuestionsInserted(QuestionsInsertedEvent event) {
+    event.questions().stream()
+        .map(question -> question.getTopic().getId())
+        .distinct()
+        .forEach(this::invalidateTopic);
+  }
+
+  public void invalidateAll() {
+    cache.synchronous().invalidateAll();
+    explanations.invalidateAll();
+  }
+
+  public CacheStats stats() {
+    return cache.synchronous().stats();
+  }
+
+  public long estimatedSize() {
+    return cache.synchronous().estimatedSize();
+  }
+
+  /** Run pending maintenance (evictions) now instead of on the next access. */
+  void cleanUp() {
+    cache.synchronous().cleanUp();
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    CaffeineCacheMetrics.monitor(registry, cache, CACHE_NAME);
+    CaffeineCacheMetrics.monitor(registry, explanations, EXPLANATIONS_CACHE_NAME);
+  }
+
+  static String normalize(String subtopic) {
+    if (subtopic == null) {
+      return "";
+    }
+    return subtopic.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+  }
+
+  /** Rough heap estimate of a pool: object headers plus two bytes per character. */
+  static int estimateBytes(List<QuestionDTO> pool) {
+    long bytes = 64;
+    for (QuestionDTO question : pool) {
+      bytes += 96 + chars(question.text()) + chars(question.explanation());
+      for (OptionDTO option : question.options()) {
+        bytes += 64 + chars(option.text());
+      }
+    }
+    return (int) Math.min(bytes, Integer.MAX_VALUE);
+  }
+
+  private static long chars(String s) {
+    return s == null ? 0 : 40L + 2L * s.length();
+  }
+}
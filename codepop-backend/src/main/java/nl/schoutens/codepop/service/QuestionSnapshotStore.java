@@ -0,0 +1,685 @@
+package nl.schoutens.codepop.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongPredicate;
+import lombok.extern.slf4j.Slf4j;
+import nl.schoutens.codepop.dto.OptionDTO;
+import nl.schoutens.codepop.dto.QuestionDTO;
+import nl.schoutens.codepop.entity.Question;
+import nl.schoutens.codepop.entity.Question.Difficulty;
+import nl.schoutens.codepop.entity.QuestionChangedEvent;
+import nl.schoutens.codepop.entity.QuestionOption;
+import nl.schoutens.codepop.entity.QuestionsInsertedEvent;
+import nl.schoutens.codepop.repository.QuestionRepository;
+import nl.schoutens.codepop.repository.QuestionSearchIndex;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Optional in-memory copy of the whole question bank that serves quizzes without touching SQLite
+ * ({@code codepop.snapshot.enabled}).
+ *
+ * <p>The snapshot is immutable and columnar: one primitive array per column (ids, topic rows,
+ * difficulty bytes, option ranges, correct-option bits) and all texts in a single UTF-8 byte pool
+ * addressed by offsets. A quiz scans the int row list of its topic, skips excluded ids and only
+ * turns the chosen questions into DTOs. Compared to cached {@link QuestionDTO} pools there are no
+ * per-question objects at all; text is stored once, as UTF-8.
+ *
+ * <p>Updates are copy-on-write. Questions inserted by {@link QuestionBatchWriter} are appended to
+ * a copy of the snapshot once their transaction commits. Any other change (JPA saves, updates,
+ * deletes) withdraws the snapshot and reloads it on a background thread; until the reload is
+ * published, {@link #select} returns null and callers use the database path. Inserts committed
+ * while a reload runs are appended to its result, so steady generation traffic cannot keep the
+ * snapshot from being published.
+ *
+ * <p>Subtopic pools are resolved through the FTS5 index once per snapshot and remembered as row
+ * lists, so their later quizzes are served from memory too.
+ */
+@Component
+@Slf4j
+public class QuestionSnapshotStore implements MeterBinder {
+
+  /** Remembered subtopic row lists per snapshot; the memo is cleared when it grows past this. */
+  private static final int MAX_SUBTOPICS = 10_000;
+
+  private static final Difficulty[] DIFFICULTIES = Difficulty.values();
+
+  /** Loads in a row that may be outdated by other changes before the store gives up for now. */
+  private static final int MAX_RELOAD_ATTEMPTS = 3;
+
+  private final JdbcTemplate jdbcTemplate;
+  private final QuestionRepository questionRepository;
+  private final TransactionTemplate readTransaction;
+  private final boolean enabled;
+
+  private final ReentrantLock lock = new ReentrantLock();
+  private final AtomicLong version = new AtomicLong();
+  private final AtomicBoolean reloadQueued = new AtomicBoolean();
+  private final ExecutorService reloader;
+
+  /** Inserts committed while a load runs, and whether one does; guarded by {@link #lock}. */
+  private final List<Question> pendingInserts = new ArrayList<>();
+
+  private boolean loading;
+
+  private volatile Snapshot snapshot;
+
+  public QuestionSnapshotStore(
+      JdbcTemplate jdbcTemplate,
+      QuestionRepository questionRepository,
+      PlatformTransactionManager transactionManager,
+      @Value("${codepop.snapshot.enabled:false}") boolean enabled) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.questionRepository = questionRepository;
+    this.enabled = enabled;
+    if (enabled) {
+      this.readTransaction = new TransactionTemplate(transactionManager);
+      this.readTransaction.setReadOnly(true);
+      this.reloader =
+          Executors.newSingleThreadExecutor(
+              runnable -> {
+                Thread thread = new Thread(runnable, "question-snapshot-loader");
+                thread.setDaemon(true);
+                return thread;
+              });
+    } else {
+      this.readTransaction = null;
+      this.reloader = null;
+    }
+  }
+
+  /** Load the snapshot once the application (and the data seeder) is up. */
+  @EventListener(ApplicationReadyEvent.class)
+  public void warmUp() {
+    if (enabled) {
+      scheduleReload();
+    }
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    if (reloader != null) {
+      reloader.shutdownNow();
+    }
+  }
+
+  /** Questions picked for a quiz, and the size of the pool they were picked from. */
+  public record Selection(int poolSize, List<QuestionDTO> questions) {}
+
+  /**
+   * Pick up to {@code count} random questions of the topic/subtopic whose id is not excluded.
+   *
+   * @param withExplanations False to leave explanations out (they are then not decoded either)
+   * @return The selection, or null when the store is disabled or has no current snapshot
+   */
+  public Selection select(
+      Long topicId,
+      String subtopic,
+      LongPredicate excluded,
+      int count,
+      boolean withExplanations) {
+    Snapshot current = snapshot;
+    if (current == null) {
+      return null;
+    }
+    int[] rows =
+        subtopic == null || subtopic.isEmpty()
+            ? current.topicRows(topicId)
+            : current.subtopicRows(topicId, subtopic, this::matchingIds);
+
+    int[] available = new int[rows.length];
+    int size = 0;
+    for (int row : rows) {
+      if (!excluded.test(current.ids[row])) {
+        available[size++] = row;
+      }
+    }
+    int picked = Math.min(count, size);
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    List<QuestionDTO> questions = new ArrayList<>(picked);
+    for (int i = 0; i < picked; i++) {
+      int j = i + random.nextInt(size - i);
+      int row = available[j];
+      available[j] = available[i];
+      questions.add(current.question(row, withExplanations));
+    }
+    return new Selection(rows.length, questions);
+  }
+
+  /** Number of questions in the current snapshot, or -1 when there is none. */
+  public int size() {
+    Snapshot current = snapshot;
+    return current == null ? -1 : current.size;
+  }
+
+  /** Append bulk-inserted questions to the snapshot once their transaction commits. */
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onQuestionsInserted(QuestionsInsertedEvent event) {
+    if (!enabled || event.questions().isEmpty()) {
+      return;
+    }
+    add(event.questions());
+  }
+
+  /** Withdraw and reload the snapshot once a change made through JPA commits. */
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onQuestionChanged(QuestionChangedEvent event) {
+    invalidate();
+  }
+
+  /** Withdraw the snapshot and reload it in the background. */
+  public void invalidate() {
+    if (!enabled) {
+      return;
+    }
+    lock.lock();
+    try {
+      version.incrementAndGet();
+      snapshot = null;
+    } finally {
+      lock.unlock();
+    }
+    scheduleReload();
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    registry.gauge("codepop.snapshot.questions", this, QuestionSnapshotStore::size);
+    registry.gauge(
+        "codepop.snapshot.bytes",
+        this,
+        store -> {
+          Snapshot current = store.snapshot;
+          return current == null ? 0 : current.estimateBytes();
+        });
+  }
+
+  private void add(List<Question> questions) {
+    lock.lock();
+    try {
+      Snapshot current = snapshot;
+      if (current == null) {
+        // A queued reload reads them; a running one may not, so they are appended to its result
+        if (loading) {
+          pendingInserts.addAll(questions);
+        }
+        return;
+      }
+      snapshot = current.append(questions);
+      if (snapshot != null) {
+        return;
+      }
+      version.incrementAndGet();
+    } finally {
+      lock.unlock();
+    }
+    log.info("[QuestionSnapshotStore] Questions out of id order, reloading snapshot");
+    scheduleReload();
+  }
+
+  private void scheduleReload() {
+    if (reloadQueued.compareAndSet(false, true)) {
+      reloader.execute(this::reload);
+    }
+  }
+
+  private void reload() {
+    reloadQueued.set(false);
+    try {
+      for (int attempt = 1; attempt <= MAX_RELOAD_ATTEMPTS; attempt++) {
+        long expected;
+        lock.lock();
+        try {
+          // Inserts committed before the load starts are read by it
+          expected = version.get();
+          pendingInserts.clear();
+          loading = true;
+        } finally {
+          lock.unlock();
+        }
+        long start = System.nanoTime();
+        Snapshot loaded;
+        try {
+          loaded = readTransaction.execute(status -> load());
+        } catch (RuntimeException e) {
+          log.warn("[QuestionSnapshotStore] Loading snapshot failed: " + e.getMessage());
+          return;
+        }
+        lock.lock();
+        try {
+          Snapshot published =
+              version.get() == expected ? loaded.appendNewer(pendingInserts) : null;
+          if (published != null) {
+            snapshot = published;
+            log.info(
+                "[QuestionSnapshotStore] Loaded "
+                    + published.size
+                    + " questions ("
+                    + published.estimateBytes() / 1024
+                    + " KiB) in "
+                    + (System.nanoTime() - start) / 1_000_000
+                    + " ms");
+            return;
+          }
+        } finally {
+          lock.unlock();
+        }
+        // Questions were updated or removed while loading; load again so none are stale
+      }
+      log.warn(
+          "[QuestionSnapshotStore] Questions kept changing during "
+              + MAX_RELOAD_ATTEMPTS
+              + " loads, serving from the database until the next change");
+    } finally {
+      lock.lock();
+      try {
+        pendingInserts.clear();
+        loading = false;
+      } finally {
+        lock.unlock();
+      }
+    }
+  }
+
+  private Snapshot load() {
+    Snapshot.Builder builder = new Snapshot.Builder();
+    jdbcTemplate.query(
+        "SELECT id, topic_id, question_text, difficulty, explanation FROM questions ORDER BY id",
+        row -> {
+          builder.addQuestion(
+              row.getLong("id"),
+              row.getLong("topic_id"),
+              row.getString("question_text"),
+              Difficulty.valueOf(row.getString("difficulty")),
+              row.getString("explanation"));
+        });
+    jdbcTemplate.query(
+        "SELECT question_id, id, option_text, is_correct FROM question_options"
+            + " ORDER BY question_id, id",
+        row -> {
+          builder.addOption(
+              row.getLong("question_id"),
+              row.getLong("id"),
+              row.getString("option_text"),
+              row.getBoolean("is_correct"));
+        });
+    return builder.build();
+  }
+
+  private long[] matchingIds(Long topicId, String subtopic) {
+    String match = QuestionSearchIndex.subtopicQuery(subtopic);
+    if (match == null) {
+      return new long[0];
+    }
+    return questionRepository.findIdsByTopicIdAndSubtopicMatch(topicId, match).stream()
+        .mapToLong(Number::longValue)
+        .toArray();
+  }
+
+  /** Resolves the ids of a topic's questions whose subtopic matches. */
+  @FunctionalInterface
+  interface SubtopicMatcher {
+    long[] matchingIds(Long topicId, String subtopic);
+  }
+
+  /**
+   * Immutable columnar question bank. Row {@code r} is one question; rows are in ascending id
+   * order. Its options are rows {@code optionStart[r]} to {@code optionStart[r + 1]} of the option
+   * columns. Texts are indexes into {@link #strings}; -1 is null.
+   */
+  static final class Snapshot {
+    final int size;
+    final long[] ids;
+    final byte[] difficulty;
+    final int[] text;
+    final int[] explanation;
+    final int[] optionStart;
+    final long[] optionIds;
+    final int[] optionText;
+    final BitSet correct;
+    final StringPool strings;
+    final Map<Long, int[]> topicRows;
+    final Map<QuestionPoolCache.Key, int[]> subtopicRows = new ConcurrentHashMap<>();
+
+    private Snapshot(
+        int size,
+        long[] ids,
+        byte[] difficulty,
+        int[] text,
+        int[] explanation,
+        int[] optionStart,
+        long[] optionIds,
+        int[] optionText,
+        BitSet correct,
+        StringPool strings,
+        Map<Long, int[]> topicRows) {
+      this.size = size;
+      this.ids = ids;
+      this.difficulty = difficulty;
+      this.text = text;
+      this.explanation = explanation;
+      this.optionStart = optionStart;
+      this.optionIds = optionIds;
+      this.optionText = optionText;
+      this.correct = correct;
+      this.strings = strings;
+      this.topicRows = topicRows;
+    }
+
+    int[] topicRows(Long topicId) {
+      int[] rows = topicRows.get(topicId);
+      return rows == null ? new int[0] : rows;
+    }
+
+    int[] subtopicRows(Long topicId, String subtopic, SubtopicMatcher matcher) {
+      QuestionPoolCache.Key key = QuestionPoolCache.Key.of(topicId, subtopic);
+      int[] rows = subtopicRows.get(key);
+      if (rows == null) {
+        rows = rowsOf(matcher.matchingIds(topicId, subtopic));
+        if (subtopicRows.size() >= MAX_SUBTOPICS) {
+          subtopicRows.clear();
+        }
+        subtopicRows.put(key, rows);
+      }
+      return rows;
+    }
+
+    /** Rows of the given ids; ids not in this snapshot (committed after it) are skipped. */
+    private int[] rowsOf(long[] questionIds) {
+      int[] rows = new int[questionIds.length];
+      int count = 0;
+      for (long id : questionIds) {
+        int row = Arrays.binarySearch(ids, 0, size, id);
+        if (row >= 0) {
+          rows[count++] = row;
+        }
+      }
+      return Arrays.copyOf(rows, count);
+    }
+
+    QuestionDTO question(int row) {
+      return question(row, true);
+    }
+
+    QuestionDTO question(int row, boolean withExplanation) {
+      List<OptionDTO> options = new ArrayList<>(optionStart[row + 1] - optionStart[row]);
+      for (int o = optionStart[row]; o < optionStart[row + 1]; o++) {
+        options.add(new OptionDTO(optionIds[o], strings.get(optionText[o]), correct.get(o)));
+      }
+      return new QuestionDTO(
+          ids[row],
+          strings.get(text[row]),
+          DIFFICULTIES[difficulty[row]].name(),
+          withExplanation ? strings.get(explanation[row]) : null,
+          options);
+    }
+
+    /**
+     * Copy of this snapshot with the questions (and their options) added, or null when they do not
+     * all have ids above the current ones.
+     */
+    Snapshot append(List<Question> questions) {
+      List<Question> sorted = new ArrayList<>(questions);
+      sorted.sort((a, b) -> Long.compare(a.getId(), b.getId()));
+      if (size > 0 && sorted.get(0).getId() <= ids[size - 1]) {
+        return null;
+      }
+      Builder builder = new Builder(this);
+      for (Question question : sorted) {
+        builder.addQuestion(
+            question.getId(),
+            question.getTopic().getId(),
+            question.getQuestionText(),
+            question.getDifficulty(),
+            question.getExplanation());
+        for (QuestionOption option : question.getOptions()) {
+          builder.addOption(
+              question.getId(), option.getId(), option.getOptionText(), option.getIsCorrect());
+        }
+      }
+      return builder.build();
+    }
+
+    /**
+     * Copy of this snapshot with those questions appended whose id is above the current ones; the
+     * others were committed before it was loaded. Returns this snapshot when there are none, and
+     * null when {@link #append} refuses them.
+     */
+    Snapshot appendNewer(List<Question> questions) {
+      long loadedUpTo = size == 0 ? Long.MIN_VALUE : ids[size - 1];
+      List<Question> newer = questions.stream().filter(q -> q.getId() > loadedUpTo).toList();
+      return newer.isEmpty() ? this : append(newer);
+    }
+
+    long estimateBytes() {
+      return ids.length * 8L
+          + difficulty.length
+          + (text.length + explanation.length + optionStart.length) * 4L
+          + optionIds.length * 8L
+          + optionText.length * 4L
+          + correct.size() / 8
+          + strings.estimateBytes()
+          + size * 4L
+          + topicRows.size() * 64L;
+    }
+
+    /** Accumulates rows in growable columns; options must arrive in question order. */
+    static final class Builder {
+      private int size;
+      private long[] ids;
+      private long[] topics;
+      private byte[] difficulty;
+      private int[] text;
+      private int[] explanation;
+      private int[] optionCounts;
+      private int options;
+      private long[] optionIds;
+      private int[] optionText;
+      private final BitSet correct;
+      private final StringPool.Builder strings;
+      private final Map<Long, int[]> baseTopicRows;
+      private int optionRow;
+
+      Builder() {
+        this.ids = new long[1024];
+        this.topics = new long[1024];
+        this.difficulty = new byte[1024];
+        this.text = new int[1024];
+        this.explanation = new int[1024];
+        this.optionCounts = new int[1024];
+        this.optionIds = new long[4096];
+        this.optionText = new int[4096];
+        this.correct = new BitSet();
+        this.strings = new StringPool.Builder();
+        this.baseTopicRows = Map.of();
+      }
+
+      /** Builder continuing from an existing snapshot; the snapshot itself is not modified. */
+      Builder(Snapshot base) {
+        int capacity = base.size + 64;
+        this.size = base.size;
+        this.ids = Arrays.copyOf(base.ids, capacity);
+        this.topics = new long[capacity];
+        this.difficulty = Arrays.copyOf(base.difficulty, capacity);
+        this.text = Arrays.copyOf(base.text, capacity);
+        this.explanation = Arrays.copyOf(base.explanation, capacity);
+        this.optionCounts = new int[capacity];
+        for (int row = 0; row < base.size; row++) {
+          optionCounts[row] = base.optionStart[row + 1] - base.optionStart[row];
+        }
+        this.options = base.optionStart[base.size];
+        this.optionIds = Arrays.copyOf(base.optionIds, options + 256);
+        this.optionText = Arrays.copyOf(base.optionText, options + 256);
+        this.correct = (BitSet) base.correct.clone();
+        this.strings = new StringPool.Builder(base.strings);
+        this.baseTopicRows = base.topicRows;
+        this.optionRow = base.size;
+        Arrays.fill(topics, 0, size, Long.MIN_VALUE);
+      }
+
+      void addQuestion(
+          long id, long topicId, String questionText, Difficulty level, String explanationText) {
+        if (size == ids.length) {
+          int capacity = ids.length * 2;
+          ids = Arrays.copyOf(ids, capacity);
+          topics = Arrays.copyOf(topics, capacity);
+          difficulty = Arrays.copyOf(difficulty, capacity);
+          text = Arrays.copyOf(text, capacity);
+          explanation = Arrays.copyOf(explanation, capacity);
+          optionCounts = Arrays.copyOf(optionCounts, capacity);
+        }
+        ids[size] = id;
+        topics[size] = topicId;
+        difficulty[size] = (byte) level.ordinal();
+        text[size] = strings.add(questionText);
+        explanation[size] = strings.add(explanationText);
+        size++;
+      }
+
+      void addOption(long questionId, long id, String optionTextValue, boolean isCorrect) {
+        // Options are ordered by question id, like the rows: advance to the option's question
+        while (optionRow < size && ids[optionRow] < questionId) {
+          optionRow++;
+        }
+        if (optionRow == size || ids[optionRow] != questionId) {
+          return;
+        }
+        if (options == optionIds.length) {
+          optionIds = Arrays.copyOf(optionIds, options * 2);
+          optionText = Arrays.copyOf(optionText, options * 2);
+        }
+        optionIds[options] = id;
+        optionText[options] = strings.add(optionTextValue);
+        correct.set(options, isCorrect);
+        optionCounts[optionRow]++;
+        options++;
+      }
+
+      Snapshot build() {
+        Map<Long, int[]> topicRows = new HashMap<>(baseTopicRows);
+        Map<Long, int[]> added = new HashMap<>();
+        Map<Long, Integer> counts = new HashMap<>();
+        for (int row = 0; row < size; row++) {
+          if (topics[row] != Long.MIN_VALUE) {
+            counts.merge(topics[row], 1, Integer::sum);
+          }
+        }
+        for (Map.Entry<Long, Integer> count : counts.entrySet()) {
+          int[] base = topicRows.getOrDefault(count.getKey(), new int[0]);
+          added.put(count.getKey(), Arrays.copyOf(base, base.length + count.getValue()));
+          count.setValue(base.length);
+        }
+        for (int row = 0; row < size; row++) {
+          if (topics[row] != Long.MIN_VALUE) {
+            int position = counts.merge(topics[row], 1, Integer::sum) - 1;
+            added.get(topics[row])[position] = row;
+          }
+        }
+        topicRows.putAll(added);
+        int[] optionStart = new int[size + 1];
+        for (int row = 0; row < size; row++) {
+          optionStart[row + 1] = optionStart[row] + optionCounts[row];
+        }
+        return new Snapshot(
+            size,
+            Arrays.copyOf(ids, size),
+            Arrays.copyOf(difficulty, size),
+            Arrays.copyOf(text, size),
+            Arrays.copyOf(explanation, size),
+            optionStart,
+            Arrays.copyOf(optionIds, options),
+            Arrays.copyOf(optionText, options),
+            correct,
+            strings.build(),
+            Map.copyOf(topicRows));
+      }
+    }
+  }
+
+  /** All texts of a snapshot as UTF-8 in one byte array; string {@code i} is a byte range. */
+  static final class StringPool {
+    private final byte[] bytes;
+    private final int[] offsets;
+    private final int count;
+
+    private StringPool(byte[] bytes, int[] offsets, int count) {
+      this.bytes = bytes;
+      this.offsets = offsets;
+      this.count = count;
+    }
+
+    String get(int index) {
+      if (index < 0) {
+        return null;
+      }
+      return new String(
+          bytes, offsets[index], offsets[index + 1] - offsets[index], StandardCharsets.UTF_8);
+    }
+
+    long estimateBytes() {
+      return bytes.length + offsets.length * 4L;
+    }
+
+    static final class Builder {
+      private byte[] bytes;
+      private int[] offsets;
+      private int count;
+
+      Builder() {
+        this.bytes = new byte[64 * 1024];
+        this.offsets = new int[4096];
+      }
+
+      Builder(StringPool base) {
+        this.count = base.count;
+        this.bytes = Arrays.copyOf(base.bytes, base.offsets[base.count] + 16 * 1024);
+        this.offsets = Arrays.copyOf(base.offsets, base.count + 1024);
+      }
+
+      /** Add a string and return its index (-1 for null). */
+      int add(String value) {
+        if (value == null) {
+          return -1;
+        }
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        int start = offsets[count];
+        if (start + utf8.length > bytes.length) {
+          bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, start + utf8.length));
+        }
+        if (count + 2 > offsets.length) {
+          offsets = Arrays.copyOf(offsets, offsets.length * 2);
+        }
+        System.arraycopy(utf8, 0, bytes, start, utf8.length);
+        offsets[count + 1] = start + utf8.length;
+        return count++;
+      }
+
+      StringPool build() {
+        return new StringPool(
+            Arrays.copyOf(bytes, offsets[count]), Arrays.copyOf(offsets, count + 1), count);
+      }
+    }
+  }
+}
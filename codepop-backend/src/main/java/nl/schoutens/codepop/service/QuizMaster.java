@@ -1,7 +1,9 @@
 package nl.schoutens.codepop.service;
 
 import java.util.List;
+import java.util.function.Consumer;
 import nl.schoutens.codepop.entity.Question;
+import nl.schoutens.codepop.entity.Question.Difficulty;
 
 /**
  * Interface for quiz question generation. Implementations should generate unique questions that
@@ -19,4 +21,34 @@ public interface QuizMaster {
    * @return List of newly generated Question entities (not yet persisted)
    */
   List<Question> generateQuestions(String topic, int count, List<String> existingQuestionTexts);
+
+  /**
+   * Generate new quiz questions, handing each one to {@code onQuestion} as soon as it is available.
+   * Streaming implementations call it while the model is still generating; the default calls it
+   * once the blocking {@link #generateQuestions(String, int, List)} returns.
+   *
+   * @return All generated questions, in the order they were passed to {@code onQuestion}
+   */
+  default List<Question> generateQuestions(
+      String topic, int count, List<String> existingQuestionTexts, Consumer<Question> onQuestion) {
+    List<Question> questions = generateQuestions(topic, count, existingQuestionTexts);
+    questions.forEach(onQuestion);
+    return questions;
+  }
+
+  /**
+   * Generate new quiz questions of a single difficulty, handing each one to {@code onQuestion} as
+   * soon as it is available. Used to split one generation into smaller, independent prompts.
+   * Implementations that cannot target a difficulty may ignore it; the default does.
+   *
+   * @param difficulty The difficulty of every generated question, or null for the usual mix
+   */
+  default List<Question> generateQuestions(
+      String topic,
+      int count,
+      List<String> existingQuestionTexts,
+      Difficulty difficulty,
+      Consumer<Question> onQuestion) {
+    return generateQuestions(topic, count, existingQuestionTexts, onQuestion);
+  }
 }
@@ -2,17 +2,31 @@ package nl.schoutens.codepop.service;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import lombok.extern.slf4j.Slf4j;
+import nl.schoutens.codepop.dto.ExplanationDTO;
 import nl.schoutens.codepop.dto.OptionDTO;
 import nl.schoutens.codepop.dto.QuestionDTO;
+import nl.schoutens.codepop.dto.QuizBatchRequestDTO.QuizSpec;
 import nl.schoutens.codepop.dto.QuizDTO;
 import nl.schoutens.codepop.entity.Question;
-import nl.schoutens.codepop.entity.Topic;
+import nl.schoutens.codepop.repository.OptionRow;
 import nl.schoutens.codepop.repository.QuestionRepository;
+import nl.schoutens.codepop.repository.QuestionRow;
 import nl.schoutens.codepop.repository.TopicRepository;
+import org.roaringbitmap.longlong.Roaring64Bitmap;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -21,20 +35,55 @@ import org.springframework.transaction.annotation.Transactional;
 @Slf4j
 public class QuizService {
 
+  private static final int QUIZ_SIZE = 5;
+
+  /** SQLite limits bound parameters; larger exclusion sets use the in-memory pool path. */
+  private static final int MAX_SQL_EXCLUSIONS = 10_000;
+
+  /** Question ids per option query when loading a pool. */
+  private static final int OPTION_BATCH_SIZE = 5_000;
+
   private final TopicRepository topicRepository;
   private final QuestionRepository questionRepository;
   private final QuizMaster quizMaster;
   private final TransactionalOperations txOps;
+  private final TopicIndex topicIndex;
+  private final QuestionPoolCache poolCache;
+  private final QuizSessionStore sessionStore;
+  private final GenerationCoalescer generationCoalescer;
+  private final PoolReplenisher poolReplenisher;
+  private final SimilarQuestionSelector similarQuestionSelector;
+  private final NearDuplicateIndex nearDuplicateIndex;
+  private final QuestionSnapshotStore snapshotStore;
+  private final int samplingThreshold;
 
   public QuizService(
       TopicRepository topicRepository,
       QuestionRepository questionRepository,
       QuizMaster quizMaster,
-      TransactionalOperations txOps) {
+      TransactionalOperations txOps,
+      TopicIndex topicIndex,
+      QuestionPoolCache poolCache,
+      QuizSessionStore sessionStore,
+      GenerationCoalescer generationCoalescer,
+      PoolReplenisher poolReplenisher,
+      SimilarQuestionSelector similarQuestionSelector,
+      NearDuplicateIndex nearDuplicateIndex,
+      QuestionSnapshotStore snapshotStore,
+      @Value("${codepop.quiz.sampling-threshold:2000}") int samplingThreshold) {
     this.topicRepository = topicRepository;
     this.questionRepository = questionRepository;
     this.quizMaster = quizMaster;
     this.txOps = txOps;
+    this.topicIndex = topicIndex;
+    this.poolCache = poolCache;
+    this.sessionStore = sessionStore;
+    this.generationCoalescer = generationCoalescer;
+    this.poolReplenisher = poolReplenisher;
+    this.similarQuestionSelector = similarQuestionSelector;
+    this.nearDuplicateIndex = nearDuplicateIndex;
+    this.snapshotStore = snapshotStore;
+    this.samplingThreshold = samplingThreshold;
   }
 
   /**
@@ -44,209 +93,660 @@ public class QuizService {
   @Component
   public static class TransactionalOperations {
     private final QuestionRepository questionRepository;
-    private final TopicRepository topicRepository;
+    private final QuestionBatchWriter batchWriter;
+    private final SqliteWriter sqliteWriter;
 
     public TransactionalOperations(
-        QuestionRepository questionRepository, TopicRepository topicRepository) {
+        QuestionRepository questionRepository,
+        QuestionBatchWriter batchWriter,
+        SqliteWriter sqliteWriter) {
       this.questionRepository = questionRepository;
-      this.topicRepository = topicRepository;
+      this.batchWriter = batchWriter;
+      this.sqliteWriter = sqliteWriter;
     }
 
+    /**
+     * Load a pool for the read-only quiz path as DTOs: one flat query for the questions and batched
+     * IN queries for their options. No entities are hydrated into the persistence context and,
+     * unlike a JOIN FETCH, every question is read once rather than once per option. Explanations
+     * are left out; see {@link #fetchExplanations}.
+     */
     @Transactional(readOnly = true)
-    public List<Question> fetchQuestions(Long topicId, String subtopic) {
-      if (subtopic != null && !subtopic.isEmpty()) {
-        return questionRepository.findByTopicIdAndSubtopicContainingIgnoreCase(topicId, subtopic);
+    public List<QuestionDTO> fetchPool(Long topicId, String subtopic) {
+      List<QuestionRow> rows = fetchRows(topicId, subtopic);
+
+      Map<Long, List<OptionDTO>> options = new HashMap<>(rows.size() * 2);
+      for (int from = 0; from < rows.size(); from += OPTION_BATCH_SIZE) {
+        List<Long> ids =
+            rows.subList(from, Math.min(from + OPTION_BATCH_SIZE, rows.size())).stream()
+                .map(QuestionRow::id)
+                .collect(Collectors.toList());
+        for (OptionRow option : questionRepository.findOptionRowsByQuestionIdIn(ids)) {
+          options
+              .computeIfAbsent(option.questionId(), id -> new ArrayList<>(4))
+              .add(new OptionDTO(option.id(), option.text(), option.isCorrect()));
+        }
+      }
+
+      List<QuestionDTO> pool = new ArrayList<>(rows.size());
+      for (QuestionRow row : rows) {
+        pool.add(
+            new QuestionDTO(
+                row.id(),
+                row.text(),
+                row.difficulty().name(),
+                null,
+                options.getOrDefault(row.id(), List.of())));
       }
-      return questionRepository.findByTopicId(topicId);
+      return pool;
     }
 
+    /** Texts of a pool's questions, without their options or explanations. */
     @Transactional(readOnly = true)
-    public Topic findTopicByName(String name) {
-      return topicRepository.findByNameIgnoreCase(name).orElse(null);
+    public List<String> fetchQuestionTexts(Long topicId, String subtopic) {
+      return fetchRows(topicId, subtopic).stream()
+          .map(QuestionRow::text)
+          .collect(Collectors.toList());
     }
 
+    private List<QuestionRow> fetchRows(Long topicId, String subtopic) {
+      return subtopic != null && !subtopic.isEmpty()
+          ? questionRepository.findRowsByTopicIdAndSubtopicMatching(topicId, subtopic)
+          : questionRepository.findRowsByTopicId(topicId);
+    }
+
+    /**
+     * Count the questions that are not excluded and, if there are at least minAvailable, pick limit
+     * of them at random inside SQLite. Options are loaded only for the chosen questions.
+     */
     @Transactional(readOnly = true)
-    public List<Topic> findAllTopics() {
-      return topicRepository.findAll();
+    public Sample sampleQuestions(
+        Long topicId, String subtopic, Collection<Long> excludedIds, int limit, long minAvailable) {
+      // NOT IN () is not valid SQL, so use an id that never exists
+      Collection<Long> excluded = excludedIds.isEmpty() ? List.of(-1L) : excludedIds;
+      boolean bySubtopic = subtopic != null && !subtopic.isEmpty();
+
+      long available =
+          bySubtopic
+              ? questionRepository.countAvailableByTopicIdAndSubtopic(topicId, subtopic, excluded)
+              : questionRepository.countAvailableByTopicId(topicId, excluded);
+      if (available < minAvailable) {
+        return new Sample(available, List.of());
+      }
+
+      List<Number> ids =
+          bySubtopic
+              ? questionRepository.sampleIdsByTopicIdAndSubtopic(topicId, subtopic, excluded, limit)
+              : questionRepository.sampleIdsByTopicId(topicId, excluded, limit);
+      List<Long> chosen = ids.stream().map(Number::longValue).collect(Collectors.toList());
+      return new Sample(available, questionRepository.findWithOptionsByIdIn(chosen));
     }
 
-    @Transactional
+    /** Explanations of the given questions; unknown ids are left out. */
+    @Transactional(readOnly = true)
+    public List<ExplanationDTO> fetchExplanations(Collection<Long> ids) {
+      return ids.isEmpty() ? List.of() : questionRepository.findExplanationsByIdIn(ids);
+    }
+
+    /** Result of {@link #sampleQuestions}: available count and the (possibly empty) sample. */
+    public record Sample(long available, List<Question> questions) {}
+
+    /**
+     * Insert new questions and their options with multi-row statements (see QuestionBatchWriter),
+     * on the SQLite writer thread. Returns once they are committed.
+     */
     public void saveQuestions(List<Question> questions) {
-      questionRepository.saveAll(questions);
+      sqliteWriter.write(
+          status -> {
+            batchWriter.insert(questions);
+            return null;
+          });
     }
   }
 
   public QuizDTO getQuiz(String userInput, List<Long> excludeQuestionIds) {
+    return getQuiz(userInput, excludeQuestionIds, null);
+  }
+
+  public QuizDTO getQuiz(String userInput, List<Long> excludeQuestionIds, String sessionId) {
+    return getQuiz(userInput, excludeQuestionIds, sessionId, true);
+  }
+
+  /**
+   * Build a quiz of up to 5 questions the caller has not seen yet.
+   *
+   * @param excludeQuestionIds Question ids the client already saw (may be null)
+   * @param sessionId Optional server-side session (see {@link QuizSessionStore}); questions it has
+   *     already been served are excluded and the returned questions are recorded in it
+   * @param withExplanations False for a slim quiz: explanations are left out (and not read) and the
+   *     client fetches them with {@link #getExplanations} once they are needed
+   */
+  public QuizDTO getQuiz(
+      String userInput,
+      List<Long> excludeQuestionIds,
+      String sessionId,
+      boolean withExplanations) {
     log.info(
         "[QuizService] getQuiz called with topic: "
             + userInput
             + ", excludeQuestionIds: "
-            + excludeQuestionIds);
-
-    // Parse user input and find topic (short read transaction)
-    ParsedTopicResult parsed = parseAndFindTopic(userInput);
-    if (parsed.topic == null) {
+            + excludeQuestionIds
+            + ", sessionId: "
+            + sessionId
+            + ", withExplanations: "
+            + withExplanations);
+
+    // Parse user input and find topic (in-memory index, no database access)
+    TopicIndex.Resolution parsed = topicIndex.resolve(userInput);
+    if (parsed.topic() == null) {
       throw new IllegalArgumentException("Topic not found: " + userInput);
     }
 
-    // 1. Fetch existing questions (short read transaction)
-    List<Question> allQuestions = txOps.fetchQuestions(parsed.topic.getId(), parsed.subtopic);
+    // O(1) membership test over the exclusion list and the session's seen questions
+    Roaring64Bitmap excluded = excludedQuestions(parsed, excludeQuestionIds, sessionId);
+
+    // 1. Full quizzes are served from the in-memory snapshot when it is enabled
+    List<QuestionDTO> fromSnapshot =
+        selectFromSnapshot(parsed, excluded, QUIZ_SIZE, withExplanations);
+    if (fromSnapshot != null) {
+      return buildQuiz(userInput, parsed, sessionId, fromSnapshot);
+    }
+
+    // 1a. Large pools that are not cached are sampled inside SQLite instead of loaded in full
+    List<QuestionDTO> sampled = sampleLargePool(parsed, excluded, QUIZ_SIZE);
+    if (sampled != null) {
+      return buildQuiz(
+          userInput, parsed, sessionId, withExplanations ? sampled : withoutExplanations(sampled));
+    }
+
+    // 1b. Fetch existing questions (question pool cache, short read transaction on a miss)
+    List<QuestionDTO> allQuestions = fetchPool(parsed);
     log.info("[QuizService] Found " + allQuestions.size() + " total questions");
 
     // 2. Filter out excluded questions (user already saw these)
-    List<Question> availableQuestions =
-        allQuestions.stream()
-            .filter(q -> excludeQuestionIds == null || !excludeQuestionIds.contains(q.getId()))
-            .collect(Collectors.toList());
+    List<QuestionDTO> availableQuestions =
+        allQuestions.stream().filter(q -> !excluded.contains(q.id())).collect(Collectors.toList());
     log.info(
         "[QuizService] After filtering: " + availableQuestions.size() + " available questions");
 
     // 3. Check if we need more questions
-    if (availableQuestions.size() < 5) {
-      // Extract ALL question texts (including excluded ones) so LLM doesn't duplicate
-      List<String> existingQuestionTexts =
-          allQuestions.stream().map(Question::getQuestionText).collect(Collectors.toList());
-
-      log.info(
-          "[QuizService] Passing "
-              + existingQuestionTexts.size()
-              + " existing question texts to LLM to avoid duplicates");
+    if (availableQuestions.size() < QUIZ_SIZE) {
+      // Pass the existing texts (including excluded ones) most similar to the request, so the LLM
+      // doesn't duplicate them while the prompt stays within its token budget
+      List<String> existingQuestionTexts = existingQuestionTexts(userInput, allQuestions);
 
-      int neededCount = 5 - availableQuestions.size();
+      int neededCount = QUIZ_SIZE - availableQuestions.size();
 
-      // Call LLM to generate new questions (NO TRANSACTION - can take as long as needed)
+      // Call LLM to generate new questions (NO TRANSACTION - can take as long as needed).
+      // Concurrent requests for the same pool share a single generation.
       List<Question> newQuestions =
-          quizMaster.generateQuestions(userInput, neededCount, existingQuestionTexts);
+          generationCoalescer.generate(
+              parsed.topic().getId(),
+              parsed.subtopic(),
+              () -> generateAndSave(userInput, parsed, neededCount, existingQuestionTexts));
 
-      // Save new questions (short write transaction)
+      // Re-fetch all questions (the save invalidated the cached pool)
       if (!newQuestions.isEmpty()) {
-        for (Question newQ : newQuestions) {
-          newQ.setTopic(parsed.topic);
-          if (parsed.subtopic != null) {
-            newQ.setSubtopic(parsed.subtopic);
-          }
-        }
-        txOps.saveQuestions(newQuestions);
-
-        // Re-fetch all questions (short read transaction)
-        allQuestions = txOps.fetchQuestions(parsed.topic.getId(), parsed.subtopic);
+        allQuestions = fetchPool(parsed);
         availableQuestions =
             allQuestions.stream()
-                .filter(q -> excludeQuestionIds == null || !excludeQuestionIds.contains(q.getId()))
+                .filter(q -> !excluded.contains(q.id()))
                 .collect(Collectors.toList());
       }
     }
 
+    // Top the pool up in the background once it runs low, so later users do not wait for the LLM
+    poolReplenisher.recordDemand(parsed.topic(), parsed.subtopic(), allQuestions.size());
+
     // 4. Randomize and select up to 5 questions
-    List<Question> selectedQuestions;
-    if (availableQuestions.size() > 5) {
+    List<QuestionDTO> questionDTOs;
+    if (availableQuestions.size() > QUIZ_SIZE) {
       Collections.shuffle(availableQuestions);
-      selectedQuestions = availableQuestions.subList(0, 5);
+      questionDTOs = availableQuestions.subList(0, QUIZ_SIZE);
     } else {
-      selectedQuestions = availableQuestions;
+      questionDTOs = availableQuestions;
     }
 
-    // 5. Convert to DTOs
-    List<QuestionDTO> questionDTOs =
-        selectedQuestions.stream().map(this::convertToQuestionDTO).collect(Collectors.toList());
-
-    return new QuizDTO(userInput, questionDTOs.size(), questionDTOs);
+    // 5. Pools hold no explanations; read them for the chosen questions only
+    questionDTOs =
+        withExplanations ? withExplanations(questionDTOs) : withoutExplanations(questionDTOs);
+    return buildQuiz(userInput, parsed, sessionId, questionDTOs);
   }
 
   /**
-   * Parse user input and find the matching topic in one operation. Avoids duplicate database
-   * queries by combining parsing and lookup.
+   * Build many quizzes in one go, e.g. one per student at the start of a lesson. Every distinct
+   * topic input is resolved once and every pool (topic/subtopic) is read once. When quizzes of a
+   * pool lack unseen questions, one generation covers the largest shortfall among them, since new
+   * questions are unseen by all of them. Explanations of all chosen questions are read with one
+   * query.
    *
-   * <p>Strategy: 1. Try to match each word in input against topics (exact match) 2. If no match,
-   * try fuzzy matching on the full input 3. Return the found topic along with extracted subtopic
+   * <p>Pools are handled one after another on the calling thread. Generation, the only slow step,
+   * is bounded by the LLM permits anyway, and waiting for it from a shared executor could starve
+   * the tasks that generation itself needs.
    *
-   * <p>Examples: "Java records" -> Topic(Java), subtopic="records" "React hooks" -> Topic(React),
-   * subtopic="hooks" "Javascript React" -> Topic(React), subtopic="Javascript" "Java" ->
-   * Topic(Java), subtopic=null
+   * @return One quiz per spec, in the same order
+   * @throws IllegalArgumentException when a topic is not found; no quiz is built then
    */
-  private ParsedTopicResult parseAndFindTopic(String input) {
-    String normalized = input.trim();
-    String[] words = normalized.split("\\s+");
-
-    // Strategy 1: Check if any word is an exact topic match
-    for (int i = 0; i < words.length; i++) {
-      Topic topic = txOps.findTopicByName(words[i]);
-      if (topic != null) {
-        // Found main topic, extract subtopic from remaining words
-        String subtopic = extractSubtopic(words, i);
-        return new ParsedTopicResult(topic, subtopic);
+  public List<QuizDTO> getQuizzes(List<QuizSpec> specs, boolean withExplanations) {
+    log.info("[QuizService] getQuizzes called for " + specs.size() + " quizzes");
+
+    // 1. Resolve each distinct topic input once and group the quizzes per pool
+    Map<String, TopicIndex.Resolution> resolved = new HashMap<>();
+    Map<QuestionPoolCache.Key, List<Integer>> quizzesPerPool = new LinkedHashMap<>();
+    for (int i = 0; i < specs.size(); i++) {
+      String topic = specs.get(i).topic();
+      TopicIndex.Resolution parsed = resolved.computeIfAbsent(topic, topicIndex::resolve);
+      if (parsed.topic() == null) {
+        throw new IllegalArgumentException("Topic not found: " + topic);
       }
+      quizzesPerPool
+          .computeIfAbsent(
+              QuestionPoolCache.Key.of(parsed.topic().getId(), parsed.subtopic()),
+              key -> new ArrayList<>())
+          .add(i);
     }
 
-    // Strategy 2: Try fuzzy matching on full input
-    Topic topic = fuzzyFindTopic(normalized);
-    if (topic != null) {
-      // Fuzzy match found, no subtopic extraction
-      return new ParsedTopicResult(topic, null);
+    // 2. Per pool: read it, generate what is missing, pick each quiz's questions
+    List<List<QuestionDTO>> selections = new ArrayList<>(Collections.nCopies(specs.size(), null));
+    for (List<Integer> quizIndexes : quizzesPerPool.values()) {
+      TopicIndex.Resolution parsed = resolved.get(specs.get(quizIndexes.get(0)).topic());
+      selectForPool(specs, quizIndexes, parsed, withExplanations).forEach(selections::set);
     }
 
-    // Strategy 3: Try fuzzy matching on first word
-    if (words.length > 1) {
-      topic = fuzzyFindTopic(words[0]);
-      if (topic != null) {
-        // Found topic in first word, rest is subtopic
-        String subtopic = String.join(" ", Arrays.copyOfRange(words, 1, words.length));
-        return new ParsedTopicResult(topic, subtopic);
+    // 3. One explanation query for every chosen question
+    Map<Long, String> explanations =
+        withExplanations
+            ? readExplanations(
+                selections.stream().flatMap(List::stream).collect(Collectors.toList()))
+            : Map.of();
+
+    List<QuizDTO> quizzes = new ArrayList<>(specs.size());
+    for (int i = 0; i < specs.size(); i++) {
+      List<QuestionDTO> questions =
+          withExplanations
+              ? withExplanations(selections.get(i), explanations)
+              : withoutExplanations(selections.get(i));
+      quizzes.add(new QuizDTO(specs.get(i).topic(), questions.size(), questions));
+    }
+    return quizzes;
+  }
+
+  /**
+   * Questions of the batch quizzes that share one pool, keyed by their index in the batch. Like
+   * {@link #getQuiz}, each quiz is served from the snapshot or an SQLite sample when possible; only
+   * the other quizzes read the pool and share one generation.
+   */
+  private Map<Integer, List<QuestionDTO>> selectForPool(
+      List<QuizSpec> specs,
+      List<Integer> quizIndexes,
+      TopicIndex.Resolution parsed,
+      boolean withExplanations) {
+    Map<Integer, List<QuestionDTO>> selections = new HashMap<>();
+    // Quizzes left for the pool, in batch order
+    Map<Integer, Roaring64Bitmap> excluded = new LinkedHashMap<>();
+    for (int i : quizIndexes) {
+      Roaring64Bitmap seen = excludedQuestions(parsed, specs.get(i).excludeQuestionIds(), null);
+      int count = questionCount(specs.get(i));
+      List<QuestionDTO> served = selectFromSnapshot(parsed, seen, count, withExplanations);
+      if (served == null) {
+        served = sampleLargePool(parsed, seen, count);
       }
+      if (served != null) {
+        selections.put(i, served);
+      } else {
+        excluded.put(i, seen);
+      }
+    }
+    if (excluded.isEmpty()) {
+      return selections;
     }
 
-    // No topic found
-    return new ParsedTopicResult(null, null);
+    List<QuestionDTO> allQuestions = fetchPool(parsed);
+    int shortfall = 0;
+    for (int i : excluded.keySet()) {
+      Roaring64Bitmap seen = excluded.get(i);
+      long available = allQuestions.stream().filter(q -> !seen.contains(q.id())).count();
+      shortfall = (int) Math.max(shortfall, questionCount(specs.get(i)) - available);
+    }
+
+    if (shortfall > 0) {
+      String userInput = specs.get(excluded.keySet().iterator().next()).topic();
+      int neededCount = shortfall;
+      List<String> existingQuestionTexts = existingQuestionTexts(userInput, allQuestions);
+      List<Question> newQuestions =
+          generationCoalescer.generate(
+              parsed.topic().getId(),
+              parsed.subtopic(),
+              () -> generateAndSave(userInput, parsed, neededCount, existingQuestionTexts));
+      if (!newQuestions.isEmpty()) {
+        allQuestions = fetchPool(parsed);
+      }
+    }
+    poolReplenisher.recordDemand(parsed.topic(), parsed.subtopic(), allQuestions.size());
+
+    for (int i : excluded.keySet()) {
+      Roaring64Bitmap seen = excluded.get(i);
+      List<QuestionDTO> available =
+          allQuestions.stream().filter(q -> !seen.contains(q.id())).collect(Collectors.toList());
+      Collections.shuffle(available);
+      selections.put(
+          i,
+          new ArrayList<>(
+              available.subList(0, Math.min(questionCount(specs.get(i)), available.size()))));
+    }
+    return selections;
   }
 
-  /** Extract subtopic from words array, excluding the word at topicIndex. */
-  private String extractSubtopic(String[] words, int topicIndex) {
-    if (words.length == 1) {
-      return null;
+  private static int questionCount(QuizSpec spec) {
+    return spec.count() != null ? spec.count() : QUIZ_SIZE;
+  }
+
+  /**
+   * Streaming variant of {@link #getQuiz(String, List, String)}: questions are handed to {@code
+   * onQuestion} as soon as they are available. Unseen questions from the pool are delivered
+   * immediately; missing ones are generated, saved one by one and delivered as the LLM produces
+   * them.
+   *
+   * @return The complete quiz, once every question has been delivered
+   */
+  public QuizDTO streamQuiz(
+      String userInput,
+      List<Long> excludeQuestionIds,
+      String sessionId,
+      Consumer<QuestionDTO> onQuestion) {
+    log.info(
+        "[QuizService] streamQuiz called with topic: " + userInput + ", sessionId: " + sessionId);
+
+    TopicIndex.Resolution parsed = topicIndex.resolve(userInput);
+    if (parsed.topic() == null) {
+      throw new IllegalArgumentException("Topic not found: " + userInput);
+    }
+    Roaring64Bitmap excluded = excludedQuestions(parsed, excludeQuestionIds, sessionId);
+
+    List<QuestionDTO> fromSnapshot = selectFromSnapshot(parsed, excluded, QUIZ_SIZE, true);
+    if (fromSnapshot != null) {
+      fromSnapshot.forEach(onQuestion);
+      return buildQuiz(userInput, parsed, sessionId, fromSnapshot);
+    }
+
+    List<QuestionDTO> sampled = sampleLargePool(parsed, excluded, QUIZ_SIZE);
+    if (sampled != null) {
+      sampled.forEach(onQuestion);
+      return buildQuiz(userInput, parsed, sessionId, sampled);
     }
 
-    List<String> remaining = new ArrayList<>();
-    for (int j = 0; j < words.length; j++) {
-      if (j != topicIndex) {
-        remaining.add(words[j]);
+    // 1. Deliver what the pool already has
+    List<QuestionDTO> allQuestions = fetchPool(parsed);
+    List<QuestionDTO> availableQuestions =
+        allQuestions.stream().filter(q -> !excluded.contains(q.id())).collect(Collectors.toList());
+    Collections.shuffle(availableQuestions);
+    List<QuestionDTO> served =
+        new ArrayList<>(
+            withExplanations(
+                availableQuestions.subList(0, Math.min(QUIZ_SIZE, availableQuestions.size()))));
+    served.forEach(onQuestion);
+
+    // 2. Generate the rest, delivering each question once it is saved
+    if (served.size() < QUIZ_SIZE) {
+      int neededCount = QUIZ_SIZE - served.size();
+      List<String> existingQuestionTexts = existingQuestionTexts(userInput, allQuestions);
+      AtomicBoolean deliveredLive = new AtomicBoolean();
+
+      List<Question> newQuestions =
+          generationCoalescer.generate(
+              parsed.topic().getId(),
+              parsed.subtopic(),
+              () -> {
+                deliveredLive.set(true);
+                List<Question> saved = new ArrayList<>();
+                quizMaster.generateQuestions(
+                    userInput,
+                    neededCount,
+                    existingQuestionTexts,
+                    question -> {
+                      if (saveGenerated(parsed, List.of(question)).isEmpty()) {
+                        return;
+                      }
+                      saved.add(question);
+                      QuestionDTO dto = convertToQuestionDTO(question);
+                      served.add(dto);
+                      onQuestion.accept(dto);
+                    });
+                return saved;
+              });
+
+      // Joined another request's generation: deliver its questions now
+      if (!deliveredLive.get()) {
+        newQuestions.stream()
+            .limit(neededCount)
+            .map(QuizService::convertToQuestionDTO)
+            .forEach(
+                dto -> {
+                  served.add(dto);
+                  onQuestion.accept(dto);
+                });
       }
     }
 
-    return remaining.isEmpty() ? null : String.join(" ", remaining);
+    poolReplenisher.recordDemand(parsed.topic(), parsed.subtopic(), allQuestions.size());
+    return buildQuiz(userInput, parsed, sessionId, served);
+  }
+
+  /**
+   * Explanations of the given questions, in the order requested; unknown ids are left out. Clients
+   * of slim quizzes fetch them once the user has answered.
+   */
+  public List<ExplanationDTO> getExplanations(List<Long> questionIds) {
+    Set<Long> ids = new LinkedHashSet<>(questionIds);
+    Map<Long, ExplanationDTO> byId = new HashMap<>(ids.size() * 2);
+    for (ExplanationDTO explanation : txOps.fetchExplanations(ids)) {
+      byId.put(explanation.id(), explanation);
+    }
+    return ids.stream().map(byId::get).filter(Objects::nonNull).collect(Collectors.toList());
+  }
+
+  /** Fill in the explanations the pool rows leave out, with one query for the whole quiz. */
+  private List<QuestionDTO> withExplanations(List<QuestionDTO> questions) {
+    return withExplanations(questions, readExplanations(questions));
+  }
+
+  /** Explanations of the questions that have none, by question id (cached next to the pools). */
+  private Map<Long, String> readExplanations(List<QuestionDTO> questions) {
+    Set<Long> missing =
+        questions.stream()
+            .filter(q -> q.explanation() == null && q.id() != null)
+            .map(QuestionDTO::id)
+            .collect(Collectors.toCollection(LinkedHashSet::new));
+    if (missing.isEmpty()) {
+      return Map.of();
+    }
+    return poolCache.explanations(
+        missing,
+        ids -> {
+          Map<Long, String> explanations = new HashMap<>(ids.size() * 2);
+          for (ExplanationDTO explanation : txOps.fetchExplanations(ids)) {
+            explanations.put(explanation.id(), explanation.explanation());
+          }
+          return explanations;
+        });
+  }
+
+  private static List<QuestionDTO> withExplanations(
+      List<QuestionDTO> questions, Map<Long, String> explanations) {
+    if (explanations.isEmpty()) {
+      return questions;
+    }
+    return questions.stream()
+        .map(
+            q ->
+                q.explanation() == null && explanations.containsKey(q.id())
+                    ? new QuestionDTO(
+                        q.id(), q.text(), q.difficulty(), explanations.get(q.id()), q.options())
+                    : q)
+        .collect(Collectors.toList());
   }
 
-  /** Fuzzy match: check if input contains topic name or vice versa. */
-  private Topic fuzzyFindTopic(String input) {
-    List<Topic> allTopics = txOps.findAllTopics();
-    String inputLower = input.toLowerCase();
+  private static List<QuestionDTO> withoutExplanations(List<QuestionDTO> questions) {
+    return questions.stream()
+        .map(
+            q ->
+                q.explanation() == null
+                    ? q
+                    : new QuestionDTO(q.id(), q.text(), q.difficulty(), null, q.options()))
+        .collect(Collectors.toList());
+  }
 
-    for (Topic t : allTopics) {
-      String topicLower = t.getName().toLowerCase();
-      if (inputLower.contains(topicLower) || topicLower.contains(inputLower)) {
-        return t;
+  private List<String> existingQuestionTexts(String userInput, List<QuestionDTO> allQuestions) {
+    List<String> texts =
+        similarQuestionSelector.select(
+            userInput, allQuestions.stream().map(QuestionDTO::text).collect(Collectors.toList()));
+    log.info(
+        "[QuizService] Passing "
+            + texts.size()
+            + " of "
+            + allQuestions.size()
+            + " existing question texts to LLM to avoid duplicates");
+    return texts;
+  }
+
+  private List<Question> generateAndSave(
+      String userInput,
+      TopicIndex.Resolution parsed,
+      int neededCount,
+      List<String> existingQuestionTexts) {
+    List<Question> newQuestions =
+        quizMaster.generateQuestions(userInput, neededCount, existingQuestionTexts);
+
+    // Save new questions (short write transaction)
+    return saveGenerated(parsed, newQuestions);
+  }
+
+  /**
+   * Save the generated questions that are not near-duplicates of stored ones.
+   *
+   * @return The questions that were saved
+   */
+  private List<Question> saveGenerated(TopicIndex.Resolution parsed, List<Question> newQuestions) {
+    List<Question> unique = nearDuplicateIndex.filterNew(parsed.topic().getId(), newQuestions);
+    if (unique.isEmpty()) {
+      return unique;
+    }
+    for (Question newQ : unique) {
+      newQ.setTopic(parsed.topic());
+      if (parsed.subtopic() != null) {
+        newQ.setSubtopic(parsed.subtopic());
       }
     }
+    txOps.saveQuestions(unique);
+    nearDuplicateIndex.index(parsed.topic().getId(), unique);
+    return unique;
+  }
+
+  private QuizDTO buildQuiz(
+      String userInput,
+      TopicIndex.Resolution parsed,
+      String sessionId,
+      List<QuestionDTO> questionDTOs) {
+    if (sessionId != null) {
+      sessionStore.markServed(
+          sessionId,
+          parsed.topic().getId(),
+          parsed.subtopic(),
+          questionDTOs.stream().map(QuestionDTO::id).collect(Collectors.toList()));
+    }
 
-    return null;
+    return new QuizDTO(userInput, questionDTOs.size(), questionDTOs);
   }
 
-  /** Helper class to return both topic and subtopic from parsing. */
-  private static class ParsedTopicResult {
-    final Topic topic;
-    final String subtopic;
+  private Roaring64Bitmap excludedQuestions(
+      TopicIndex.Resolution parsed, List<Long> excludeQuestionIds, String sessionId) {
+    Roaring64Bitmap excluded =
+        sessionId != null
+            ? sessionStore.seenQuestions(sessionId, parsed.topic().getId(), parsed.subtopic())
+            : new Roaring64Bitmap();
+    if (excludeQuestionIds != null) {
+      for (Long id : excludeQuestionIds) {
+        if (id != null) {
+          excluded.addLong(id);
+        }
+      }
+    }
+    return excluded;
+  }
 
-    ParsedTopicResult(Topic topic, String subtopic) {
-      this.topic = topic;
-      this.subtopic = subtopic;
+  /**
+   * Pick a full quiz of {@code count} questions from {@link QuestionSnapshotStore}. Returns null
+   * when the snapshot is disabled or not loaded, or has fewer than {@code count} unseen questions
+   * (generation needed).
+   */
+  private List<QuestionDTO> selectFromSnapshot(
+      TopicIndex.Resolution parsed,
+      Roaring64Bitmap excluded,
+      int count,
+      boolean withExplanations) {
+    QuestionSnapshotStore.Selection selection =
+        snapshotStore.select(
+            parsed.topic().getId(), parsed.subtopic(), excluded::contains, count, withExplanations);
+    if (selection == null || selection.questions().size() < count) {
+      return null;
     }
+    poolReplenisher.recordDemand(parsed.topic(), parsed.subtopic(), selection.poolSize());
+    return selection.questions();
+  }
+
+  /**
+   * Serve a quiz straight from SQLite when the pool is not cached and holds more than {@code
+   * codepop.quiz.sampling-threshold} available questions: count, pick {@code count} random ids and
+   * load only those. Returns null when the regular pool path should be used instead.
+   */
+  private List<QuestionDTO> sampleLargePool(
+      TopicIndex.Resolution parsed, Roaring64Bitmap excluded, int count) {
+    if (samplingThreshold <= 0
+        || excluded.getLongCardinality() > MAX_SQL_EXCLUSIONS
+        || poolCache.getIfPresent(parsed.topic().getId(), parsed.subtopic()) != null) {
+      return null;
+    }
+
+    List<Long> excludedIds = Arrays.stream(excluded.toArray()).boxed().collect(Collectors.toList());
+    TransactionalOperations.Sample sample =
+        txOps.sampleQuestions(
+            parsed.topic().getId(),
+            parsed.subtopic(),
+            excludedIds,
+            count,
+            Math.max(samplingThreshold + 1, count));
+    if (sample.questions().isEmpty()) {
+      return null;
+    }
+
+    log.info(
+        "[QuizService] Sampled "
+            + sample.questions().size()
+            + " of "
+            + sample.available()
+            + " available questions in SQLite");
+    List<QuestionDTO> questionDTOs =
+        sample.questions().stream()
+            .map(QuizService::convertToQuestionDTO)
+            .collect(Collectors.toList());
+    Collections.shuffle(questionDTOs);
+    return questionDTOs;
   }
 
   /**
    * Fetch questions for a topic, optionally filtered by subtopic. - If subtopic provided: only
    * return questions matching that subtopic (may be empty, triggering LLM) - If no subtopic: return
    * all questions for main topic
+   *
+   * <p>Pools are served from {@link QuestionPoolCache} as immutable DTO snapshots.
    */
-  private QuestionDTO convertToQuestionDTO(Question question) {
+  private List<QuestionDTO> fetchPool(TopicIndex.Resolution parsed) {
+    Long topicId = parsed.topic().getId();
+    return poolCache.get(
+        topicId, parsed.subtopic(), () -> txOps.fetchPool(topicId, parsed.subtopic()));
+  }
+
+  static QuestionDTO convertToQuestionDTO(Question question) {
     List<OptionDTO> optionDTOs =
         question.getOptions().stream()
             .map(opt -> new OptionDTO(opt.getId(), opt.getOptionText(), opt.getIsCorrect()))
@@ -0,0 +1,148 @@
+package nl.schoutens.codepop.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+import org.roaringbitmap.longlong.Roaring64Bitmap;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Opt-in server-side quiz sessions. Each session remembers which questions it has been served, per
+ * topic/subtopic pool, in a compressed Roaring bitmap. This replaces the ever-growing {@code
+ * excludeQuestionIds} query parameter for clients that create a session.
+ *
+ * <p>Sessions expire after {@code codepop.sessions.ttl} without access. The total estimated size of
+ * all bitmaps is capped by {@code codepop.sessions.max-bytes}; beyond that the least valuable
+ * sessions are evicted early.
+ */
+@Component
+public class QuizSessionStore implements MeterBinder {
+
+  static final String CACHE_NAME = "quizSessions";
+
+  private final Cache<String, Session> sessions;
+  private final Duration ttl;
+
+  public QuizSessionStore(
+      @Value("${codepop.sessions.ttl:2h}") Duration ttl,
+      @Value("${codepop.sessions.max-bytes:33554432}") long maxBytes) {
+    this.ttl = ttl;
+    this.sessions =
+        Caffeine.newBuilder()
+            .expireAfterAccess(ttl)
+            .maximumWeight(maxBytes)
+            .weigher((String id, Session session) -> session.estimateBytes())
+            .recordStats()
+            .build();
+  }
+
+  /** Start a new, empty session and return its id. */
+  public String create() {
+    String id = UUID.randomUUID().toString();
+    sessions.put(id, new Session());
+    return id;
+  }
+
+  public void remove(String sessionId) {
+    sessions.invalidate(sessionId);
+  }
+
+  public Duration ttl() {
+    return ttl;
+  }
+
+  /**
+   * Return the questions this session has already seen in the given pool. The bitmap is a private
+   * copy, so concurrent requests of the same session cannot observe a half-updated bitmap.
+   *
+   * @throws IllegalArgumentException if the session does not exist or has expired
+   */
+  public Roaring64Bitmap seenQuestions(String sessionId, Long topicId, String subtopic) {
+    return require(sessionId).snapshot(poolKey(topicId, subtopic));
+  }
+
+  /** Record the given question ids as served to this session. */
+  public void markServed(String sessionId, Long topicId, String subtopic, Iterable<Long> ids) {
+    String key = poolKey(topicId, subtopic);
+    // compute() re-weighs the entry, so the memory cap accounts for the grown bitmap
+    sessions
+        .asMap()
+        .computeIfPresent(
+            sessionId,
+            (id, session) -> {
+              session.add(key, ids);
+              return session;
+            });
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    CaffeineCacheMetrics.monitor(registry, sessions, CACHE_NAME);
+  }
+
+  private Session require(String sessionId) {
+    Session session = sessions.getIfPresent(sessionId);
+    if (session == null) {
+      throw new IllegalArgumentException("Session not found: " + sessionId);
+    }
+    return session;
+  }
+
+  private static String poolKey(Long topicId, String subtopic) {
+    return topicId + ":" + QuestionPoolCache.normalize(subtopic);
+  }
+
+  /**
+   * Seen question ids of one session, one bitmap per topic/subtopic pool. Guarded by a {@link
+   * ReentrantLock} rather than {@code synchronized}, so a contended session parks a virtual thread
+   * instead of pinning its carrier.
+   */
+  private static final class Session {
+    private final Map<String, Roaring64Bitmap> seen = new HashMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
+
+    Roaring64Bitmap snapshot(String key) {
+      lock.lock();
+      try {
+        Roaring64Bitmap bitmap = seen.get(key);
+        return bitmap == null ? new Roaring64Bitmap() : bitmap.clone();
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    void add(String key, Iterable<Long> ids) {
+      lock.lock();
+      try {
+        Roaring64Bitmap bitmap = seen.computeIfAbsent(key, k -> new Roaring64Bitmap());
+        for (Long id : ids) {
+          bitmap.addLong(id);
+        }
+        bitmap.runOptimize();
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    int estimateBytes() {
+      lock.lock();
+      try {
+        long bytes = 128;
+        for (Map.Entry<String, Roaring64Bitmap> entry : seen.entrySet()) {
+          bytes += 64 + 2L * entry.getKey().length() + entry.getValue().getLongSizeInBytes();
+        }
+        return (int) Math.min(bytes, Integer.MAX_VALUE);
+      } finally {
+        lock.unlock();
+      }
+    }
+  }
+}
@@ -0,0 +1,173 @@
+package nl.schoutens.codepop.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Chooses which existing question texts go into the "avoid these" list of a generation prompt.
+ * Passing the whole bank makes prompt length (and LLM prefill time) grow with the bank and
+ * eventually overflows the model context, so only the questions most relevant to the request are
+ * passed, up to {@code codepop.llm.prompt.max-existing} questions and {@code
+ * codepop.llm.prompt.existing-token-budget} estimated tokens.
+ *
+ * <p>Relevance is the estimated fraction of the request's character 3-grams that occur in a
+ * question, computed from MinHash signatures. Signatures are cached per text, so repeated
+ * generations for the same pool only hash new questions. Near-identical questions add nothing to
+ * the prompt; a candidate whose estimated Jaccard similarity to an already chosen one is at least
+ * {@link #REDUNDANT_SIMILARITY} is skipped.
+ */
+@Component
+public class SimilarQuestionSelector {
+
+  static final int HASHES = 64;
+  static final double REDUNDANT_SIMILARITY = 0.8;
+  private static final int SHINGLE = 3;
+  private static final int[] SEEDS = seeds();
+
+  private final int maxExisting;
+  private final int tokenBudget;
+  private final Cache<String, Signature> signatures =
+      Caffeine.newBuilder().maximumSize(100_000).build();
+
+  public SimilarQuestionSelector(
+      @Value("${codepop.llm.prompt.max-existing:50}") int maxExisting,
+      @Value("${codepop.llm.prompt.existing-token-budget:1500}") int tokenBudget) {
+    this.maxExisting = maxExisting;
+    this.tokenBudget = tokenBudget;
+  }
+
+  /** MinHash signature of a text plus the number of distinct shingles it was computed from. */
+  record Signature(int[] minHashes, int shingles) {
+
+    double jaccard(Signature other) {
+      int equal = 0;
+      for (int i = 0; i < HASHES; i++) {
+        if (minHashes[i] == other.minHashes[i]) {
+          equal++;
+        }
+      }
+      return (double) equal / HASHES;
+    }
+
+    /** Estimated fraction of this signature's shingles that also occur in {@code other}. */
+    double containedIn(Signature other) {
+      if (shingles == 0) {
+        return 0;
+      }
+      double jaccard = jaccard(other);
+      double intersection = jaccard * (shingles + other.shingles) / (1 + jaccard);
+      return Math.min(1, intersection / shingles);
+    }
+  }
+
+  /**
+   * Select the existing question texts most similar to {@code query} (the user's topic input), most
+   * relevant first, within the configured count and token budget.
+   */
+  public List<String> select(String query, List<String> existingQuestionTexts) {
+    if (existingQuestionTexts.size() <= maxExisting
+        && estimateTokens(existingQuestionTexts) <= tokenBudget) {
+      return existingQuestionTexts;
+    }
+
+    Signature querySignature = signature(query);
+    List<Candidate> candidates = new ArrayList<>(existingQuestionTexts.size());
+    for (String text : existingQuestionTexts) {
+      Signature signature = signatures.get(text, SimilarQuestionSelector::signature);
+      candidates.add(new Candidate(text, signature, querySignature.containedIn(signature)));
+    }
+    // Stable sort: equally relevant questions keep their original (oldest first) order
+    candidates.sort(Comparator.comparingDouble(Candidate::relevance).reversed());
+
+    List<String> selected = new ArrayList<>();
+    List<Signature> chosen = new ArrayList<>();
+    int tokens = 0;
+    for (Candidate candidate : candidates) {
+      if (selected.size() >= maxExisting) {
+        break;
+      }
+      int candidateTokens = estimateTokens(candidate.text());
+      if (tokens + candidateTokens > tokenBudget) {
+        continue;
+      }
+      if (isRedundant(candidate.signature(), chosen)) {
+        continue;
+      }
+      selected.add(candidate.text());
+      chosen.add(candidate.signature());
+      tokens += candidateTokens;
+    }
+    return selected;
+  }
+
+  private record Candidate(String text, Signature signature, double relevance) {}
+
+  private static boolean isRedundant(Signature signature, List<Signature> chosen) {
+    for (Signature other : chosen) {
+      if (signature.jaccard(other) >= REDUNDANT_SIMILARITY) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /** Rough token count of a prompt line: about four characters per token, plus "- " and "\n". */
+  static int estimateTokens(String text) {
+    return text.length() / 4 + 2;
+  }
+
+  private static int estimateTokens(List<String> texts) {
+    int tokens = 0;
+    for (String text : texts) {
+      tokens += estimateTokens(text);
+    }
+    return tokens;
+  }
+
+  static Signature signature(String text) {
+    String normalized = QuestionPoolCache.normalize(text);
+    Set<Integer> shingles = new HashSet<>();
+    for (int i = 0; i + SHINGLE <= normalized.length(); i++) {
+      shingles.add(normalized.substring(i, i + SHINGLE).hashCode());
+    }
+    int[] minHashes = new int[HASHES];
+    Arrays.fill(minHashes, Integer.MAX_VALUE);
+    for (int shingle : shingles) {
+      for (int i = 0; i < HASHES; i++) {
+        int hash = mix(shingle ^ SEEDS[i]);
+        if (hash < minHashes[i]) {
+          minHashes[i] = hash;
+        }
+      }
+    }
+    return new Signature(minHashes, shingles.size());
+  }
+
+  /** Murmur3 finalizer: spreads the bits of similar shingle hashes over the whole int range. */
+  private static int mix(int h) {
+    h ^= h >>> 16;
+    h *= 0x85ebca6b;
+    h ^= h >>> 13;
+    h *= 0xc2b2ae35;
+    h ^= h >>> 16;
+    return h;
+  }
+
+  private static int[] seeds() {
+    int[] seeds = new int[HASHES];
+    SplittableRandom random = new SplittableRandom(0x5eed);
+    for (int i = 0; i < HASHES; i++) {
+      seeds[i] = random.nextInt();
+    }
+    return seeds;
+  }
+}
@@ -0,0 +1,219 @@
+package nl.schoutens.codepop.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Funnels all writes through one dedicated thread. SQLite allows a single writer at a time; writes
+ * from many request threads each waited for that lock on their own and failed with SQLITE_BUSY
+ * ("Unable to commit") when the wait ran out.
+ *
+ * <p>Callers hand a {@link TransactionCallback} to {@link #write} and block until it has committed.
+ * The writer thread group-commits: it takes every write queued at that moment (at most {@code
+ * codepop.sqlite.writer.max-batch}) and runs them in one transaction, so concurrent writers share a
+ * single commit. When that transaction fails, the writes are retried one transaction each, so only
+ * the failing write sees the error. Writes must therefore be safe to run again after a rollback.
+ *
+ * <p>A write issued from inside another write runs directly in the surrounding transaction. Callers
+ * wait at most {@code codepop.sqlite.writer.timeout}; writes still queued then are withdrawn, and
+ * writes queued after the writer thread stopped fail right away.
+ */
+@Component
+@Slf4j
+public class SqliteWriter implements MeterBinder {
+
+  private final TransactionTemplate transactionTemplate;
+  private final int maxBatch;
+  private final Duration timeout;
+  private final BlockingQueue<Write<?>> queue = new LinkedBlockingQueue<>();
+  private final Thread thread;
+  private volatile boolean stopped;
+
+  private final LongAdder writes = new LongAdder();
+  private final LongAdder commits = new LongAdder();
+  private final LongAdder retries = new LongAdder();
+
+  public SqliteWriter(
+      PlatformTransactionManager transactionManager,
+      @Value("${codepop.sqlite.writer.max-batch:64}") int maxBatch,
+      @Value("${codepop.sqlite.writer.timeout:60s}") Duration timeout) {
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.maxBatch = Math.max(1, maxBatch);
+    this.timeout = timeout;
+    this.thread = new Thread(this::run, "sqlite-writer");
+    this.thread.setDaemon(true);
+    this.thread.start();
+  }
+
+  /**
+   * Run {@code callback} in a write transaction on the writer thread and wait until it committed.
+   *
+   * @return The callback's result
+   * @throws IllegalStateException when the writer thread stopped, or the write did not commit
+   *     within the timeout
+   */
+  public <T> T write(TransactionCallback<T> callback) {
+    if (Thread.currentThread() == thread) {
+      return transactionTemplate.execute(callback);
+    }
+    if (stopped || !thread.isAlive()) {
+      throw new IllegalStateException("SQLite writer stopped");
+    }
+    Write<T> write = new Write<>(callback);
+    queue.add(write);
+    // The writer thread sets stopped before failing what is queued, so a write added after that
+    // is seen here and withdrawn
+    if (stopped && queue.remove(write)) {
+      throw new IllegalStateException("SQLite writer stopped");
+    }
+    try {
+      return write.result.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException cause) {
+        throw cause;
+      }
+      if (e.getCause() instanceof Error error) {
+        throw error;
+      }
+      throw new IllegalStateException(e.getCause());
+    } catch (TimeoutException e) {
+      throw new IllegalStateException(
+          queue.remove(write)
+              ? "SQLite write not started within " + timeout + ", withdrawn"
+              : "SQLite write not committed within " + timeout + ", it may still commit");
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while waiting for the SQLite writer", e);
+    }
+  }
+
+  /** Writes queued but not yet picked up by the writer thread. */
+  int queued() {
+    return queue.size();
+  }
+
+  /**
+   * Stop the writer thread once its current group has committed, and fail the writes still
+   * queued. Waits for the thread, so no write commits after this returns.
+   */
+  @PreDestroy
+  public void shutdown() {
+    thread.interrupt();
+    try {
+      thread.join(timeout.toMillis());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void run() {
+    List<Write<?>> batch = new ArrayList<>(maxBatch);
+    try {
+      while (!Thread.currentThread().isInterrupted()) {
+        try {
+          batch.add(queue.take());
+        } catch (InterruptedException e) {
+          break;
+        }
+        queue.drainTo(batch, maxBatch - 1);
+        commit(batch);
+        batch.clear();
+      }
+    } finally {
+      stopped = true;
+      IllegalStateException stoppedException = new IllegalStateException("SQLite writer stopped");
+      batch.forEach(write -> write.result.completeExceptionally(stoppedException));
+      Write<?> write;
+      while ((write = queue.poll()) != null) {
+        write.result.completeExceptionally(stoppedException);
+      }
+    }
+  }
+
+  private void commit(List<Write<?>> batch) {
+    writes.add(batch.size());
+    if (batch.size() > 1) {
+      try {
+        transactionTemplate.executeWithoutResult(
+            status -> {
+              batch.forEach(w -> w.run(status));
+              if (status.isRollbackOnly()) {
+                // One write asked for a rollback; the others must still commit
+                throw new IllegalStateException("A write marked the transaction rollback-only");
+              }
+            });
+        commits.increment();
+        batch.forEach(Write::complete);
+        return;
+      } catch (RuntimeException | Error e) {
+        retries.add(batch.size());
+        log.warn(
+            "[SqliteWriter] Group commit of "
+                + batch.size()
+                + " writes failed, retrying one by one: "
+                + e.getMessage());
+      }
+    }
+    for (Write<?> write : batch) {
+      try {
+        transactionTemplate.executeWithoutResult(write::run);
+        commits.increment();
+        write.complete();
+      } catch (RuntimeException | Error e) {
+        write.result.completeExceptionally(e);
+      }
+    }
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    FunctionCounter.builder("codepop.sqlite.writes", writes, LongAdder::sum)
+        .description("Writes executed by the SQLite writer thread")
+        .register(registry);
+    FunctionCounter.builder("codepop.sqlite.commits", commits, LongAdder::sum)
+        .description("Transactions committed by the SQLite writer thread")
+        .register(registry);
+    FunctionCounter.builder("codepop.sqlite.write-retries", retries, LongAdder::sum)
+        .description("Writes retried alone after a failed group commit")
+        .register(registry);
+    registry.gauge("codepop.sqlite.write-queue", this, SqliteWriter::queued);
+  }
+
+  /** A queued write; its result is published only once its transaction has committed. */
+  private static final class Write<T> {
+    private final TransactionCallback<T> callback;
+    private final CompletableFuture<T> result = new CompletableFuture<>();
+    private T value;
+
+    Write(TransactionCallback<T> callback) {
+      this.callback = callback;
+    }
+
+    void run(TransactionStatus status) {
+      value = callback.doInTransaction(status);
+    }
+
+    void complete() {
+      result.complete(value);
+    }
+  }
+}
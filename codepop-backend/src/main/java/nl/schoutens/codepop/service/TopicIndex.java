@@ -0,0 +1,349 @@
+package nl.schoutens.codepop.service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import lombok.extern.slf4j.Slf4j;
+import nl.schoutens.codepop.entity.Topic;
+import nl.schoutens.codepop.entity.TopicChangedEvent;
+import nl.schoutens.codepop.repository.TopicRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * In-memory index over all topics and their aliases. Resolves user input like "Java records" to a
+ * topic plus subtopic without touching the database.
+ *
+ * <p>The index is an immutable snapshot that is loaded once from {@link TopicRepository} and
+ * swapped out atomically whenever a topic is inserted, updated or removed (see {@link
+ * #onTopicChanged}). Lookups do not wait for a rebuild in progress on another thread; they keep
+ * using the previous snapshot until the new one is published.
+ */
+@Component
+@Slf4j
+public class TopicIndex {
+
+  private final TopicRepository topicRepository;
+  private final Map<String, String> aliases;
+  private final AtomicBoolean stale = new AtomicBoolean(true);
+  private final ReentrantLock rebuildLock = new ReentrantLock();
+
+  private volatile Snapshot snapshot;
+
+  /**
+   * @param aliases Comma-separated alias=topic pairs, e.g. {@code js=JavaScript,node=Node.js}
+   */
+  public TopicIndex(
+      TopicRepository topicRepository, @Value("${codepop.topics.aliases:}") String aliases) {
+    this.topicRepository = topicRepository;
+    this.aliases = parseAliases(aliases);
+  }
+
+  /** Build the index eagerly once the application (and the data seeder) is up. */
+  @EventListener(ApplicationReadyEvent.class)
+  public void warmUp() {
+    current();
+  }
+
+  /** Mark the current snapshot as outdated; the next lookup rebuilds it from the database. */
+  public void invalidate() {
+    stale.set(true);
+  }
+
+  /** Mark the index stale once a topic change commits, so a rebuild never sees uncommitted rows. */
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onTopicChanged(TopicChangedEvent event) {
+    invalidate();
+  }
+
+  /** Result of resolving user input: the matched topic and the optional subtopic. */
+  public record Resolution(Topic topic, String subtopic) {
+    static final Resolution NONE = new Resolution(null, null);
+  }
+
+  /**
+   * Parse user input and find the matching topic.
+   *
+   * <p>Strategy: 1. Try to match each word in input against topic names and aliases (exact match)
+   * 2. If no match, try fuzzy matching on the full input 3. If still no match, fuzzy match the
+   * first word and use the rest as subtopic
+   *
+   * <p>Examples: "Java records" -> Topic(Java), subtopic="records" "React hooks" -> Topic(React),
+   * subtopic="hooks" "Javascript React" -> Topic(React), subtopic="Javascript" "Java" ->
+   * Topic(Java), subtopic=null
+   */
+  public Resolution resolve(String input) {
+    Snapshot index = current();
+    String normalized = input.trim();
+    String[] words = normalized.split("\\s+");
+
+    // Strategy 1: Check if any word is an exact topic (or alias) match
+    for (int i = 0; i < words.length; i++) {
+      Entry entry = index.byName.get(fold(words[i]));
+      if (entry != null) {
+        return new Resolution(entry.topic, extractSubtopic(words, i));
+      }
+    }
+
+    // Strategy 2: Try fuzzy matching on full input
+    Topic topic = index.fuzzyFind(fold(normalized));
+    if (topic != null) {
+      return new Resolution(topic, null);
+    }
+
+    // Strategy 3: Try fuzzy matching on first word
+    if (words.length > 1) {
+      topic = index.fuzzyFind(fold(words[0]));
+      if (topic != null) {
+        String subtopic = String.join(" ", Arrays.copyOfRange(words, 1, words.length));
+        return new Resolution(topic, subtopic);
+      }
+    }
+
+    return Resolution.NONE;
+  }
+
+  /** Number of topics in the current snapshot. */
+  public int size() {
+    return current().topics.size();
+  }
+
+  /**
+   * Return the current snapshot, rebuilding it first when it is outdated. Only one thread rebuilds
+   * at a time; concurrent lookups keep using the previous snapshot unless there is none yet.
+   */
+  private Snapshot current() {
+    Snapshot index = snapshot;
+    if (!stale.get() && index != null) {
+      return index;
+    }
+    if (index == null) {
+      rebuildLock.lock();
+    } else if (!rebuildLock.tryLock()) {
+      return index;
+    }
+    try {
+      if (stale.compareAndSet(true, false) || snapshot == null) {
+        try {
+          snapshot = Snapshot.build(topicRepository.findAll(), aliases);
+        } catch (RuntimeException e) {
+          stale.set(true);
+          throw e;
+        }
+        log.info("[TopicIndex] Indexed {} topics", snapshot.topics.size());
+      }
+      return snapshot;
+    } finally {
+      rebuildLock.unlock();
+    }
+  }
+
+  private static Map<String, String> parseAliases(String aliases) {
+    Map<String, String> parsed = new LinkedHashMap<>();
+    if (aliases == null || aliases.isBlank()) {
+      return parsed;
+    }
+    for (String pair : aliases.split(",")) {
+      int eq = pair.indexOf('=');
+      if (eq <= 0 || eq == pair.length() - 1) {
+        log.warn("[TopicIndex] Ignoring malformed alias '{}'", pair.trim());
+        continue;
+      }
+      parsed.put(pair.substring(0, eq).trim(), pair.substring(eq + 1).trim());
+    }
+    return parsed;
+  }
+
+  /** Extract subtopic from words array, excluding the word at topicIndex. */
+  private static String extractSubtopic(String[] words, int topicIndex) {
+    if (words.length == 1) {
+      return null;
+    }
+
+    List<String> remaining = new ArrayList<>();
+    for (int j = 0; j < words.length; j++) {
+      if (j != topicIndex) {
+        remaining.add(words[j]);
+      }
+    }
+
+    return remaining.isEmpty() ? null : String.join(" ", remaining);
+  }
+
+  private static String fold(String s) {
+    return s.toLowerCase(Locale.ROOT);
+  }
+
+  /** Topic together with its position in repository order, used to break fuzzy-match ties. */
+  private record Entry(Topic topic, int rank) {}
+
+  /**
+   * Immutable lookup structures for one generation of the topic table.
+   *
+   * <ul>
+   *   <li>{@code byName}: case-folded name or alias to topic (exact word match)
+   *   <li>{@code bySubstring}: every substring of every name to the first topic containing it
+   *       ("topic contains input")
+   *   <li>{@code matcher}: Aho-Corasick automaton over all names ("input contains topic")
+   * </ul>
+   *
+   * All lookups are independent of the number of topics.
+   */
+  private static final class Snapshot {
+    final List<Topic> topics;
+    final Map<String, Entry> byName;
+    final Map<String, Entry> bySubstring;
+    final int longestName;
+    final NameMatcher matcher;
+
+    private Snapshot(
+        List<Topic> topics,
+        Map<String, Entry> byName,
+        Map<String, Entry> bySubstring,
+        int longestName,
+        NameMatcher matcher) {
+      this.topics = topics;
+      this.byName = byName;
+      this.bySubstring = bySubstring;
+      this.longestName = longestName;
+      this.matcher = matcher;
+    }
+
+    static Snapshot build(List<Topic> topics, Map<String, String> aliases) {
+      Map<String, Entry> byName = new HashMap<>();
+      Map<String, Entry> bySubstring = new HashMap<>();
+      NameMatcher matcher = new NameMatcher();
+      int longestName = 0;
+
+      for (int rank = 0; rank < topics.size(); rank++) {
+        Topic topic = topics.get(rank);
+        Entry entry = new Entry(topic, rank);
+        String name = fold(topic.getName());
+        byName.putIfAbsent(name, entry);
+        matcher.add(name, entry);
+        longestName = Math.max(longestName, name.length());
+        for (int start = 0; start < name.length(); start++) {
+          for (int end = start + 1; end <= name.length(); end++) {
+            bySubstring.putIfAbsent(name.substring(start, end), entry);
+          }
+        }
+      }
+
+      // Aliases only take part in exact word matching and never shadow a real topic name
+      for (Map.Entry<String, String> alias : aliases.entrySet()) {
+        Entry target = byName.get(fold(alias.getValue().trim()));
+        if (target == null) {
+          log.warn("[TopicIndex] Ignoring alias '{}' for unknown topic", alias.getKey());
+          continue;
+        }
+        byName.putIfAbsent(fold(alias.getKey().trim()), target);
+      }
+
+      matcher.compile();
+      return new Snapshot(
+          Collections.unmodifiableList(new ArrayList<>(topics)),
+          byName,
+          bySubstring,
+          longestName,
+          matcher);
+    }
+
+    /** Fuzzy match: input contains a topic name, or a topic name contains the input. */
+    Topic fuzzyFind(String input) {
+      Entry best = matcher.firstContainedIn(input);
+      if (input.length() <= longestName) {
+        Entry containing = bySubstring.get(input);
+        if (containing != null && (best == null || containing.rank < best.rank)) {
+          best = containing;
+        }
+      }
+      return best != null ? best.topic : null;
+    }
+  }
+
+  /**
+   * Aho-Corasick automaton over case-folded topic names. Finds the lowest ranked topic whose name
+   * occurs anywhere in the input in a single left-to-right pass.
+   */
+  private static final class NameMatcher {
+    private final Node root = new Node();
+
+    void add(String name, Entry entry) {
+      if (name.isEmpty()) {
+        return;
+      }
+      Node node = root;
+      for (int i = 0; i < name.length(); i++) {
+        node = node.next.computeIfAbsent(name.charAt(i), c -> new Node());
+      }
+      if (node.output == null || entry.rank < node.output.rank) {
+        node.output = entry;
+      }
+    }
+
+    /** Compute failure links breadth-first and fold outputs along them. */
+    void compile() {
+      Queue<Node> queue = new ArrayDeque<>();
+      for (Node child : root.next.values()) {
+        child.fail = root;
+        queue.add(child);
+      }
+      while (!queue.isEmpty()) {
+        Node node = queue.remove();
+        for (Map.Entry<Character, Node> edge : node.next.entrySet()) {
+          Node child = edge.getValue();
+          Node fail = node.fail;
+          while (fail != null && !fail.next.containsKey(edge.getKey())) {
+            fail = fail.fail;
+          }
+          child.fail = fail == null ? root : fail.next.get(edge.getKey());
+          child.best = lowest(child.output, child.fail.best);
+          queue.add(child);
+        }
+      }
+    }
+
+    Entry firstContainedIn(String input) {
+      Entry best = null;
+      Node node = root;
+      for (int i = 0; i < input.length(); i++) {
+        char c = input.charAt(i);
+        while (node != root && !node.next.containsKey(c)) {
+          node = node.fail;
+        }
+        node = node.next.getOrDefault(c, root);
+        best = lowest(best, node.best);
+      }
+      return best;
+    }
+
+    private static Entry lowest(Entry a, Entry b) {
+      if (a == null) {
+        return b;
+      }
+      if (b == null) {
+        return a;
+      }
+      return a.rank <= b.rank ? a : b;
+    }
+
+    private static final class Node {
+      final Map<Character, Node> next = new LinkedHashMap<>();
+      Node fail;
+      Entry output;
+      Entry best;
+    }
+  }
+}
@@ -0,0 +1,29 @@
+-- Schema as previously generated by Hibernate (ddl-auto=update). IF NOT EXISTS lets databases created
+-- before migrations were introduced run this script as a no-op (see spring.flyway.baseline-version).
+
+CREATE TABLE IF NOT EXISTS topics (
+    id integer,
+    category varchar(50),
+    created_at timestamp not null,
+    name varchar(100) not null unique,
+    primary key (id)
+);
+
+CREATE TABLE IF NOT EXISTS questions (
+    id integer,
+    created_at timestamp not null,
+    difficulty varchar(20) not null check ((difficulty in ('EASY','MEDIUM','HARD'))),
+    explanation TEXT,
+    question_text TEXT not null,
+    subtopic varchar(100),
+    topic_id bigint not null,
+    primary key (id)
+);
+
+CREATE TABLE IF NOT EXISTS question_options (
+    id integer,
+    is_correct boolean not null,
+    option_text TEXT not null,
+    question_id bigint not null,
+    primary key (id)
+);
@@ -0,0 +1,11 @@
+-- Indexes for the quiz read path (QuestionRepository). Until now only primary keys and the unique
+-- topic name were indexed, so every pool load, count and random sample scanned all questions and
+-- every option lookup scanned all options.
+
+-- Pool loads (topic_id = ?) and the count/sample queries, which only read topic_id and id: the
+-- rowid is part of every index entry, so those two are answered from the index alone. Subtopics
+-- are matched through the questions_fts full-text index, not through this one
+CREATE INDEX IF NOT EXISTS idx_questions_topic ON questions (topic_id);
+
+-- Option lookups by question id (question_id IN (...)); the rowid makes ORDER BY id cheap
+CREATE INDEX IF NOT EXISTS idx_question_options_question ON question_options (question_id);
@@ -0,0 +1,33 @@
+-- SQLite FTS5 full-text index over the subtopic and text of every question, for subtopic lookups
+-- (see QuestionSearchIndex). An external-content table: it stores only the index and reads the
+-- text from questions. Text is tokenized with unicode61 and stemmed with porter, so "record"
+-- matches "Records". IF NOT EXISTS lets databases whose index was created by the application
+-- before this migration existed run this script as well.
+CREATE VIRTUAL TABLE IF NOT EXISTS questions_fts USING fts5(
+    subtopic,
+    question_text,
+    content='questions',
+    content_rowid='id',
+    tokenize='porter unicode61'
+);
+
+-- Keep the index in sync for every write path (JPA saves as well as QuestionBatchWriter)
+CREATE TRIGGER IF NOT EXISTS questions_fts_insert AFTER INSERT ON questions BEGIN
+    INSERT INTO questions_fts(rowid, subtopic, question_text)
+    VALUES (new.id, new.subtopic, new.question_text);
+END;
+
+CREATE TRIGGER IF NOT EXISTS questions_fts_delete AFTER DELETE ON questions BEGIN
+    INSERT INTO questions_fts(questions_fts, rowid, subtopic, question_text)
+    VALUES ('delete', old.id, old.subtopic, old.question_text);
+END;
+
+CREATE TRIGGER IF NOT EXISTS questions_fts_update AFTER UPDATE ON questions BEGIN
+    INSERT INTO questions_fts(questions_fts, rowid, subtopic, question_text)
+    VALUES ('delete', old.id, old.subtopic, old.question_text);
+    INSERT INTO questions_fts(rowid, subtopic, question_text)
+    VALUES (new.id, new.subtopic, new.question_text);
+END;
+
+-- Index the questions stored before the triggers existed
+INSERT INTO questions_fts(questions_fts) VALUES ('rebuild');
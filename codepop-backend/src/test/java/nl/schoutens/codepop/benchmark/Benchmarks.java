@@ -0,0 +1,22 @@
+package nl.schoutens.codepop.benchmark;
+
+/**
+ * Shared helpers for the benchmark suite. Benchmarks are plain JUnit classes named {@code
+ * *Benchmark}; they are skipped by the default build and only run with {@code -Pbenchmark}.
+ */
+final class Benchmarks {
+
+  private static volatile Object sink;
+
+  private Benchmarks() {}
+
+  /** Keep a result reachable so the JIT cannot eliminate the measured work. */
+  static void consume(Object value) {
+    sink = value;
+  }
+
+  /** Print one result line in a stable, grep-friendly format. */
+  static void report(String benchmark, String variant, double value, String unit) {
+    System.out.printf("[benchmark] %-24s %-28s %14.2f %s%n", benchmark, variant, value, unit);
+  }
+}
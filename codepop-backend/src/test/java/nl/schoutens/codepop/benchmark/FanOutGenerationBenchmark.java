@@ -0,0 +1,103 @@
+package nl.schoutens.codepop.benchmark;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import nl.schoutens.codepop.entity.Question;
+import nl.schoutens.codepop.entity.Question.Difficulty;
+import nl.schoutens.codepop.service.FanOutQuizMaster;
+import nl.schoutens.codepop.service.QuizMaster;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+
+/**
+ * Wall-clock time versus total tokens of one 10-question generation, split into 1, 2, 3 and 5
+ * concurrent prompts by {@link FanOutQuizMaster}.
+ *
+ * <p>The LLM is simulated with a simple cost model: every prompt pays for its input tokens (shared
+ * instructions plus the existing questions) at prefill speed and for its output tokens at decode
+ * speed, and the server is assumed to have a free slot for every prompt ({@code
+ * OLLAMA_NUM_PARALLEL}). Sleeps are scaled down by {@link #TIME_SCALE}; reported times are scaled
+ * back up. Run with {@code ./mvnw test -Pbenchmark -Dtest=FanOutGenerationBenchmark}.
+ */
+class FanOutGenerationBenchmark {
+
+  private static final int QUESTIONS = 10;
+  private static final int EXISTING = 30;
+  private static final int INSTRUCTION_TOKENS = 450;
+  private static final int TOKENS_PER_EXISTING = 20;
+  private static final int TOKENS_PER_QUESTION = 110;
+  private static final double PREFILL_TOKENS_PER_SECOND = 1_500;
+  private static final double DECODE_TOKENS_PER_SECOND = 40;
+  private static final int TIME_SCALE = 100;
+
+  @Test
+  void compareParallelism() {
+    List<String> existing = new ArrayList<>();
+    for (int i = 0; i < EXISTING; i++) {
+      existing.add("Existing question " + i);
+    }
+    SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("fan-out-benchmark-");
+
+    for (int parallelism : new int[] {1, 2, 3, 5}) {
+      SimulatedLlm llm = new SimulatedLlm();
+      FanOutQuizMaster quizMaster =
+          new FanOutQuizMaster(llm, executor, parallelism, Duration.ofMinutes(1));
+      long start = System.nanoTime();
+      List<Question> questions = quizMaster.generateQuestions("Java", QUESTIONS, existing);
+      double millis = (System.nanoTime() - start) / 1e6 * TIME_SCALE;
+      Benchmarks.consume(questions);
+
+      String variant = "parallelism " + parallelism;
+      Benchmarks.report("FanOutGeneration", variant + " wall-clock", millis, "ms");
+      Benchmarks.report("FanOutGeneration", variant + " tokens", llm.tokens.get(), "tokens");
+      Benchmarks.report("FanOutGeneration", variant + " prompts", llm.prompts.get(), "prompts");
+    }
+  }
+
+  /** Sleeps for as long as the cost model says the prompt would take. */
+  private static final class SimulatedLlm implements QuizMaster {
+    private final AtomicLong tokens = new AtomicLong();
+    private final AtomicLong prompts = new AtomicLong();
+
+    @Override
+    public List<Question> generateQuestions(
+        String topic, int count, List<String> existingQuestionTexts) {
+      return generateQuestions(topic, count, existingQuestionTexts, null, question -> {});
+    }
+
+    @Override
+    public List<Question> generateQuestions(
+        String topic,
+        int count,
+        List<String> existingQuestionTexts,
+        Difficulty difficulty,
+        Consumer<Question> onQuestion) {
+      int inputTokens = INSTRUCTION_TOKENS + TOKENS_PER_EXISTING * existingQuestionTexts.size();
+      prompts.incrementAndGet();
+      tokens.addAndGet(inputTokens + (long) TOKENS_PER_QUESTION * count);
+
+      sleep(inputTokens / PREFILL_TOKENS_PER_SECOND);
+      List<Question> questions = new ArrayList<>(count);
+      for (int i = 0; i < count; i++) {
+        sleep(TOKENS_PER_QUESTION / DECODE_TOKENS_PER_SECOND);
+        Question question =
+            new Question(null, topic + " " + difficulty + " " + i, null, difficulty, null);
+        questions.add(question);
+        onQuestion.accept(question);
+      }
+      return questions;
+    }
+
+    private static void sleep(double seconds) {
+      try {
+        TimeUnit.MICROSECONDS.sleep((long) (seconds * 1e6 / TIME_SCALE));
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+}
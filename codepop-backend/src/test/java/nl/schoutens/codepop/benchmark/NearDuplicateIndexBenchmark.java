@@ -0,0 +1,92 @@
+package nl.schoutens.codepop.benchmark;
+
+import static org.mockito.Mockito.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import nl.schoutens.codepop.entity.Question;
+import nl.schoutens.codepop.repository.QuestionRepository;
+import nl.schoutens.codepop.service.NearDuplicateIndex;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Latency of one near-duplicate check against a topic of 20,000 indexed questions. Run with {@code
+ * ./mvnw test -Pbenchmark -Dtest=NearDuplicateIndexBenchmark}.
+ */
+class NearDuplicateIndexBenchmark {
+
+  private static final int INDEXED = 20_000;
+  private static final int CHECKS = 20_000;
+  private static final String[] WORDS = words(500);
+
+  @Test
+  void measureCheckLatency() {
+    SplittableRandom random = new SplittableRandom(42);
+    List<QuestionRepository.QuestionText> stored = new ArrayList<>(INDEXED);
+    for (int i = 0; i < INDEXED; i++) {
+      String text = sentence(random);
+      stored.add(
+          new QuestionRepository.QuestionText() {
+            @Override
+            public Long getTopicId() {
+              return 1L;
+            }
+
+            @Override
+            public String getText() {
+              return text;
+            }
+          });
+    }
+    QuestionRepository repository = mock(QuestionRepository.class);
+    when(repository.findAllQuestionTexts()).thenReturn(stored);
+
+    NearDuplicateIndex index = new NearDuplicateIndex(repository, true, 0.7);
+    long start = System.nanoTime();
+    index.rebuild();
+    Benchmarks.report("NearDuplicateIndex", "rebuild 20k", (System.nanoTime() - start) / 1e6, "ms");
+
+    List<Question> candidates = new ArrayList<>(CHECKS);
+    for (int i = 0; i < CHECKS; i++) {
+      candidates.add(new Question(null, sentence(random), null, Question.Difficulty.EASY, null));
+    }
+    // Warm up, then measure one check per call
+    for (int i = 0; i < 2_000; i++) {
+      Benchmarks.consume(index.filterNew(2L, List.of(candidates.get(i))));
+    }
+    start = System.nanoTime();
+    int kept = 0;
+    for (Question candidate : candidates) {
+      kept += index.filterNew(1L, List.of(candidate)).size();
+    }
+    double micros = (System.nanoTime() - start) / 1e3 / CHECKS;
+    Benchmarks.report("NearDuplicateIndex", "check (20k indexed)", micros, "us/op");
+    Benchmarks.report("NearDuplicateIndex", "rejected", CHECKS - kept, "questions");
+  }
+
+  private static String sentence(SplittableRandom random) {
+    StringBuilder text = new StringBuilder("What");
+    for (int i = 0; i < 10; i++) {
+      text.append(' ').append(WORDS[random.nextInt(WORDS.length)]);
+    }
+    return text.append('?').toString();
+  }
+
+  /** Pronounceable pseudo-words, so texts only share the 3-grams real words would share. */
+  private static String[] words(int count) {
+    SplittableRandom random = new SplittableRandom(7);
+    String consonants = "bcdfghklmnprstvz";
+    String vowels = "aeiou";
+    String[] words = new String[count];
+    for (int i = 0; i < count; i++) {
+      StringBuilder word = new StringBuilder();
+      for (int syllable = 0; syllable < 2 + random.nextInt(2); syllable++) {
+        word.append(consonants.charAt(random.nextInt(consonants.length())));
+        word.append(vowels.charAt(random.nextInt(vowels.length())));
+      }
+      words[i] = word.toString();
+    }
+    return words;
+  }
+}
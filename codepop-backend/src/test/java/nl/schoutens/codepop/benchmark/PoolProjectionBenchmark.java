@@ -0,0 +1,128 @@
+package nl.schoutens.codepop.benchmark;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import nl.schoutens.codepop.dto.OptionDTO;
+import nl.schoutens.codepop.dto.QuestionDTO;
+import nl.schoutens.codepop.entity.Question;
+import nl.schoutens.codepop.entity.QuestionOption;
+import nl.schoutens.codepop.entity.Topic;
+import nl.schoutens.codepop.repository.QuestionRepository;
+import nl.schoutens.codepop.repository.TopicRepository;
+import nl.schoutens.codepop.service.QuestionBatchWriter;
+import nl.schoutens.codepop.service.QuizMaster;
+import nl.schoutens.codepop.service.QuizService.TransactionalOperations;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Latency and allocation of loading one question pool (4 options per question) into DTOs: JOIN
+ * FETCH into managed entities followed by mapping ({@code findByTopicId}) versus the flat
+ * projection with one batched option query ({@code fetchPool}). Allocation is the heap allocated by
+ * the benchmark thread per load, as reported by {@code com.sun.management.ThreadMXBean}.
+ *
+ * <p>Run with {@code ./mvnw test -Pbenchmark -Dtest=PoolProjectionBenchmark}.
+ */
+@SpringBootTest(properties = "spring.jpa.show-sql=false")
+@ActiveProfiles("test")
+class PoolProjectionBenchmark {
+
+  @TestConfiguration
+  static class TestConfig {
+    @Bean
+    public QuizMaster testQuizMaster() {
+      return (topic, count, existingQuestionTexts) -> Collections.emptyList();
+    }
+  }
+
+  @Autowired private TransactionalOperations txOps;
+  @Autowired private QuestionRepository questionRepository;
+  @Autowired private TopicRepository topicRepository;
+  @Autowired private QuestionBatchWriter batchWriter;
+  @Autowired private TransactionTemplate transactionTemplate;
+
+  @Test
+  void compareEntityAndProjectionLoads() {
+    com.sun.management.ThreadMXBean threads =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    for (int size : new int[] {100, 1_000, 2_000}) {
+      long topicId = seedTopic("Projection" + size, size);
+      int rounds = Math.max(10, 20_000 / size);
+      Supplier<List<QuestionDTO>> entities =
+          () ->
+              questionRepository.findByTopicId(topicId).stream()
+                  .map(PoolProjectionBenchmark::toDTO)
+                  .collect(Collectors.toList());
+      Supplier<List<QuestionDTO>> projection = () -> txOps.fetchPool(topicId, null);
+      assertThat(projection.get()).hasSize(size);
+
+      for (int warmup = 0; warmup < 3; warmup++) {
+        Benchmarks.consume(entities.get());
+        Benchmarks.consume(projection.get());
+      }
+      report(threads, "entities n=" + size, entities, rounds);
+      report(threads, "projection n=" + size, projection, rounds);
+    }
+  }
+
+  private static void report(
+      com.sun.management.ThreadMXBean threads,
+      String variant,
+      Supplier<List<QuestionDTO>> load,
+      int rounds) {
+    long threadId = Thread.currentThread().getId();
+    long allocated = threads.getThreadAllocatedBytes(threadId);
+    long start = System.nanoTime();
+    for (int i = 0; i < rounds; i++) {
+      Benchmarks.consume(load.get());
+    }
+    double millis = (System.nanoTime() - start) / 1e6 / rounds;
+    double kilobytes = (threads.getThreadAllocatedBytes(threadId) - allocated) / 1024.0 / rounds;
+    Benchmarks.report("PoolProjection", variant, millis, "ms/load");
+    Benchmarks.report("PoolProjection", variant, kilobytes, "KB/load");
+  }
+
+  /** Same mapping as QuizService applies to entities. */
+  private static QuestionDTO toDTO(Question question) {
+    return new QuestionDTO(
+        question.getId(),
+        question.getQuestionText(),
+        question.getDifficulty().name(),
+        question.getExplanation(),
+        question.getOptions().stream()
+            .map(o -> new OptionDTO(o.getId(), o.getOptionText(), o.getIsCorrect()))
+            .collect(Collectors.toList()));
+  }
+
+  private long seedTopic(String name, int questionCount) {
+    Topic topic = topicRepository.save(new Topic(name, "backend"));
+    List<Question> questions = new ArrayList<>(questionCount);
+    for (int i = 0; i < questionCount; i++) {
+      Question question =
+          new Question(
+              topic,
+              "Benchmark question " + i + " about " + name + "?",
+              "bench",
+              Question.Difficulty.EASY,
+              "Explanation for benchmark question " + i);
+      for (int o = 0; o < 4; o++) {
+        question.addOption(new QuestionOption(null, "Option " + o, o == 0));
+      }
+      questions.add(question);
+    }
+    transactionTemplate.executeWithoutResult(status -> batchWriter.insert(questions));
+    return topic.getId();
+  }
+}
@@ -0,0 +1,96 @@
+package nl.schoutens.codepop.benchmark;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+import nl.schoutens.codepop.entity.Question;
+import nl.schoutens.codepop.entity.QuestionOption;
+import nl.schoutens.codepop.entity.Topic;
+import nl.schoutens.codepop.repository.QuestionRepository;
+import nl.schoutens.codepop.repository.TopicRepository;
+import nl.schoutens.codepop.service.QuestionBatchWriter;
+import nl.schoutens.codepop.service.QuizMaster;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Write transaction time for saving 500 questions with 4 options each: JPA {@code saveAll} (one
+ * INSERT plus id round-trip per row) versus {@link QuestionBatchWriter} (multi-row INSERTs). The
+ * transactions contain only the inserts, so their duration is the time SQLite's write lock is held.
+ *
+ * <p>Run with {@code ./mvnw test -Pbenchmark -Dtest=QuestionBatchInsertBenchmark}.
+ */
+@SpringBootTest(properties = "spring.jpa.show-sql=false")
+@ActiveProfiles("test")
+class QuestionBatchInsertBenchmark {
+
+  private static final int QUESTIONS = 500;
+  private static final int ROUNDS = 7;
+
+  @TestConfiguration
+  static class TestConfig {
+    @Bean
+    public QuizMaster testQuizMaster() {
+      return (topic, count, existingQuestionTexts) -> Collections.emptyList();
+    }
+  }
+
+  @Autowired private QuestionRepository questionRepository;
+  @Autowired private TopicRepository topicRepository;
+  @Autowired private QuestionBatchWriter batchWriter;
+  @Autowired private TransactionTemplate transactionTemplate;
+
+  @Test
+  void compareLockHoldTime() {
+    Topic topic = topicRepository.save(new Topic("Batch insert", "benchmark"));
+
+    double jpa = medianMillis(topic, questionRepository::saveAll);
+    double batched = medianMillis(topic, batchWriter::insert);
+
+    Benchmarks.report("QuestionBatchInsert", "JPA saveAll 500", jpa, "ms/tx");
+    Benchmarks.report("QuestionBatchInsert", "multi-row batch 500", batched, "ms/tx");
+    assertThat(questionRepository.findByTopicId(topic.getId()))
+        .hasSize(2 * (ROUNDS + 1) * QUESTIONS);
+  }
+
+  private double medianMillis(Topic topic, Consumer<List<Question>> save) {
+    double[] millis = new double[ROUNDS];
+    for (int round = -1; round < ROUNDS; round++) {
+      List<Question> questions = questions(topic);
+      long start = System.nanoTime();
+      transactionTemplate.executeWithoutResult(status -> save.accept(questions));
+      if (round >= 0) {
+        millis[round] = (System.nanoTime() - start) / 1e6;
+      }
+    }
+    Arrays.sort(millis);
+    return millis[ROUNDS / 2];
+  }
+
+  private static List<Question> questions(Topic topic) {
+    List<Question> questions = new ArrayList<>(QUESTIONS);
+    for (int i = 0; i < QUESTIONS; i++) {
+      Question question =
+          new Question(
+              topic,
+              "Generated question " + i + " about records?",
+              "records",
+              Question.Difficulty.MEDIUM,
+              "A reasonably long explanation of why the correct option is correct.");
+      for (int o = 0; o < 4; o++) {
+        question.addOption(new QuestionOption(null, "Option " + o, o == 0));
+      }
+      questions.add(question);
+    }
+    return questions;
+  }
+}
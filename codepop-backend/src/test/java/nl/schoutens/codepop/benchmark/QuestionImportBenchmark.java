@@ -0,0 +1,82 @@
+package nl.schoutens.codepop.benchmark;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import nl.schoutens.codepop.dto.ImportReportDTO;
+import nl.schoutens.codepop.entity.Topic;
+import nl.schoutens.codepop.repository.TopicRepository;
+import nl.schoutens.codepop.service.QuestionImporter;
+import nl.schoutens.codepop.service.QuizMaster;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.test.context.ActiveProfiles;
+
+/**
+ * Throughput of the bulk import for a bank of 50,000 curated questions with 4 options each:
+ * parsing, validation, deduplication and batched inserts together. Target: 10,000+ questions per
+ * second.
+ *
+ * <p>Run with {@code ./mvnw test -Pbenchmark -Dtest=QuestionImportBenchmark}.
+ */
+@SpringBootTest(properties = "spring.jpa.show-sql=false")
+@ActiveProfiles("test")
+class QuestionImportBenchmark {
+
+  private static final int QUESTIONS = 50_000;
+
+  @TestConfiguration
+  static class TestConfig {
+    @Bean
+    public QuizMaster testQuizMaster() {
+      return (topic, count, existingQuestionTexts) -> Collections.emptyList();
+    }
+  }
+
+  @Autowired private QuestionImporter importer;
+  @Autowired private TopicRepository topicRepository;
+
+  @Test
+  void importThroughput() throws Exception {
+    Topic topic = topicRepository.save(new Topic("Import " + System.nanoTime(), "benchmark"));
+    byte[] ndjson = bank(topic.getName());
+
+    long start = System.nanoTime();
+    ImportReportDTO report = importer.importQuestions(new ByteArrayInputStream(ndjson));
+    double seconds = (System.nanoTime() - start) / 1e9;
+
+    Benchmarks.report("QuestionImport", "bulk import 50k", QUESTIONS / seconds, "questions/s");
+    assertThat(report.imported()).isEqualTo(QUESTIONS);
+  }
+
+  private static byte[] bank(String topic) {
+    StringBuilder ndjson = new StringBuilder(QUESTIONS * 400);
+    for (int i = 0; i < QUESTIONS; i++) {
+      ndjson
+          .append("{\"topic\":\"")
+          .append(topic)
+          .append("\",\"subtopic\":\"records\",\"difficulty\":\"MEDIUM\",")
+          .append("\"text\":\"Curated question ")
+          .append(i)
+          .append(" about the canonical constructor of a record?\",")
+          .append("\"explanation\":\"A reasonably long explanation of the correct option.\",")
+          .append("\"options\":[");
+      for (int o = 0; o < 4; o++) {
+        ndjson
+            .append(o > 0 ? "," : "")
+            .append("{\"text\":\"Option ")
+            .append(o)
+            .append("\",\"isCorrect\":")
+            .append(o == 0)
+            .append('}');
+      }
+      ndjson.append("]}\n");
+    }
+    return ndjson.toString().getBytes(StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,134 @@
+package nl.schoutens.codepop.benchmark;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+import nl.schoutens.codepop.entity.Question;
+import nl.schoutens.codepop.repository.QuestionRepository;
+import nl.schoutens.codepop.service.QuizMaster;
+import nl.schoutens.codepop.service.QuizService.TransactionalOperations;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Compares the two quiz selection paths against SQLite: loading and shuffling the full topic pool
+ * ({@code findByTopicId}) versus counting and sampling ids inside SQLite ({@code
+ * sampleQuestions}), at 100, 10k and 100k questions per topic.
+ *
+ * <p>Run with {@code ./mvnw test -Pbenchmark -Dtest=QuestionSamplingBenchmark}.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class QuestionSamplingBenchmark {
+
+  @TestConfiguration
+  static class TestConfig {
+    @Bean
+    public QuizMaster testQuizMaster() {
+      return (topic, count, existingQuestionTexts) -> Collections.emptyList();
+    }
+  }
+
+  @Autowired private TransactionalOperations txOps;
+  @Autowired private QuestionRepository questionRepository;
+  @Autowired private JdbcTemplate jdbcTemplate;
+  @Autowired private TransactionTemplate transactionTemplate;
+
+  @Test
+  void compareFullLoadWithDatabaseSampling() {
+    for (int size : new int[] {100, 10_000, 100_000}) {
+      long topicId = seedTopic("Bench" + size, size);
+      List<Long> excluded =
+          LongStream.range(0, 20).map(i -> i * 3).boxed().collect(Collectors.toList());
+      int rounds = Math.max(3, 20_000 / size);
+
+      // Warm up both paths once
+      fullLoad(topicId, excluded);
+      sample(topicId, excluded);
+
+      long start = System.nanoTime();
+      for (int i = 0; i < rounds; i++) {
+        Benchmarks.consume(fullLoad(topicId, excluded));
+      }
+      double fullMillis = (System.nanoTime() - start) / 1e6 / rounds;
+
+      start = System.nanoTime();
+      for (int i = 0; i < rounds; i++) {
+        Benchmarks.consume(sample(topicId, excluded));
+      }
+      double sampleMillis = (System.nanoTime() - start) / 1e6 / rounds;
+
+      Benchmarks.report("QuestionSampling", "load+shuffle n=" + size, fullMillis, "ms/quiz");
+      Benchmarks.report("QuestionSampling", "sqlite sample n=" + size, sampleMillis, "ms/quiz");
+      assertThat(sample(topicId, excluded)).hasSize(5);
+    }
+  }
+
+  private List<Question> fullLoad(long topicId, List<Long> excluded) {
+    List<Question> available =
+        questionRepository.findByTopicId(topicId).stream()
+            .filter(q -> !excluded.contains(q.getId()))
+            .collect(Collectors.toList());
+    Collections.shuffle(available);
+    return new ArrayList<>(available.subList(0, 5));
+  }
+
+  private List<Question> sample(long topicId, List<Long> excluded) {
+    return txOps.sampleQuestions(topicId, null, excluded, 5, 0).questions();
+  }
+
+  private long seedTopic(String name, int questionCount) {
+    return transactionTemplate.execute(
+        status -> {
+          Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+          jdbcTemplate.update(
+              "INSERT INTO topics (name, category, created_at) VALUES (?, 'backend', ?)",
+              name,
+              now);
+          long topicId =
+              jdbcTemplate.queryForObject("SELECT id FROM topics WHERE name = ?", Long.class, name);
+          long firstId =
+              jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM questions", Long.class)
+                  + 1;
+
+          List<Object[]> questions = new ArrayList<>(questionCount);
+          List<Object[]> options = new ArrayList<>(questionCount * 4);
+          for (int i = 0; i < questionCount; i++) {
+            long questionId = firstId + i;
+            questions.add(
+                new Object[] {
+                  questionId,
+                  topicId,
+                  "Benchmark question " + i + " about " + name + "?",
+                  "bench",
+                  "EASY",
+                  "Explanation for benchmark question " + i,
+                  now
+                });
+            for (int o = 0; o < 4; o++) {
+              options.add(new Object[] {questionId, "Option " + o, o == 0});
+            }
+          }
+          jdbcTemplate.batchUpdate(
+              "INSERT INTO questions (id, topic_id, question_text, subtopic, difficulty,"
+                  + " explanation, created_at) VALUES (?, ?, ?, ?, ?, ?, ?)",
+              questions);
+          jdbcTemplate.batchUpdate(
+              "INSERT INTO question_options (question_id, option_text, is_correct) VALUES (?, ?, ?)",
+              options);
+          return topicId;
+        });
+  }
+}
@@ -0,0 +1,134 @@
+package nl.schoutens.codepop.benchmark;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+import nl.schoutens.codepop.config.QuizProtobufMessageConverter;
+import nl.schoutens.codepop.dto.OptionDTO;
+import nl.schoutens.codepop.dto.QuestionDTO;
+import nl.schoutens.codepop.dto.QuizDTO;
+import nl.schoutens.codepop.service.QuestionJsonCache;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Benchmark for the quiz response encodings. Reports bytes on the wire, with and without gzip, and
+ * the CPU cost of encoding one quiz per format. Questions carry code snippets and explanations of
+ * realistic length, since those dominate the payload.
+ *
+ * <p>Run with {@code ./mvnw test -Pbenchmark -Dtest=QuizEncodingBenchmark}.
+ */
+class QuizEncodingBenchmark {
+
+  private static final int WARMUP_ROUNDS = 20_000;
+  private static final int MEASURED_ROUNDS = 100_000;
+
+  private final ObjectMapper json = new ObjectMapper();
+  private final CBORMapper cbor = new CBORMapper();
+
+  @Test
+  void bytesOnTheWirePerFormat() throws Exception {
+    QuizDTO quiz = quiz();
+    int jsonBytes = json.writeValueAsBytes(quiz).length;
+    int protobufBytes = QuizProtobufMessageConverter.encode(quiz).length;
+
+    report("json", json.writeValueAsBytes(quiz));
+    report("cbor", cbor.writeValueAsBytes(quiz));
+    report("protobuf", QuizProtobufMessageConverter.encode(quiz));
+
+    assertTrue(protobufBytes < jsonBytes, "Protobuf should be smaller than JSON");
+  }
+
+  @Test
+  void encodingCostPerFormat() throws Exception {
+    QuizDTO quiz = quiz();
+    Benchmarks.report(
+        "QuizEncoding", "json (jackson)", measure(() -> json.writeValueAsBytes(quiz)), "ns/quiz");
+    Benchmarks.report(
+        "QuizEncoding",
+        "json (fragments, uncached)",
+        measure(
+            () -> {
+              for (QuestionDTO question : quiz.questions()) {
+                Benchmarks.consume(QuestionJsonCache.encode(question));
+              }
+              return null;
+            }),
+        "ns/quiz");
+    Benchmarks.report(
+        "QuizEncoding", "cbor", measure(() -> cbor.writeValueAsBytes(quiz)), "ns/quiz");
+    Benchmarks.report(
+        "QuizEncoding",
+        "protobuf",
+        measure(() -> QuizProtobufMessageConverter.encode(quiz)),
+        "ns/quiz");
+    byte[] encoded = json.writeValueAsBytes(quiz);
+    Benchmarks.report("QuizEncoding", "gzip (json)", measure(() -> gzip(encoded)), "ns/quiz");
+  }
+
+  private static void report(String format, byte[] encoded) {
+    Benchmarks.report("QuizEncoding", format, encoded.length, "bytes");
+    Benchmarks.report("QuizEncoding", format + " + gzip", gzip(encoded).length, "bytes");
+  }
+
+  private static double measure(Encoder encoder) throws Exception {
+    for (int i = 0; i < WARMUP_ROUNDS; i++) {
+      Benchmarks.consume(encoder.encode());
+    }
+    long start = System.nanoTime();
+    for (int i = 0; i < MEASURED_ROUNDS; i++) {
+      Benchmarks.consume(encoder.encode());
+    }
+    return (System.nanoTime() - start) / (double) MEASURED_ROUNDS;
+  }
+
+  private static byte[] gzip(byte[] data) {
+    ByteArrayOutputStream out = new ByteArrayOutputStream(data.length);
+    try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+      gzip.write(data);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return out.toByteArray();
+  }
+
+  private static QuizDTO quiz() {
+    List<QuestionDTO> questions = new ArrayList<>();
+    for (long id = 1; id <= 5; id++) {
+      List<OptionDTO> options = new ArrayList<>();
+      for (long o = 0; o < 4; o++) {
+        String text = "It prints " + (o * 17 + id) + " and then terminates";
+        options.add(new OptionDTO(id * 4 + o, text, o == 1));
+      }
+      questions.add(
+          new QuestionDTO(
+              id * 1_000,
+              "What does the following code print?\n\n"
+                  + "record Point(int x, int y) {\n"
+                  + "  Point {\n"
+                  + "    if (x < 0) throw new IllegalArgumentException(\"x\");\n"
+                  + "  }\n"
+                  + "}\n"
+                  + "System.out.println(new Point("
+                  + id
+                  + ", 2).x() * 17);",
+              "MEDIUM",
+              "The compact constructor only validates the arguments; the fields are still assigned"
+                  + " implicitly after it runs, so x() returns the value that was passed in and the"
+                  + " multiplication is evaluated as ordinary int arithmetic.",
+              options));
+    }
+    return new QuizDTO("Java records", questions.size(), questions);
+  }
+
+  @FunctionalInterface
+  private interface Encoder {
+    Object encode() throws Exception;
+  }
+}
@@ -0,0 +1,103 @@
+package nl.schoutens.codepop.benchmark;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.*;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.ArrayList;
+import java.util.List;
+import nl.schoutens.codepop.config.QuizJsonMessageConverter;
+import nl.schoutens.codepop.dto.OptionDTO;
+import nl.schoutens.codepop.dto.QuestionDTO;
+import nl.schoutens.codepop.dto.QuizDTO;
+import nl.schoutens.codepop.service.QuestionJsonCache;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.MockHttpOutputMessage;
+
+/**
+ * Benchmark for writing quiz responses. Compares serializing the DTOs through Jackson on every
+ * request with assembling the response from the cached per-question fragments.
+ *
+ * <p>Run with {@code ./mvnw test -Pbenchmark -Dtest=QuizJsonBenchmark}.
+ */
+class QuizJsonBenchmark {
+
+  private static final int POOL_SIZE = 500;
+  private static final int WARMUP_ROUNDS = 20_000;
+  private static final int MEASURED_ROUNDS = 100_000;
+
+  @Test
+  void fragmentsAreCheaperThanReserializing() throws Exception {
+    List<QuestionDTO> pool = pool();
+    ObjectMapper objectMapper = new ObjectMapper();
+    QuizJsonMessageConverter converter = converter(new QuestionJsonCache(64L << 20));
+
+    double jackson =
+        measure(pool, quiz -> Benchmarks.consume(objectMapper.writeValueAsBytes(quiz)));
+    double fragments =
+        measure(
+            pool,
+            quiz -> {
+              MockHttpOutputMessage output = new MockHttpOutputMessage();
+              converter.write(quiz, MediaType.APPLICATION_JSON, output);
+              Benchmarks.consume(output.getBodyAsBytes());
+            });
+
+    Benchmarks.report("QuizJson", "jackson", jackson, "ns/response");
+    Benchmarks.report("QuizJson", "fragments", fragments, "ns/response");
+    assertTrue(
+        fragments < jackson, "Fragments should beat Jackson: " + fragments + " vs " + jackson);
+  }
+
+  private static double measure(List<QuestionDTO> pool, Writer writer) throws Exception {
+    for (int i = 0; i < WARMUP_ROUNDS; i++) {
+      writer.write(quiz(pool, i));
+    }
+    long start = System.nanoTime();
+    for (int i = 0; i < MEASURED_ROUNDS; i++) {
+      writer.write(quiz(pool, i));
+    }
+    return (System.nanoTime() - start) / (double) MEASURED_ROUNDS;
+  }
+
+  private static QuizDTO quiz(List<QuestionDTO> pool, int round) {
+    List<QuestionDTO> questions = new ArrayList<>(5);
+    for (int i = 0; i < 5; i++) {
+      questions.add(pool.get((round * 7 + i * 13) % pool.size()));
+    }
+    return new QuizDTO("Java", questions.size(), questions);
+  }
+
+  private static List<QuestionDTO> pool() {
+    List<QuestionDTO> pool = new ArrayList<>(POOL_SIZE);
+    for (long id = 1; id <= POOL_SIZE; id++) {
+      List<OptionDTO> options = new ArrayList<>(4);
+      for (long o = 0; o < 4; o++) {
+        options.add(new OptionDTO(id * 4 + o, "Option " + o + " for question " + id, o == 0));
+      }
+      pool.add(
+          new QuestionDTO(
+              id,
+              "Which statement about Java records and their \"compact\" constructors is true? #"
+                  + id,
+              "MEDIUM",
+              "Records declare their state in the header; the compact constructor validates it.",
+              options));
+    }
+    return pool;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static QuizJsonMessageConverter converter(QuestionJsonCache cache) {
+    ObjectProvider<QuestionJsonCache> provider = mock(ObjectProvider.class);
+    when(provider.getIfAvailable()).thenReturn(cache);
+    return new QuizJsonMessageConverter(provider);
+  }
+
+  @FunctionalInterface
+  private interface Writer {
+    void write(QuizDTO quiz) throws Exception;
+  }
+}
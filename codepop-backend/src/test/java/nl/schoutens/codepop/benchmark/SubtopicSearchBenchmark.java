@@ -0,0 +1,114 @@
+package nl.schoutens.codepop.benchmark;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import nl.schoutens.codepop.repository.QuestionRepository;
+import nl.schoutens.codepop.service.QuizMaster;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Compares subtopic matching with {@code LOWER(subtopic) LIKE '%x%'} (the previous queries) against
+ * the FTS5 index, counting the available questions of one subtopic out of 100 in a topic of 10k,
+ * 100k and 300k questions.
+ *
+ * <p>Run with {@code ./mvnw test -Pbenchmark -Dtest=SubtopicSearchBenchmark}.
+ */
+@SpringBootTest(properties = "spring.jpa.show-sql=false")
+@ActiveProfiles("test")
+class SubtopicSearchBenchmark {
+
+  private static final int SUBTOPICS = 100;
+  private static final List<Long> EXCLUDED = List.of(-1L);
+
+  @TestConfiguration
+  static class TestConfig {
+    @Bean
+    public QuizMaster testQuizMaster() {
+      return (topic, count, existingQuestionTexts) -> Collections.emptyList();
+    }
+  }
+
+  @Autowired private QuestionRepository questionRepository;
+  @Autowired private JdbcTemplate jdbcTemplate;
+  @Autowired private TransactionTemplate transactionTemplate;
+
+  @Test
+  void compareLikeWithFullTextIndex() {
+    for (int size : new int[] {10_000, 100_000, 300_000}) {
+      long topicId = seedTopic("Bench" + size, size);
+      int rounds = Math.max(5, 2_000_000 / size);
+
+      // Warm up both paths once
+      long expected = like(topicId);
+      assertThat(fullText(topicId)).isEqualTo(expected).isEqualTo(size / SUBTOPICS);
+
+      long start = System.nanoTime();
+      for (int i = 0; i < rounds; i++) {
+        Benchmarks.consume(like(topicId));
+      }
+      double likeMillis = (System.nanoTime() - start) / 1e6 / rounds;
+
+      start = System.nanoTime();
+      for (int i = 0; i < rounds; i++) {
+        Benchmarks.consume(fullText(topicId));
+      }
+      double ftsMillis = (System.nanoTime() - start) / 1e6 / rounds;
+
+      Benchmarks.report("SubtopicSearch", "LIKE n=" + size, likeMillis, "ms/lookup");
+      Benchmarks.report("SubtopicSearch", "FTS5 n=" + size, ftsMillis, "ms/lookup");
+    }
+  }
+
+  private long like(long topicId) {
+    return jdbcTemplate.queryForObject(
+        "SELECT COUNT(*) FROM questions q WHERE q.topic_id = ? AND LOWER(q.subtopic) LIKE"
+            + " '%' || LOWER(?) || '%' AND q.id NOT IN (-1)",
+        Long.class, topicId, "subtopic42");
+  }
+
+  private long fullText(long topicId) {
+    return questionRepository.countAvailableByTopicIdAndSubtopic(topicId, "subtopic42", EXCLUDED);
+  }
+
+  private long seedTopic(String name, int questionCount) {
+    return transactionTemplate.execute(
+        status -> {
+          Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+          jdbcTemplate.update(
+              "INSERT INTO topics (name, category, created_at) VALUES (?, 'backend', ?)",
+              name,
+              now);
+          long topicId =
+              jdbcTemplate.queryForObject("SELECT id FROM topics WHERE name = ?", Long.class, name);
+
+          List<Object[]> questions = new ArrayList<>(questionCount);
+          for (int i = 0; i < questionCount; i++) {
+            questions.add(
+                new Object[] {
+                  topicId,
+                  "Benchmark question " + i + " about " + name + "?",
+                  "subtopic" + (i % SUBTOPICS),
+                  "EASY",
+                  now
+                });
+          }
+          jdbcTemplate.batchUpdate(
+              "INSERT INTO questions (topic_id, question_text, subtopic, difficulty, created_at)"
+                  + " VALUES (?, ?, ?, ?, ?)",
+              questions);
+          return topicId;
+        });
+  }
+}
@@ -0,0 +1,84 @@
+package nl.schoutens.codepop.benchmark;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import nl.schoutens.codepop.entity.Topic;
+import nl.schoutens.codepop.repository.TopicRepository;
+import nl.schoutens.codepop.service.TopicIndex;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Benchmark for TopicIndex resolution. Shows that the cost per lookup stays flat as the number of
+ * topics grows, and grows only with the length of the input itself (no per-word database
+ * round-trips).
+ *
+ * <p>Run with {@code ./mvnw test -Pbenchmark -Dtest=TopicIndexBenchmark}.
+ */
+class TopicIndexBenchmark {
+
+  private static final int WARMUP_ROUNDS = 20_000;
+  private static final int MEASURED_ROUNDS = 200_000;
+
+  @Test
+  void resolutionCostIsFlatInTopicCount() {
+    String input = "Kotlin coroutines and flows";
+    List<Double> results = new ArrayList<>();
+
+    for (int topicCount : new int[] {20, 200, 2_000, 20_000}) {
+      TopicIndex index = indexWith(topicCount);
+      double nanos = measure(index, input);
+      results.add(nanos);
+      Benchmarks.report("TopicIndex", "topics=" + topicCount, nanos, "ns/lookup");
+    }
+
+    assertTrue(
+        results.get(3) < results.get(0) * 5,
+        "Lookup cost should not scale with topic count: " + results);
+  }
+
+  @Test
+  void resolutionCostIsFlatInInputWordCount() {
+    TopicIndex index = indexWith(2_000);
+
+    for (int words : new int[] {1, 3, 6, 12}) {
+      StringBuilder input = new StringBuilder("Kotlin");
+      for (int i = 1; i < words; i++) {
+        input.append(" word").append(i);
+      }
+      double nanos = measure(index, input.toString());
+      Benchmarks.report("TopicIndex", "words=" + words, nanos, "ns/lookup");
+    }
+  }
+
+  private static TopicIndex indexWith(int topicCount) {
+    List<Topic> topics = new ArrayList<>();
+    for (int i = 0; i < topicCount; i++) {
+      Topic topic = new Topic("Topic" + i, "backend");
+      topic.setId((long) i);
+      topics.add(topic);
+    }
+    Topic kotlin = new Topic("Kotlin", "mobile");
+    kotlin.setId((long) topicCount);
+    topics.add(kotlin);
+
+    TopicRepository repository = mock(TopicRepository.class);
+    when(repository.findAll()).thenReturn(topics);
+    TopicIndex index = new TopicIndex(repository, "kt=Kotlin");
+    index.resolve("warm");
+    return index;
+  }
+
+  private static double measure(TopicIndex index, String input) {
+    for (int i = 0; i < WARMUP_ROUNDS; i++) {
+      Benchmarks.consume(index.resolve(input));
+    }
+    long start = System.nanoTime();
+    for (int i = 0; i < MEASURED_ROUNDS; i++) {
+      Benchmarks.consume(index.resolve(input));
+    }
+    return (System.nanoTime() - start) / (double) MEASURED_ROUNDS;
+  }
+}
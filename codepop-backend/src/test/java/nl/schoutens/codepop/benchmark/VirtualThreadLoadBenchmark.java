@@ -0,0 +1,117 @@
+package nl.schoutens.codepop.benchmark;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import nl.schoutens.codepop.CodePopApplication;
+import nl.schoutens.codepop.service.QuizMaster;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Load test for the servlet thread model: 1,000 concurrent {@code GET /api/quiz/{topic}} requests
+ * that all need a slow (5 s) LLM call, against the default Tomcat platform-thread pool and against
+ * virtual threads ({@code spring.threads.virtual.enabled}).
+ *
+ * <p>Every request asks for a different subtopic, so generation coalescing does not merge them. The
+ * virtual-thread run needs a Java 21+ runtime; on older JDKs Spring Boot keeps platform threads and
+ * the run is reported as skipped. Run with {@code JAVA_HOME=<jdk21> ./mvnw test -Pbenchmark
+ * -Dtest=VirtualThreadLoadBenchmark}.
+ */
+class VirtualThreadLoadBenchmark {
+
+  private static final int REQUESTS = 1_000;
+  private static final long LLM_MILLIS = 5_000;
+
+  @Configuration
+  static class SlowQuizMasterConfig {
+    @Bean
+    public QuizMaster slowQuizMaster() {
+      return (topic, count, existingQuestionTexts) -> {
+        try {
+          Thread.sleep(LLM_MILLIS);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        return Collections.emptyList();
+      };
+    }
+  }
+
+  @Test
+  void compareThreadModels() throws Exception {
+    run("platform threads", false);
+    if (Runtime.version().feature() >= 21) {
+      run("virtual threads", true);
+    } else {
+      Benchmarks.report("VirtualThreadLoad", "virtual threads (JDK 21+)", 0, "skipped");
+    }
+  }
+
+  private void run(String variant, boolean virtualThreads) throws Exception {
+    try (ConfigurableApplicationContext context =
+        new SpringApplicationBuilder(CodePopApplication.class, SlowQuizMasterConfig.class)
+            .profiles("test")
+            // Command-line arguments, so they override application.properties
+            .run(
+                "--server.port=0",
+                "--spring.threads.virtual.enabled=" + virtualThreads,
+                "--codepop.llm.max-concurrency=" + REQUESTS,
+                "--codepop.generation.wait-timeout=5m",
+                "--spring.jpa.show-sql=false",
+                "--logging.level.nl.schoutens.codepop=ERROR")) {
+      int port = context.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+      ExecutorService clientThreads = Executors.newFixedThreadPool(16);
+      HttpClient client =
+          HttpClient.newBuilder()
+              .executor(clientThreads)
+              .connectTimeout(Duration.ofSeconds(30))
+              .build();
+
+      List<CompletableFuture<Long>> latencies = new ArrayList<>(REQUESTS);
+      long start = System.nanoTime();
+      for (int i = 0; i < REQUESTS; i++) {
+        HttpRequest request =
+            HttpRequest.newBuilder(
+                    URI.create("http://localhost:" + port + "/api/quiz/Java%20load" + i))
+                .timeout(Duration.ofMinutes(2))
+                .build();
+        long sent = System.nanoTime();
+        latencies.add(
+            client
+                .sendAsync(request, HttpResponse.BodyHandlers.ofString())
+                .thenApply(
+                    response -> {
+                      assertThat(response.statusCode()).as(response.body()).isEqualTo(200);
+                      return System.nanoTime() - sent;
+                    }));
+      }
+      List<Long> sorted =
+          latencies.stream()
+              .map(CompletableFuture::join)
+              .sorted()
+              .collect(ArrayList::new, List::add, List::addAll);
+      double seconds = (System.nanoTime() - start) / 1e9;
+      clientThreads.shutdownNow();
+
+      Benchmarks.report("VirtualThreadLoad", variant + " throughput", REQUESTS / seconds, "req/s");
+      Benchmarks.report(
+          "VirtualThreadLoad", variant + " p50", sorted.get(REQUESTS / 2) / 1e6, "ms");
+      Benchmarks.report(
+          "VirtualThreadLoad", variant + " p99", sorted.get(REQUESTS * 99 / 100) / 1e6, "ms");
+    }
+  }
+}
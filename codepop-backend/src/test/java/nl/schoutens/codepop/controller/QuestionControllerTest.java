@@ -0,0 +1,122 @@
+package nl.schoutens.codepop.controller;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+import nl.schoutens.codepop.dto.ExplanationDTO;
+import nl.schoutens.codepop.dto.ImportReportDTO;
+import nl.schoutens.codepop.service.QuestionExporter;
+import nl.schoutens.codepop.service.QuestionImporter;
+import nl.schoutens.codepop.service.QuizService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.webmvc.test.autoconfigure.WebMvcTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+/** Unit tests for QuestionController. Uses @WebMvcTest with mocked services. */
+@WebMvcTest(QuestionController.class)
+class QuestionControllerTest {
+
+  @Autowired private MockMvc mockMvc;
+
+  @MockitoBean private QuizService quizService;
+
+  @MockitoBean private QuestionExporter questionExporter;
+
+  @MockitoBean private QuestionImporter questionImporter;
+
+  @Test
+  void getExplanations_shouldReturnExplanationsOfRequestedIds() throws Exception {
+    when(quizService.getExplanations(List.of(3L, 1L)))
+        .thenReturn(List.of(new ExplanationDTO(3L, "Three"), new ExplanationDTO(1L, null)));
+
+    mockMvc
+        .perform(get("/api/questions/explanations").param("ids", "3,1"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.length()").value(2))
+        .andExpect(jsonPath("$[0].id").value(3))
+        .andExpect(jsonPath("$[0].explanation").value("Three"))
+        .andExpect(jsonPath("$[1].id").value(1));
+
+    verify(quizService).getExplanations(List.of(3L, 1L));
+  }
+
+  @Test
+  void getExplanations_shouldReturn400_whenTooManyIds() throws Exception {
+    String ids =
+        LongStream.rangeClosed(1, QuestionController.MAX_EXPLANATION_IDS + 1)
+            .mapToObj(Long::toString)
+            .collect(Collectors.joining(","));
+
+    mockMvc
+        .perform(get("/api/questions/explanations").param("ids", ids))
+        .andExpect(status().isBadRequest())
+        .andExpect(jsonPath("$.status").value("400"));
+
+    verifyNoInteractions(quizService);
+  }
+
+  @Test
+  void export_shouldStreamNdjsonFromCursor() throws Exception {
+    LocalDateTime createdAfter = LocalDateTime.of(2026, 1, 1, 12, 0);
+    doAnswer(
+            invocation -> {
+              OutputStream out = invocation.getArgument(0);
+              out.write("{\"type\":\"end\",\"cursor\":42}\n".getBytes(StandardCharsets.UTF_8));
+              return 42L;
+            })
+        .when(questionExporter)
+        .export(any(), eq(41L), eq(createdAfter));
+
+    MvcResult result =
+        mockMvc
+            .perform(
+                get("/api/questions/export")
+                    .param("since", "41")
+                    .param("createdAfter", "2026-01-01T12:00:00"))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+
+    mockMvc
+        .perform(asyncDispatch(result))
+        .andExpect(status().isOk())
+        .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+        .andExpect(content().string("{\"type\":\"end\",\"cursor\":42}\n"));
+
+    verify(questionExporter).export(any(), eq(41L), eq(createdAfter));
+  }
+
+  @Test
+  void importQuestions_shouldReturnReport() throws Exception {
+    when(questionImporter.importQuestions(any()))
+        .thenReturn(new ImportReportDTO(3, 1, 1, 1, List.of("line 3: text is missing")));
+
+    mockMvc
+        .perform(
+            post("/api/questions/import")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .content("{}\n{}\n{}\n"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.imported").value(1))
+        .andExpect(jsonPath("$.duplicates").value(1))
+        .andExpect(jsonPath("$.invalid").value(1))
+        .andExpect(jsonPath("$.errors[0]").value("line 3: text is missing"));
+  }
+}
@@ -302,4 +302,71 @@ class QuizControllerIntegrationTest {
     // Note: CORS headers are typically set by browser preflight requests
     // In actual browser requests, the Access-Control-Allow-Origin header would be present
   }
+
+  @Test
+  void getQuiz_shouldNotRepeatQuestions_withinServerSideSession() {
+    ResponseEntity<String> session =
+        restTemplate.postForEntity(getBaseUrl() + "sessions", null, String.class);
+    assertThat(session.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+    String sessionId = session.getBody().replaceAll(".*\"sessionId\":\"([^\"]+)\".*", "$1");
+
+    ResponseEntity<String> first =
+        restTemplate.getForEntity(
+            getBaseUrl() + "Java records?sessionId=" + sessionId, String.class);
+    ResponseEntity<String> second =
+        restTemplate.getForEntity(
+            getBaseUrl() + "Java records?sessionId=" + sessionId, String.class);
+
+    assertThat(first.getBody()).contains("\"totalQuestions\":3");
+    assertThat(second.getBody()).contains("\"totalQuestions\":0");
+  }
+
+  @Test
+  void getQuiz_shouldReturn404_whenSessionUnknown() {
+    ResponseEntity<String> response =
+        restTemplate.getForEntity(getBaseUrl() + "Java?sessionId=unknown", String.class);
+
+    assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+    assertThat(response.getBody()).contains("Session not found");
+  }
+
+  @Test
+  void getQuiz_shouldNotRepeatQuestions_whenExclusionTokenPassedBack() {
+    ResponseEntity<String> first =
+        restTemplate.getForEntity(getBaseUrl() + "Java records?excludeToken=", String.class);
+    String token = first.getBody().replaceAll(".*\"excludeToken\":\"([^\"]+)\".*", "$1");
+
+    ResponseEntity<String> second =
+        restTemplate.getForEntity(
+            getBaseUrl() + "Java records?excludeToken=" + token, String.class);
+
+    assertThat(first.getBody()).contains("\"totalQuestions\":3");
+    assertThat(second.getStatusCode()).isEqualTo(HttpStatus.OK);
+    assertThat(second.getBody()).contains("\"totalQuestions\":0");
+    assertThat(second.getBody()).contains("\"excludeToken\":");
+  }
+
+  @Test
+  void streamQuiz_shouldSendQuestionEventsThenComplete() {
+    ResponseEntity<String> response =
+        restTemplate.getForEntity(getBaseUrl() + "Java records/stream", String.class);
+
+    assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+    assertThat(response.getHeaders().getContentType().toString()).startsWith("text/event-stream");
+    String body = response.getBody();
+    assertThat(body.split("event:question", -1)).hasSize(4);
+    assertThat(body).contains("event:complete");
+    assertThat(body.indexOf("event:complete")).isGreaterThan(body.lastIndexOf("event:question"));
+    assertThat(body).contains("\"totalQuestions\":3");
+  }
+
+  @Test
+  void streamQuiz_shouldSendErrorEvent_whenTopicNotFound() {
+    ResponseEntity<String> response =
+        restTemplate.getForEntity(getBaseUrl() + "Cobol/stream", String.class);
+
+    assertThat(response.getBody()).contains("event:error");
+    assertThat(response.getBody()).contains("Topic not found");
+    assertThat(response.getBody()).contains("\"status\":\"404\"");
+  }
 }
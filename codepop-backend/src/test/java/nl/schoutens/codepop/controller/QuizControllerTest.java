@@ -1,18 +1,29 @@
 package nl.schoutens.codepop.controller;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import java.time.Duration;
 import java.util.Arrays;
 import java.util.List;
+import nl.schoutens.codepop.config.QuizProtobufMessageConverter;
 import nl.schoutens.codepop.dto.OptionDTO;
 import nl.schoutens.codepop.dto.QuestionDTO;
 import nl.schoutens.codepop.dto.QuizDTO;
+import nl.schoutens.codepop.service.ExclusionTokenCodec;
+import nl.schoutens.codepop.service.ExclusionTokenCodec.InvalidExclusionTokenException;
 import nl.schoutens.codepop.service.QuizService;
+import nl.schoutens.codepop.service.QuizSessionStore;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.webmvc.test.autoconfigure.WebMvcTest;
@@ -30,6 +41,10 @@ class QuizControllerTest {
 
   @MockitoBean private QuizService quizService;
 
+  @MockitoBean private QuizSessionStore sessionStore;
+
+  @MockitoBean private ExclusionTokenCodec tokenCodec;
+
   @Test
   void getQuiz_shouldReturn200WithQuizData_whenTopicExists() throws Exception {
     List<OptionDTO> options =
@@ -42,7 +57,7 @@ class QuizControllerTest {
 
     QuizDTO quizDTO = new QuizDTO("Java", 2, questions);
 
-    when(quizService.getQuiz(eq("Java"), isNull())).thenReturn(quizDTO);
+    when(quizService.getQuiz(eq("Java"), isNull(), isNull(), eq(true))).thenReturn(quizDTO);
 
     mockMvc
         .perform(get("/api/quiz/Java").contentType(MediaType.APPLICATION_JSON))
@@ -59,7 +74,47 @@ class QuizControllerTest {
         .andExpect(jsonPath("$.questions[0].options[0].isCorrect").value(true))
         .andExpect(jsonPath("$.questions[1].explanation").doesNotExist());
 
-    verify(quizService).getQuiz("Java", null);
+    verify(quizService).getQuiz("Java", null, null, true);
+  }
+
+  @Test
+  void getQuiz_shouldReturnCbor_whenCborAccepted() throws Exception {
+    QuizDTO quizDTO =
+        new QuizDTO(
+            "Java",
+            1,
+            List.of(
+                new QuestionDTO(
+                    1L, "Question 1?", "EASY", null, List.of(new OptionDTO(1L, "A", true)))));
+    when(quizService.getQuiz(eq("Java"), isNull(), isNull(), eq(true))).thenReturn(quizDTO);
+
+    byte[] body =
+        mockMvc
+            .perform(get("/api/quiz/Java").accept(MediaType.APPLICATION_CBOR))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_CBOR))
+            .andReturn()
+            .getResponse()
+            .getContentAsByteArray();
+
+    JsonNode quiz = new CBORMapper().readTree(body);
+    assertEquals("Java", quiz.get("topic").asText());
+    assertEquals(1, quiz.get("questions").get(0).get("id").asLong());
+    assertTrue(quiz.get("questions").get(0).get("options").get(0).get("isCorrect").asBoolean());
+  }
+
+  @Test
+  void getQuiz_shouldReturnProtobuf_whenProtobufAccepted() throws Exception {
+    QuizDTO quizDTO = new QuizDTO("Java", 0, List.of());
+    when(quizService.getQuiz(eq("Java"), isNull(), isNull(), eq(true))).thenReturn(quizDTO);
+
+    mockMvc
+        .perform(
+            get("/api/quiz/Java").accept(QuizProtobufMessageConverter.APPLICATION_PROTOBUF))
+        .andExpect(status().isOk())
+        .andExpect(content().contentType(QuizProtobufMessageConverter.APPLICATION_PROTOBUF))
+        // topic = "Java" (field 1), total_questions = 0 (field 2)
+        .andExpect(content().bytes(new byte[] {0x0A, 4, 'J', 'a', 'v', 'a', 0x10, 0}));
   }
 
   @Test
@@ -69,7 +124,8 @@ class QuizControllerTest {
         List.of(new QuestionDTO(3L, "Question 3?", "HARD", null, options));
     QuizDTO quizDTO = new QuizDTO("React", 1, questions);
 
-    when(quizService.getQuiz(eq("React"), eq(Arrays.asList(1L, 2L)))).thenReturn(quizDTO);
+    when(quizService.getQuiz(eq("React"), eq(Arrays.asList(1L, 2L)), isNull(), eq(true)))
+        .thenReturn(quizDTO);
 
     mockMvc
         .perform(
@@ -81,13 +137,13 @@ class QuizControllerTest {
         .andExpect(jsonPath("$.totalQuestions").value(1))
         .andExpect(jsonPath("$.questions[0].id").value(3));
 
-    verify(quizService).getQuiz("React", Arrays.asList(1L, 2L));
+    verify(quizService).getQuiz("React", Arrays.asList(1L, 2L), null, true);
   }
 
   @Test
   void getQuiz_shouldReturn200WithEmptyQuestions_whenNoQuestionsAvailable() throws Exception {
     QuizDTO quizDTO = new QuizDTO("Python", 0, List.of());
-    when(quizService.getQuiz(eq("Python"), isNull())).thenReturn(quizDTO);
+    when(quizService.getQuiz(eq("Python"), isNull(), isNull(), eq(true))).thenReturn(quizDTO);
 
     mockMvc
         .perform(get("/api/quiz/Python").contentType(MediaType.APPLICATION_JSON))
@@ -99,7 +155,7 @@ class QuizControllerTest {
 
   @Test
   void getQuiz_shouldReturn404_whenTopicNotFound() throws Exception {
-    when(quizService.getQuiz(eq("NonExistent"), isNull()))
+    when(quizService.getQuiz(eq("NonExistent"), isNull(), isNull(), eq(true)))
         .thenThrow(new IllegalArgumentException("Topic not found: NonExistent"));
 
     mockMvc
@@ -116,20 +172,21 @@ class QuizControllerTest {
         List.of(new QuestionDTO(1L, "What keyword?", "EASY", null, options));
     QuizDTO quizDTO = new QuizDTO("Java records", 1, questions);
 
-    when(quizService.getQuiz(eq("Java records"), isNull())).thenReturn(quizDTO);
+    when(quizService.getQuiz(eq("Java records"), isNull(), isNull(), eq(true)))
+        .thenReturn(quizDTO);
 
     mockMvc
         .perform(get("/api/quiz/{topic}", "Java records").contentType(MediaType.APPLICATION_JSON))
         .andExpect(status().isOk())
         .andExpect(jsonPath("$.topic").value("Java records"));
 
-    verify(quizService).getQuiz("Java records", null);
+    verify(quizService).getQuiz("Java records", null, null, true);
   }
 
   @Test
   void getQuiz_shouldReturnCorrectCorsHeaders() throws Exception {
     QuizDTO quizDTO = new QuizDTO("Java", 0, List.of());
-    when(quizService.getQuiz(any(), any())).thenReturn(quizDTO);
+    when(quizService.getQuiz(any(), any(), any(), anyBoolean())).thenReturn(quizDTO);
 
     mockMvc
         .perform(
@@ -139,4 +196,134 @@ class QuizControllerTest {
         .andExpect(status().isOk())
         .andExpect(header().string("Access-Control-Allow-Origin", "http://localhost:5173"));
   }
+
+  @Test
+  void getQuiz_shouldRequestSlimQuiz_whenSlimSet() throws Exception {
+    QuizDTO quizDTO = new QuizDTO("Java", 0, List.of());
+    when(quizService.getQuiz(eq("Java"), isNull(), isNull(), eq(false))).thenReturn(quizDTO);
+
+    mockMvc
+        .perform(get("/api/quiz/Java").param("slim", "true"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.topic").value("Java"));
+
+    verify(quizService).getQuiz("Java", null, null, false);
+  }
+
+  @Test
+  void getQuiz_shouldPassSessionIdToService() throws Exception {
+    QuizDTO quizDTO = new QuizDTO("Java", 0, List.of());
+    when(quizService.getQuiz(eq("Java"), isNull(), eq("abc"), eq(true))).thenReturn(quizDTO);
+
+    mockMvc
+        .perform(get("/api/quiz/Java").param("sessionId", "abc"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.topic").value("Java"));
+
+    verify(quizService).getQuiz("Java", null, "abc", true);
+  }
+
+  @Test
+  void createSession_shouldReturn201WithSessionId() throws Exception {
+    when(sessionStore.create()).thenReturn("abc");
+    when(sessionStore.ttl()).thenReturn(Duration.ofHours(2));
+
+    mockMvc
+        .perform(post("/api/quiz/sessions"))
+        .andExpect(status().isCreated())
+        .andExpect(jsonPath("$.sessionId").value("abc"))
+        .andExpect(jsonPath("$.ttlSeconds").value(7200));
+  }
+
+  @Test
+  void getQuiz_shouldMergeTokenIdsAndReturnUpdatedToken() throws Exception {
+    List<OptionDTO> options = List.of(new OptionDTO(1L, "Option A", true));
+    QuizDTO quizDTO =
+        new QuizDTO("Java", 1, List.of(new QuestionDTO(9L, "Q?", "EASY", null, options)));
+    when(tokenCodec.decode("tok")).thenReturn(new long[] {1L, 2L});
+    when(quizService.getQuiz(eq("Java"), anyList(), isNull(), eq(true))).thenReturn(quizDTO);
+    when(tokenCodec.encode(anyCollection())).thenReturn("tok2");
+
+    mockMvc
+        .perform(
+            get("/api/quiz/Java").param("excludeToken", "tok").param("excludeQuestionIds", "3"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.excludeToken").value("tok2"));
+
+    verify(quizService)
+        .getQuiz(
+            eq("Java"),
+            argThat(ids -> ids.containsAll(List.of(1L, 2L, 3L))),
+            isNull(),
+            eq(true));
+    verify(tokenCodec).encode(argThat(ids -> ids.containsAll(List.of(1L, 2L, 3L, 9L))));
+  }
+
+  @Test
+  void getQuiz_shouldReturn400_whenTokenInvalid() throws Exception {
+    when(tokenCodec.decode("bad")).thenThrow(new InvalidExclusionTokenException("bad token"));
+
+    mockMvc
+        .perform(get("/api/quiz/Java").param("excludeToken", "bad"))
+        .andExpect(status().isBadRequest())
+        .andExpect(jsonPath("$.error").value("bad token"))
+        .andExpect(jsonPath("$.status").value("400"));
+  }
+
+  @Test
+  void getQuiz_shouldReturn400_whenExcludedIdIsNegativeWithToken() throws Exception {
+    when(tokenCodec.decode("tok")).thenReturn(new long[] {1L});
+
+    mockMvc
+        .perform(
+            get("/api/quiz/Java").param("excludeToken", "tok").param("excludeQuestionIds", "-3"))
+        .andExpect(status().isBadRequest())
+        .andExpect(jsonPath("$.error").value("Excluded question ids must not be negative: -3"))
+        .andExpect(jsonPath("$.status").value("400"));
+
+    verify(quizService, never()).getQuiz(any(), any(), any(), anyBoolean());
+  }
+
+  @Test
+  void getQuiz_shouldOmitToken_whenClientDoesNotUseTokens() throws Exception {
+    QuizDTO quizDTO = new QuizDTO("Java", 0, List.of());
+    when(quizService.getQuiz(eq("Java"), isNull(), isNull(), eq(true))).thenReturn(quizDTO);
+
+    mockMvc
+        .perform(get("/api/quiz/Java"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.excludeToken").doesNotExist());
+  }
+
+  @Test
+  void getQuizzes_shouldReturnOneQuizPerSpec() throws Exception {
+    List<QuizDTO> quizzes =
+        List.of(new QuizDTO("Java", 0, List.of()), new QuizDTO("React hooks", 0, List.of()));
+    when(quizService.getQuizzes(anyList(), eq(true))).thenReturn(quizzes);
+
+    mockMvc
+        .perform(
+            post("/api/quiz/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(
+                    "{\"quizzes\": [{\"topic\": \"Java\"},"
+                        + " {\"topic\": \"React hooks\", \"count\": 10}]}"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.quizzes.length()").value(2))
+        .andExpect(jsonPath("$.quizzes[1].topic").value("React hooks"));
+
+    verify(quizService)
+        .getQuizzes(argThat(specs -> specs.size() == 2 && specs.get(1).count() == 10), eq(true));
+  }
+
+  @Test
+  void getQuizzes_shouldReturn400_whenBatchEmpty() throws Exception {
+    mockMvc
+        .perform(
+            post("/api/quiz/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"quizzes\": []}"))
+        .andExpect(status().isBadRequest())
+        .andExpect(jsonPath("$.status").value("400"));
+  }
 }
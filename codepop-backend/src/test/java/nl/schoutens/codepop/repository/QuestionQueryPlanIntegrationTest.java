@@ -0,0 +1,128 @@
+package nl.schoutens.codepop.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import nl.schoutens.codepop.service.QuizMaster;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.Named;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+/**
+ * EXPLAIN QUERY PLAN checks for the quiz read path against the migrated test database: none of
+ * the hot queries may scan {@code questions} or {@code question_options} in full. Native queries
+ * are taken from the {@link QuestionRepository} annotations, so changing one is checked too; the
+ * JPQL ones are run once and the SQL Hibernate sends for them is captured by {@link SqlRecorder}.
+ */
+@SpringBootTest(
+    webEnvironment = SpringBootTest.WebEnvironment.NONE,
+    properties =
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+            + "nl.schoutens.codepop.repository.QuestionQueryPlanIntegrationTest$SqlRecorder")
+@ActiveProfiles("test")
+class QuestionQueryPlanIntegrationTest {
+
+  /** A full table or index scan of a real table; FTS5 lookups show up as "SCAN ... VIRTUAL". */
+  private static final Pattern FULL_SCAN = Pattern.compile("^SCAN (?!.*VIRTUAL TABLE).*");
+
+  private static final Pattern NAMED_PARAMETER = Pattern.compile(":\\w+");
+
+  @TestConfiguration
+  static class TestConfig {
+    @Bean
+    public QuizMaster testQuizMaster() {
+      return (topic, count, existingQuestionTexts) -> Collections.emptyList();
+    }
+  }
+
+  /** Records the SQL of every statement Hibernate prepares; the SQL itself is left unchanged. */
+  public static class SqlRecorder implements StatementInspector {
+    static final List<String> STATEMENTS = new CopyOnWriteArrayList<>();
+
+    @Override
+    public String inspect(String sql) {
+      STATEMENTS.add(sql);
+      return sql;
+    }
+  }
+
+  @Autowired private JdbcTemplate jdbcTemplate;
+
+  @Autowired private QuestionRepository questionRepository;
+
+  static Stream<String> nativeQueries() {
+    return Arrays.stream(QuestionRepository.class.getDeclaredMethods())
+        .map(method -> method.getAnnotation(Query.class))
+        .filter(query -> query != null && query.nativeQuery())
+        .map(query -> NAMED_PARAMETER.matcher(query.value()).replaceAll("?"));
+  }
+
+  static Stream<Named<Consumer<QuestionRepository>>> jpqlQueries() {
+    List<Long> ids = List.of(1L, 2L, 3L);
+    return Stream.of(
+        Named.of("findRowsByTopicId", repository -> repository.findRowsByTopicId(1L)),
+        Named.of(
+            "findRowsByTopicIdAndSubtopicMatch",
+            repository -> repository.findRowsByTopicIdAndSubtopicMatch(1L, "\"records\"")),
+        Named.of("findExplanationsByIdIn", repository -> repository.findExplanationsByIdIn(ids)),
+        Named.of(
+            "findOptionRowsByQuestionIdIn",
+            repository -> repository.findOptionRowsByQuestionIdIn(ids)),
+        Named.of(
+            "countAvailableByTopicId",
+            repository -> repository.countAvailableByTopicId(1L, List.of(1L, 2L))),
+        Named.of("findByTopicId", repository -> repository.findByTopicId(1L)),
+        Named.of(
+            "findByTopicIdAndSubtopicMatch",
+            repository -> repository.findByTopicIdAndSubtopicMatch(1L, "\"records\"")),
+        Named.of("findWithOptionsByIdIn", repository -> repository.findWithOptionsByIdIn(ids)));
+  }
+
+  @ParameterizedTest
+  @MethodSource("nativeQueries")
+  void nativeQueries_shouldNotScanQuestionsOrOptions(String sql) {
+    assertThat(plan(sql)).isNotEmpty().noneMatch(step -> FULL_SCAN.matcher(step).matches());
+  }
+
+  @ParameterizedTest
+  @MethodSource("jpqlQueries")
+  void jpqlQueries_shouldNotScanQuestionsOrOptions(Consumer<QuestionRepository> query) {
+    SqlRecorder.STATEMENTS.clear();
+    query.accept(questionRepository);
+
+    assertThat(SqlRecorder.STATEMENTS)
+        .isNotEmpty()
+        .allSatisfy(
+            sql ->
+                assertThat(plan(sql))
+                    .as(sql)
+                    .isNotEmpty()
+                    .noneMatch(step -> FULL_SCAN.matcher(step).matches()));
+  }
+
+  @Test
+  void topicQueries_shouldSearchTheTopicIndex() {
+    assertThat(plan("SELECT q.id FROM questions q WHERE q.topic_id = ?"))
+        .containsExactly("SEARCH q USING COVERING INDEX idx_questions_topic (topic_id=?)");
+  }
+
+  private List<String> plan(String sql) {
+    return jdbcTemplate.query(
+        "EXPLAIN QUERY PLAN " + sql, (row, rowNum) -> row.getString("detail"));
+  }
+}
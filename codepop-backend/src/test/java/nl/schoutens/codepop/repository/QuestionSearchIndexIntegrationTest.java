@@ -0,0 +1,124 @@
+package nl.schoutens.codepop.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Collections;
+import java.util.List;
+import nl.schoutens.codepop.entity.Question;
+import nl.schoutens.codepop.entity.Question.Difficulty;
+import nl.schoutens.codepop.entity.Topic;
+import nl.schoutens.codepop.service.QuizMaster;
+import nl.schoutens.codepop.service.QuizService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.test.context.ActiveProfiles;
+
+/**
+ * Integration tests for subtopic matching through the FTS5 index against the SQLite test database:
+ * tokenized, prefix and stemmed matches, and index sync for JPA and batch inserts, updates and
+ * deletes.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@ActiveProfiles("test")
+class QuestionSearchIndexIntegrationTest {
+
+  @TestConfiguration
+  static class TestConfig {
+    @Bean
+    public QuizMaster testQuizMaster() {
+      return (topic, count, existingQuestionTexts) -> Collections.emptyList();
+    }
+  }
+
+  @Autowired private QuestionRepository questionRepository;
+
+  @Autowired private TopicRepository topicRepository;
+
+  @Autowired private QuizService.TransactionalOperations txOps;
+
+  private Topic java;
+
+  @BeforeEach
+  void setUp() {
+    questionRepository.deleteAll();
+    topicRepository.deleteAll();
+    java = topicRepository.save(new Topic("Java", "backend"));
+  }
+
+  @Test
+  void subtopicQuery_shouldQuotePrefixTermsAndDropOperators() {
+    assertThat(QuestionSearchIndex.subtopicQuery("Pattern matching"))
+        .isEqualTo("subtopic : (\"pattern\"* \"matching\"*)");
+    assertThat(QuestionSearchIndex.subtopicQuery("records\" OR NEAR(*"))
+        .isEqualTo("subtopic : (\"records\"* \"or\"* \"near\"*)");
+    assertThat(QuestionSearchIndex.subtopicQuery(" -*- ")).isNull();
+  }
+
+  @Test
+  void findByTopicIdAndSubtopicMatching_shouldMatchStemsPrefixesAndAllWords() {
+    save("Records", "sealed classes", "Pattern matching", "Virtual threads");
+
+    assertThat(subtopics("record")).containsExactly("Records");
+    assertThat(subtopics("RECORDS")).containsExactly("Records");
+    assertThat(subtopics("seal")).containsExactly("sealed classes");
+    assertThat(subtopics("pattern matches")).containsExactly("Pattern matching");
+    assertThat(subtopics("virtual records")).isEmpty();
+    assertThat(subtopics("!!")).isEmpty();
+  }
+
+  @Test
+  void subtopicMatching_shouldOnlyReturnQuestionsOfTheTopic() {
+    Topic python = topicRepository.save(new Topic("Python", "backend"));
+    save("records");
+    questionRepository.save(
+        new Question(python, "Python records?", "records", Difficulty.EASY, null));
+
+    assertThat(questionRepository.findByTopicIdAndSubtopicMatching(java.getId(), "records"))
+        .singleElement()
+        .satisfies(q -> assertThat(q.getQuestionText()).startsWith("records"));
+    assertThat(
+            questionRepository.countAvailableByTopicIdAndSubtopic(
+                python.getId(), "record", List.of(-1L)))
+        .isEqualTo(1);
+  }
+
+  @Test
+  void index_shouldFollowBatchInsertsUpdatesAndDeletes() {
+    List<Question> batch =
+        List.of(
+            new Question(java, "Streams 1?", "streams", Difficulty.EASY, null),
+            new Question(java, "Streams 2?", "streams", Difficulty.EASY, null));
+    txOps.saveQuestions(batch);
+    assertThat(txOps.fetchPool(java.getId(), "stream")).hasSize(2);
+
+    Question renamed = questionRepository.findById(batch.get(0).getId()).orElseThrow();
+    renamed.setSubtopic("collectors");
+    questionRepository.save(renamed);
+    questionRepository.deleteById(batch.get(1).getId());
+
+    assertThat(txOps.fetchPool(java.getId(), "stream")).isEmpty();
+    assertThat(txOps.fetchPool(java.getId(), "collector")).hasSize(1);
+    assertThat(
+            questionRepository.sampleIdsByTopicIdAndSubtopic(
+                java.getId(), "collectors", List.of(-1L), 5))
+        .singleElement()
+        .satisfies(id -> assertThat(id.longValue()).isEqualTo(renamed.getId()));
+  }
+
+  private void save(String... subtopics) {
+    for (String subtopic : subtopics) {
+      questionRepository.save(
+          new Question(java, subtopic + " question?", subtopic, Difficulty.MEDIUM, null));
+    }
+  }
+
+  private List<String> subtopics(String subtopic) {
+    return questionRepository.findByTopicIdAndSubtopicMatching(java.getId(), subtopic).stream()
+        .map(Question::getSubtopic)
+        .toList();
+  }
+}
@@ -0,0 +1,86 @@
+package nl.schoutens.codepop.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.LongStream;
+import nl.schoutens.codepop.service.ExclusionTokenCodec.InvalidExclusionTokenException;
+import org.junit.jupiter.api.Test;
+
+/** Unit tests for ExclusionTokenCodec. Verifies round-trips, compactness and tamper detection. */
+class ExclusionTokenCodecTest {
+
+  private final ExclusionTokenCodec codec = new ExclusionTokenCodec("test-secret");
+
+  @Test
+  void encode_shouldRoundTripSortedDistinctIds() {
+    String token = codec.encode(List.of(42L, 7L, 42L, 1_000_000_000_000L, 0L));
+
+    assertArrayEquals(new long[] {0L, 7L, 42L, 1_000_000_000_000L}, codec.decode(token));
+  }
+
+  @Test
+  void encode_shouldRoundTripEmptySet() {
+    assertArrayEquals(new long[0], codec.decode(codec.encode(List.of())));
+  }
+
+  @Test
+  void encode_shouldStayCompactForHundredsOfIds() {
+    List<Long> ids = LongStream.rangeClosed(1_000, 1_499).boxed().toList();
+
+    String token = codec.encode(ids);
+
+    assertTrue(token.length() < 64, "Token for 500 ids was " + token.length() + " chars");
+    assertEquals(500, codec.decode(token).length);
+  }
+
+  @Test
+  void encode_shouldRoundTripSparseIds() {
+    Random random = new Random(7);
+    List<Long> ids = new ArrayList<>();
+    for (int i = 0; i < 300; i++) {
+      ids.add((long) random.nextInt(50_000));
+    }
+
+    long[] decoded = codec.decode(codec.encode(ids));
+
+    assertArrayEquals(
+        ids.stream().mapToLong(Long::longValue).sorted().distinct().toArray(), decoded);
+  }
+
+  @Test
+  void encode_shouldRejectMoreThanMaxIds() {
+    List<Long> ids = LongStream.rangeClosed(1, ExclusionTokenCodec.MAX_IDS + 1).boxed().toList();
+
+    assertThrows(InvalidExclusionTokenException.class, () -> codec.encode(ids));
+  }
+
+  @Test
+  void encode_shouldRejectNegativeIds() {
+    assertThrows(InvalidExclusionTokenException.class, () -> codec.encode(List.of(3L, -1L)));
+  }
+
+  @Test
+  void decode_shouldRejectTamperedToken() {
+    String token = codec.encode(List.of(1L, 2L, 3L));
+    char last = token.charAt(3);
+    String tampered = token.substring(0, 3) + (last == 'A' ? 'B' : 'A') + token.substring(4);
+
+    assertThrows(InvalidExclusionTokenException.class, () -> codec.decode(tampered));
+  }
+
+  @Test
+  void decode_shouldRejectTokenSignedWithOtherSecret() {
+    String token = new ExclusionTokenCodec("other-secret").encode(List.of(1L, 2L, 3L));
+
+    assertThrows(InvalidExclusionTokenException.class, () -> codec.decode(token));
+  }
+
+  @Test
+  void decode_shouldRejectGarbage() {
+    assertThrows(InvalidExclusionTokenException.class, () -> codec.decode("not a token!"));
+    assertThrows(InvalidExclusionTokenException.class, () -> codec.decode("AAAA"));
+  }
+}
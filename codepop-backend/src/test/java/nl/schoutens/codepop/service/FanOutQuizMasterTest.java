@@ -0,0 +1,234 @@
+package nl.schoutens.codepop.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import nl.schoutens.codepop.entity.Question;
+import nl.schoutens.codepop.entity.Question.Difficulty;
+import nl.schoutens.codepop.service.FanOutQuizMaster.Slice;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+
+/**
+ * Unit tests for FanOutQuizMaster. Verifies the prompt split, merging, the deadline and the LLM
+ * permits.
+ */
+class FanOutQuizMasterTest {
+
+  private final SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("fan-out-test-");
+
+  @Test
+  void slices_shouldSplitByDifficultyBucket() {
+    assertEquals(
+        List.of(
+            new Slice(Difficulty.EASY, 4),
+            new Slice(Difficulty.MEDIUM, 4),
+            new Slice(Difficulty.HARD, 2)),
+        FanOutQuizMaster.slices(10, 3));
+    assertEquals(
+        List.of(new Slice(null, 6), new Slice(Difficulty.MEDIUM, 4)),
+        FanOutQuizMaster.slices(10, 2));
+    assertEquals(List.of(new Slice(null, 10)), FanOutQuizMaster.slices(10, 1));
+    assertEquals(List.of(new Slice(Difficulty.EASY, 1)), FanOutQuizMaster.slices(1, 3));
+  }
+
+  @Test
+  void slices_shouldSplitLargestBuckets_whenParallelismExceedsBuckets() {
+    List<Slice> slices = FanOutQuizMaster.slices(10, 5);
+
+    assertEquals(5, slices.size());
+    assertEquals(10, slices.stream().mapToInt(Slice::count).sum());
+    assertEquals(4, slices.stream().filter(s -> s.difficulty() != Difficulty.HARD).count());
+  }
+
+  @Test
+  void generateQuestions_shouldMergeAndDeduplicateConcurrentPrompts() {
+    List<Difficulty> requested = Collections.synchronizedList(new ArrayList<>());
+    CountDownLatch allStarted = new CountDownLatch(3);
+    QuizMaster delegate =
+        new StubQuizMaster() {
+          @Override
+          public List<Question> generateQuestions(
+              String topic,
+              int count,
+              List<String> existing,
+              Difficulty difficulty,
+              Consumer<Question> onQuestion) {
+            requested.add(difficulty);
+            allStarted.countDown();
+            // Only returns once all prompts run at the same time
+            await(allStarted);
+            List<Question> questions = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+              // Every prompt repeats "Shared" and the existing "Old" question
+              String text = i == 0 ? "Shared" : i == 1 ? " old " : difficulty + " " + i;
+              questions.add(question(text, difficulty));
+            }
+            questions.forEach(onQuestion);
+            return questions;
+          }
+        };
+    List<Question> streamed = new ArrayList<>();
+
+    List<Question> result =
+        new FanOutQuizMaster(delegate, executor, 3, Duration.ofSeconds(5))
+            .generateQuestions("Java", 10, List.of("Old"), streamed::add);
+
+    assertEquals(3, requested.size());
+    assertTrue(requested.containsAll(List.of(Difficulty.EASY, Difficulty.MEDIUM, Difficulty.HARD)));
+    // 10 requested, minus 2 duplicates of "Shared" and 3 of "Old"
+    assertEquals(5, result.size());
+    assertEquals(1, result.stream().filter(q -> q.getQuestionText().equals("Shared")).count());
+    assertEquals(result, streamed);
+  }
+
+  @Test
+  void generateQuestions_shouldReturnPartialResult_whenDeadlinePasses() {
+    QuizMaster delegate =
+        new StubQuizMaster() {
+          @Override
+          public List<Question> generateQuestions(
+              String topic,
+              int count,
+              List<String> existing,
+              Difficulty difficulty,
+              Consumer<Question> onQuestion) {
+            if (difficulty == Difficulty.EASY) {
+              Question question = question("Quick", difficulty);
+              onQuestion.accept(question);
+              return List.of(question);
+            }
+            await(new CountDownLatch(1));
+            return List.of();
+          }
+        };
+
+    long start = System.nanoTime();
+    List<Question> result =
+        new FanOutQuizMaster(delegate, executor, 3, Duration.ofMillis(200))
+            .generateQuestions("Java", 10, List.of());
+
+    assertEquals(1, result.size());
+    assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(4));
+  }
+
+  @Test
+  void generateQuestions_shouldStayWithinLlmPermits_whenGenerationsRunConcurrently()
+      throws Exception {
+    GenerationCoalescer coalescer =
+        new GenerationCoalescer(Duration.ofSeconds(5), Duration.ZERO, 2);
+    AtomicInteger running = new AtomicInteger();
+    AtomicInteger maxRunning = new AtomicInteger();
+    AtomicInteger prompts = new AtomicInteger();
+    QuizMaster delegate =
+        new StubQuizMaster() {
+          @Override
+          public List<Question> generateQuestions(
+              String topic, int count, List<String> existing, Consumer<Question> onQuestion) {
+            return generateQuestions(topic, count, existing, null, onQuestion);
+          }
+
+          @Override
+          public List<Question> generateQuestions(
+              String topic,
+              int count,
+              List<String> existing,
+              Difficulty difficulty,
+              Consumer<Question> onQuestion) {
+            prompts.incrementAndGet();
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            try {
+              Thread.sleep(100);
+            } catch (InterruptedException e) {
+              Thread.currentThread().interrupt();
+            }
+            running.decrementAndGet();
+            List<Question> questions = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+              questions.add(question(topic + " " + difficulty + " " + i, difficulty));
+            }
+            questions.forEach(onQuestion);
+            return questions;
+          }
+        };
+    FanOutQuizMaster fanOut =
+        new FanOutQuizMaster(delegate, executor, 3, Duration.ofSeconds(5), coalescer);
+    ExecutorService requests = Executors.newFixedThreadPool(4);
+
+    try {
+      List<Future<List<Question>>> generations = new ArrayList<>();
+      for (long topicId = 1; topicId <= 4; topicId++) {
+        String topic = "Topic " + topicId;
+        long id = topicId;
+        generations.add(
+            requests.submit(
+                () ->
+                    coalescer.generate(
+                        id, null, () -> fanOut.generateQuestions(topic, 10, List.of()))));
+      }
+      for (Future<List<Question>> generation : generations) {
+        assertEquals(10, generation.get(10, TimeUnit.SECONDS).size());
+      }
+    } finally {
+      requests.shutdownNow();
+    }
+
+    // 4 generations of up to 3 prompts each, never more than 2 LLM calls at once
+    assertEquals(2, maxRunning.get());
+
+    // All permits were returned: a generation on its own splits into 2 prompts
+    prompts.set(0);
+    coalescer.generate(5L, null, () -> fanOut.generateQuestions("Topic 5", 10, List.of()));
+    assertEquals(2, prompts.get());
+  }
+
+  @Test
+  void generateQuestions_shouldDelegateDirectly_whenParallelismIsOne() {
+    List<Difficulty> requested = new ArrayList<>();
+    QuizMaster delegate =
+        new StubQuizMaster() {
+          @Override
+          public List<Question> generateQuestions(
+              String topic, int count, List<String> existing, Consumer<Question> onQuestion) {
+            requested.add(null);
+            return List.of(question("Only", null));
+          }
+        };
+
+    List<Question> result =
+        new FanOutQuizMaster(delegate, executor, 1, Duration.ofSeconds(5))
+            .generateQuestions("Java", 10, List.of());
+
+    assertEquals(1, result.size());
+    assertEquals(1, requested.size());
+  }
+
+  private abstract static class StubQuizMaster implements QuizMaster {
+    @Override
+    public List<Question> generateQuestions(String topic, int count, List<String> existing) {
+      return generateQuestions(topic, count, existing, question -> {});
+    }
+  }
+
+  private static Question question(String text, Difficulty difficulty) {
+    return new Question(null, text, null, difficulty, null);
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      latch.await(5, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
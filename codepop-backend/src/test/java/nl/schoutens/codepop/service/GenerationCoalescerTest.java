@@ -0,0 +1,316 @@
+package nl.schoutens.codepop.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import nl.schoutens.codepop.entity.Question;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for GenerationCoalescer. Verifies single-flight behavior, timeouts, failures and the
+ * LLM permits.
+ */
+class GenerationCoalescerTest {
+
+  private final ExecutorService executor = Executors.newFixedThreadPool(8);
+
+  @AfterEach
+  void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  void generate_shouldRunOnceForConcurrentCallersOfSamePool() throws Exception {
+    GenerationCoalescer coalescer =
+        new GenerationCoalescer(Duration.ofSeconds(5), Duration.ZERO, 2);
+    AtomicInteger calls = new AtomicInteger();
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    List<Question> generated = List.of(new Question());
+
+    Future<List<Question>> leader =
+        executor.submit(
+            () ->
+                coalescer.generate(
+                    1L,
+                    "Records",
+                    () -> {
+                      calls.incrementAndGet();
+                      started.countDown();
+                      await(release);
+                      return generated;
+                    }));
+    assertTrue(started.await(5, TimeUnit.SECONDS));
+
+    List<Future<List<Question>>> joiners = new ArrayList<>();
+    for (int i = 0; i < 5; i++) {
+      joiners.add(
+          executor.submit(
+              () ->
+                  coalescer.generate(
+                      1L,
+                      " records ",
+                      () -> {
+                        calls.incrementAndGet();
+                        return List.of();
+                      })));
+    }
+    // Give the joiners time to find the running generation
+    Thread.sleep(200);
+    assertEquals(1, coalescer.inFlightCount());
+    release.countDown();
+
+    assertSame(generated, leader.get(5, TimeUnit.SECONDS));
+    for (Future<List<Question>> joiner : joiners) {
+      assertSame(generated, joiner.get(5, TimeUnit.SECONDS));
+    }
+    assertEquals(1, calls.get());
+    assertEquals(1, coalescer.leaderCount());
+    assertEquals(5, coalescer.joinedCount());
+    assertEquals(0, coalescer.inFlightCount());
+  }
+
+  @Test
+  void generate_shouldNotCoalesceDifferentPools() {
+    GenerationCoalescer coalescer =
+        new GenerationCoalescer(Duration.ofSeconds(5), Duration.ZERO, 2);
+
+    assertEquals(
+        2, coalescer.generate(1L, "records", () -> List.of(new Question(), new Question())).size());
+    assertEquals(1, coalescer.generate(1L, "streams", () -> List.of(new Question())).size());
+    assertEquals(0, coalescer.generate(2L, null, List::of).size());
+
+    assertEquals(3, coalescer.leaderCount());
+    assertEquals(0, coalescer.joinedCount());
+  }
+
+  @Test
+  void generate_shouldReturnEmptyList_whenWaitTimesOut() throws Exception {
+    GenerationCoalescer coalescer =
+        new GenerationCoalescer(Duration.ofMillis(50), Duration.ZERO, 2);
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+
+    Future<List<Question>> leader =
+        executor.submit(
+            () ->
+                coalescer.generate(
+                    1L,
+                    null,
+                    () -> {
+                      started.countDown();
+                      await(release);
+                      return List.of(new Question());
+                    }));
+    assertTrue(started.await(5, TimeUnit.SECONDS));
+
+    List<Question> result = coalescer.generate(1L, null, List::of);
+    release.countDown();
+
+    assertTrue(result.isEmpty());
+    assertEquals(1, leader.get(5, TimeUnit.SECONDS).size());
+    assertEquals(1, coalescer.timeoutCount());
+  }
+
+  @Test
+  void generate_shouldWaitForGenerationDeadline_whenJoining() throws Exception {
+    GenerationCoalescer coalescer =
+        new GenerationCoalescer(Duration.ofMillis(50), Duration.ofSeconds(5), 2);
+    CountDownLatch started = new CountDownLatch(1);
+
+    Future<List<Question>> leader =
+        executor.submit(
+            () ->
+                coalescer.generate(
+                    1L,
+                    null,
+                    () -> {
+                      started.countDown();
+                      sleep(300);
+                      return List.of(new Question());
+                    }));
+    assertTrue(started.await(5, TimeUnit.SECONDS));
+
+    // The generation takes longer than the permit wait-timeout, but not than its deadline
+    assertEquals(1, coalescer.generate(1L, null, List::of).size());
+    assertEquals(1, leader.get(5, TimeUnit.SECONDS).size());
+    assertEquals(0, coalescer.timeoutCount());
+  }
+
+  @Test
+  void generate_shouldPropagateFailureToJoiners() throws Exception {
+    GenerationCoalescer coalescer =
+        new GenerationCoalescer(Duration.ofSeconds(5), Duration.ZERO, 2);
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+
+    Future<List<Question>> leader =
+        executor.submit(
+            () ->
+                coalescer.generate(
+                    1L,
+                    null,
+                    () -> {
+                      started.countDown();
+                      await(release);
+                      throw new IllegalStateException("LLM down");
+                    }));
+    assertTrue(started.await(5, TimeUnit.SECONDS));
+    Future<List<Question>> joiner = executor.submit(() -> coalescer.generate(1L, null, List::of));
+    Thread.sleep(200);
+    release.countDown();
+
+    Exception leaderError = assertThrows(Exception.class, () -> leader.get(5, TimeUnit.SECONDS));
+    Exception joinerError = assertThrows(Exception.class, () -> joiner.get(5, TimeUnit.SECONDS));
+    assertEquals("LLM down", leaderError.getCause().getMessage());
+    assertEquals("LLM down", joinerError.getCause().getMessage());
+
+    // A failed generation is not remembered; the next caller starts a fresh one
+    assertEquals(1, coalescer.generate(1L, null, () -> List.of(new Question())).size());
+  }
+
+  @Test
+  void generate_shouldGiveUp_whenNoLlmPermitWithinWaitTimeout() throws Exception {
+    GenerationCoalescer coalescer =
+        new GenerationCoalescer(Duration.ofMillis(50), Duration.ZERO, 1);
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    Future<List<Question>> background =
+        executor.submit(
+            () ->
+                coalescer.generateInBackground(
+                    1L,
+                    null,
+                    () -> {
+                      started.countDown();
+                      await(release);
+                      return List.of(new Question());
+                    }));
+    assertTrue(started.await(5, TimeUnit.SECONDS));
+    AtomicInteger calls = new AtomicInteger();
+
+    List<Question> result =
+        coalescer.generate(
+            2L,
+            null,
+            () -> {
+              calls.incrementAndGet();
+              return List.of(new Question());
+            });
+    release.countDown();
+
+    assertTrue(result.isEmpty());
+    assertEquals(0, calls.get());
+    assertEquals(1, coalescer.timeoutCount());
+    assertEquals(1, background.get(5, TimeUnit.SECONDS).size());
+    assertEquals(0, coalescer.inFlightCount());
+  }
+
+  @Test
+  void generateInBackground_shouldLeaveOnePermitForRequests() throws Exception {
+    GenerationCoalescer coalescer =
+        new GenerationCoalescer(Duration.ofSeconds(5), Duration.ZERO, 2);
+    CountDownLatch firstStarted = new CountDownLatch(1);
+    CountDownLatch secondStarted = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    Future<List<Question>> first =
+        executor.submit(
+            () ->
+                coalescer.generateInBackground(
+                    1L,
+                    null,
+                    () -> {
+                      firstStarted.countDown();
+                      await(release);
+                      return List.of(new Question());
+                    }));
+    assertTrue(firstStarted.await(5, TimeUnit.SECONDS));
+    Future<List<Question>> second =
+        executor.submit(
+            () ->
+                coalescer.generateInBackground(
+                    2L,
+                    null,
+                    () -> {
+                      secondStarted.countDown();
+                      return List.of(new Question());
+                    }));
+
+    // The second background job waits, the request runs on the permit left free
+    assertEquals(1, coalescer.generate(3L, null, () -> List.of(new Question())).size());
+    assertFalse(secondStarted.await(100, TimeUnit.MILLISECONDS));
+    release.countDown();
+
+    assertEquals(1, first.get(5, TimeUnit.SECONDS).size());
+    assertEquals(1, second.get(5, TimeUnit.SECONDS).size());
+  }
+
+  @Test
+  void generate_shouldLead_whenBackgroundJobForSamePoolWaitsForPermit() throws Exception {
+    GenerationCoalescer coalescer =
+        new GenerationCoalescer(Duration.ofSeconds(5), Duration.ZERO, 2);
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    AtomicInteger backgroundCalls = new AtomicInteger();
+    Future<List<Question>> running =
+        executor.submit(
+            () ->
+                coalescer.generateInBackground(
+                    1L,
+                    null,
+                    () -> {
+                      started.countDown();
+                      await(release);
+                      return List.of(new Question());
+                    }));
+    assertTrue(started.await(5, TimeUnit.SECONDS));
+    Future<List<Question>> waiting =
+        executor.submit(
+            () ->
+                coalescer.generateInBackground(
+                    2L,
+                    null,
+                    () -> {
+                      backgroundCalls.incrementAndGet();
+                      return List.of(new Question());
+                    }));
+    Thread.sleep(100);
+
+    // The waiting job has not claimed pool 2, so the request generates instead of joining it
+    assertEquals(1, coalescer.inFlightCount());
+    List<Question> result =
+        coalescer.generate(2L, null, () -> List.of(new Question(), new Question()));
+    assertEquals(2, result.size());
+    assertEquals(0, coalescer.joinedCount());
+    release.countDown();
+
+    assertEquals(1, running.get(5, TimeUnit.SECONDS).size());
+    assertEquals(1, waiting.get(5, TimeUnit.SECONDS).size());
+    assertEquals(1, backgroundCalls.get());
+  }
+
+  private static void sleep(long millis) {
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      latch.await(5, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -0,0 +1,109 @@
+package nl.schoutens.codepop.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.util.List;
+import nl.schoutens.codepop.entity.Question;
+import nl.schoutens.codepop.repository.QuestionRepository;
+import org.junit.jupiter.api.Test;
+
+/** Unit tests for NearDuplicateIndex. Verifies rejection of paraphrases and the startup load. */
+class NearDuplicateIndexTest {
+
+  private final QuestionRepository questionRepository = mock(QuestionRepository.class);
+
+  @Test
+  void filterNew_shouldRejectNearDuplicatesOfIndexedQuestions() {
+    when(questionRepository.findAllQuestionTexts())
+        .thenReturn(
+            List.of(
+                text(1L, "What is the default initial capacity of a Java ArrayList?"),
+                text(2L, "What does the useEffect hook do in React?")));
+    NearDuplicateIndex index = new NearDuplicateIndex(questionRepository, true, 0.7);
+    index.rebuild();
+
+    List<Question> kept =
+        index.filterNew(
+            1L,
+            List.of(
+                question("What is the default initial capacity of a Java  ArrayList ?"),
+                question("Which interface does java.lang.Record implement?")));
+
+    assertEquals(1, kept.size());
+    assertEquals("Which interface does java.lang.Record implement?", kept.get(0).getQuestionText());
+    assertEquals(1, index.rejectedCount());
+    assertEquals(1, index.acceptedCount());
+    assertEquals(1, index.size(1L));
+  }
+
+  @Test
+  void filterNew_shouldNotIndexKeptQuestions_untilIndexed() {
+    NearDuplicateIndex index = new NearDuplicateIndex(questionRepository, true, 0.7);
+    List<Question> batch = List.of(question("What is a sealed interface in Java?"));
+
+    assertEquals(1, index.filterNew(1L, batch).size());
+    // Not saved (e.g. the write failed): the same question is still new
+    assertEquals(1, index.filterNew(1L, batch).size());
+
+    index.index(1L, batch);
+
+    assertTrue(index.filterNew(1L, batch).isEmpty());
+    assertEquals(1, index.size(1L));
+  }
+
+  @Test
+  void filterNew_shouldCompareWithinTopicOnly() {
+    when(questionRepository.findAllQuestionTexts())
+        .thenReturn(List.of(text(2L, "What does the useEffect hook do in React?")));
+    NearDuplicateIndex index = new NearDuplicateIndex(questionRepository, true, 0.7);
+    index.rebuild();
+
+    assertEquals(
+        1,
+        index.filterNew(1L, List.of(question("What does the useEffect hook do in React?"))).size());
+  }
+
+  @Test
+  void filterNew_shouldRejectDuplicatesWithinOneBatch() {
+    NearDuplicateIndex index = new NearDuplicateIndex(questionRepository, true, 0.7);
+
+    List<Question> kept =
+        index.filterNew(
+            1L,
+            List.of(
+                question("How do you declare a compact constructor in a record?"),
+                question("How do you declare a compact constructor in a Record?")));
+
+    assertEquals(1, kept.size());
+  }
+
+  @Test
+  void filterNew_shouldKeepEverything_whenDisabled() {
+    NearDuplicateIndex index = new NearDuplicateIndex(questionRepository, false, 0.7);
+    index.rebuild();
+
+    List<Question> questions = List.of(question("Same question"), question("Same question"));
+
+    assertSame(questions, index.filterNew(1L, questions));
+    verifyNoInteractions(questionRepository);
+  }
+
+  private static Question question(String text) {
+    return new Question(null, text, null, Question.Difficulty.EASY, null);
+  }
+
+  private static QuestionRepository.QuestionText text(Long topicId, String text) {
+    return new QuestionRepository.QuestionText() {
+      @Override
+      public Long getTopicId() {
+        return topicId;
+      }
+
+      @Override
+      public String getText() {
+        return text;
+      }
+    };
+  }
+}
@@ -4,12 +4,15 @@ import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
 import java.lang.reflect.Method;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
 import nl.schoutens.codepop.entity.Question;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.ai.chat.client.ChatClient;
 import org.springframework.ai.chat.client.ChatClient.Builder;
+import reactor.core.publisher.Flux;
 
 /**
  * Unit tests for OllamaQuizMaster's JSON extraction logic. Tests the robustness of parsing LLM
@@ -27,7 +30,7 @@ class OllamaQuizMasterTest {
     when(chatClientBuilder.defaultOptions(any())).thenReturn(chatClientBuilder);
     when(chatClientBuilder.build()).thenReturn(mock(ChatClient.class));
 
-    quizMaster = new OllamaQuizMaster(chatClientBuilder);
+    quizMaster = new OllamaQuizMaster(chatClientBuilder, false);
   }
 
   @Test
@@ -313,6 +316,102 @@ class OllamaQuizMasterTest {
     assertEquals("JSON format test", questions.get(0).getQuestionText());
   }
 
+  @Test
+  void testStreamParser_emitsBlocksSplitAcrossChunks() {
+    OllamaQuizMaster.DelimitedStreamParser parser = new OllamaQuizMaster.DelimitedStreamParser();
+
+    assertTrue(parser.accept("Sure! Here you go:\n### QUES").isEmpty());
+    assertTrue(parser.accept("TION 1 ###\nDIFFICULTY: easy\nQUESTION: First?\n").isEmpty());
+    assertTrue(parser.accept("OPTION: A [CORRECT]\nOPTION: B\nEXPLANATION: One\n\n###").isEmpty());
+
+    List<Question> completed = parser.accept(" QUESTION 2 ###\nDIFFICULTY: hard\n");
+    assertEquals(1, completed.size());
+    assertEquals("First?", completed.get(0).getQuestionText());
+
+    parser.accept("QUESTION: Second?\nOPTION: C [CORRECT]\nOPTION: D\n");
+    List<Question> last = parser.finish();
+    assertEquals(1, last.size());
+    assertEquals("Second?", last.get(0).getQuestionText());
+    assertEquals(Question.Difficulty.HARD, last.get(0).getDifficulty());
+  }
+
+  @Test
+  void testStreaming_stopsOnceEnoughQuestionsParsed() {
+    AtomicBoolean cancelled = new AtomicBoolean();
+    Flux<String> tokens =
+        Flux.fromArray(delimited(3).split("(?<=\n)")).doOnCancel(() -> cancelled.set(true));
+    OllamaQuizMaster streamingMaster = streamingQuizMaster(tokens);
+    List<String> seen = new ArrayList<>();
+
+    List<Question> questions =
+        streamingMaster.generateQuestions(
+            "Java", 2, List.of(), question -> seen.add(question.getQuestionText()));
+
+    assertEquals(List.of("Question 1?", "Question 2?"), seen);
+    assertEquals(2, questions.size());
+    assertTrue(cancelled.get(), "Model stream should be cancelled after 2 questions");
+  }
+
+  @Test
+  void testStreaming_parsesLastBlockAtEndOfStream() {
+    OllamaQuizMaster streamingMaster = streamingQuizMaster(Flux.just(delimited(2)));
+
+    List<Question> questions = streamingMaster.generateQuestions("Java", 5, List.of());
+
+    assertEquals(2, questions.size());
+    assertEquals("Question 2?", questions.get(1).getQuestionText());
+  }
+
+  @Test
+  void testStreaming_fallsBackToJson() {
+    String json =
+        """
+        {"questions": [{"question": "Streamed JSON?", "options": ["A", "B", "C", "D"],
+          "correct_index": 1, "difficulty": "medium", "explanation": "Fallback"}]}
+        """;
+    OllamaQuizMaster streamingMaster =
+        streamingQuizMaster(Flux.just(json.substring(0, 40), json.substring(40)));
+
+    List<Question> questions = streamingMaster.generateQuestions("Java", 5, List.of());
+
+    assertEquals(1, questions.size());
+    assertEquals("Streamed JSON?", questions.get(0).getQuestionText());
+  }
+
+  @Test
+  void testNonStreaming_returnsNoQuestions_whenLlmCallFails() {
+    // The ChatClient mock of setUp returns no prompt spec, so every call fails
+    List<Question> seen = new ArrayList<>();
+
+    List<Question> questions =
+        quizMaster.generateQuestions("Java", 2, List.of(), Question.Difficulty.EASY, seen::add);
+
+    assertTrue(questions.isEmpty());
+    assertTrue(seen.isEmpty());
+  }
+
+  private static OllamaQuizMaster streamingQuizMaster(Flux<String> tokens) {
+    ChatClient chatClient = mock(ChatClient.class, RETURNS_DEEP_STUBS);
+    when(chatClient.prompt(anyString()).stream().content()).thenReturn(tokens);
+    Builder chatClientBuilder = mock(ChatClient.Builder.class, RETURNS_SELF);
+    when(chatClientBuilder.build()).thenReturn(chatClient);
+    return new OllamaQuizMaster(chatClientBuilder, true);
+  }
+
+  private static String delimited(int count) {
+    StringBuilder response = new StringBuilder();
+    for (int i = 1; i <= count; i++) {
+      response
+          .append("### QUESTION ")
+          .append(i)
+          .append(" ###\nDIFFICULTY: easy\nQUESTION: Question ")
+          .append(i)
+          .append("?\nOPTION: A [CORRECT]\nOPTION: B\nOPTION: C\nOPTION: D\n")
+          .append("EXPLANATION: Because\n\n");
+    }
+    return response.toString();
+  }
+
   // Helper methods to invoke private methods using reflection
   private String invokeExtractJson(String response) throws Exception {
     Method method = OllamaQuizMaster.class.getDeclaredMethod("extractJson", String.class);
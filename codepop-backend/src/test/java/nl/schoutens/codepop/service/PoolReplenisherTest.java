@@ -0,0 +1,188 @@
+package nl.schoutens.codepop.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import nl.schoutens.codepop.entity.Question;
+import nl.schoutens.codepop.entity.Topic;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+/**
+ * Unit tests for PoolReplenisher. Verifies watermarks, de-duplication, demand priority and the
+ * avoid-list selection.
+ */
+@ExtendWith(MockitoExtension.class)
+class PoolReplenisherTest {
+
+  @Mock(lenient = true)
+  private QuizMaster quizMaster;
+
+  @Mock(lenient = true)
+  private QuizService.TransactionalOperations txOps;
+
+  private final List<PoolReplenisher> replenishers = new ArrayList<>();
+  private Topic java;
+  private Topic react;
+
+  @BeforeEach
+  void setUp() {
+    java = new Topic("Java", "backend");
+    java.setId(1L);
+    react = new Topic("React", "frontend");
+    react.setId(2L);
+
+    when(txOps.fetchQuestionTexts(anyLong(), any()))
+        .thenReturn(List.of("Question 0", "Question 1", "Question 2"));
+    when(quizMaster.generateQuestions(anyString(), anyInt(), anyList()))
+        .thenAnswer(inv -> questions(inv.getArgument(1)));
+  }
+
+  @AfterEach
+  void tearDown() {
+    replenishers.forEach(PoolReplenisher::shutdown);
+  }
+
+  @Test
+  void recordDemand_shouldRefillPoolToHighWatermark_whenBelowLowWatermark() throws Exception {
+    PoolReplenisher replenisher = replenisher(true);
+
+    replenisher.recordDemand(java, "records", 3);
+    awaitIdle(replenisher);
+
+    // Pool of 3 is filled to 12 in batches of at most 5
+    verify(quizMaster).generateQuestions(eq("Java records"), eq(5), anyList());
+    verify(quizMaster).generateQuestions(eq("Java records"), eq(4), anyList());
+    verify(txOps, times(2)).saveQuestions(anyList());
+  }
+
+  @Test
+  void recordDemand_shouldLimitAvoidListToSelectedQuestions() throws Exception {
+    PoolReplenisher replenisher = replenisher(true);
+
+    replenisher.recordDemand(java, null, 3);
+    awaitIdle(replenisher);
+
+    // The selector keeps at most 2 of the 3 stored texts
+    verify(quizMaster, atLeastOnce())
+        .generateQuestions(eq("Java"), anyInt(), argThat(texts -> texts.size() <= 2));
+    verify(quizMaster, never())
+        .generateQuestions(anyString(), anyInt(), argThat(texts -> texts.size() > 2));
+  }
+
+  @Test
+  void recordDemand_shouldDoNothing_whenPoolAboveLowWatermark() throws Exception {
+    PoolReplenisher replenisher = replenisher(true);
+
+    replenisher.recordDemand(java, null, 5);
+    awaitIdle(replenisher);
+
+    verify(quizMaster, never()).generateQuestions(anyString(), anyInt(), anyList());
+  }
+
+  @Test
+  void recordDemand_shouldDoNothing_whenDisabled() throws Exception {
+    PoolReplenisher replenisher = replenisher(false);
+
+    replenisher.recordDemand(java, null, 0);
+    awaitIdle(replenisher);
+
+    verify(quizMaster, never()).generateQuestions(anyString(), anyInt(), anyList());
+  }
+
+  @Test
+  void recordDemand_shouldQueueOneJobPerPool() throws Exception {
+    PoolReplenisher replenisher = replenisher(true);
+    CountDownLatch release = new CountDownLatch(1);
+    when(quizMaster.generateQuestions(anyString(), anyInt(), anyList()))
+        .thenAnswer(
+            inv -> {
+              release.await(5, TimeUnit.SECONDS);
+              return Collections.emptyList();
+            });
+
+    for (int i = 0; i < 10; i++) {
+      replenisher.recordDemand(java, null, 1);
+    }
+    assertEquals(1, replenisher.pendingJobs());
+    release.countDown();
+    awaitIdle(replenisher);
+
+    verify(quizMaster, times(1)).generateQuestions(anyString(), anyInt(), anyList());
+  }
+
+  @Test
+  void recordDemand_shouldRunMostDemandedPoolFirst() throws Exception {
+    PoolReplenisher replenisher = replenisher(true);
+    CountDownLatch release = new CountDownLatch(1);
+    List<String> order = Collections.synchronizedList(new ArrayList<>());
+    when(quizMaster.generateQuestions(anyString(), anyInt(), anyList()))
+        .thenAnswer(
+            inv -> {
+              order.add(inv.getArgument(0));
+              release.await(5, TimeUnit.SECONDS);
+              return Collections.emptyList();
+            });
+
+    // Occupy the single worker, then queue a rarely and a frequently requested pool
+    replenisher.recordDemand(java, "blocker", 0);
+    while (order.isEmpty()) {
+      Thread.sleep(5);
+    }
+    replenisher.recordDemand(java, "rare", 0);
+    for (int i = 0; i < 5; i++) {
+      replenisher.recordDemand(react, "hooks", 10);
+    }
+    replenisher.recordDemand(react, "hooks", 0);
+    release.countDown();
+    awaitIdle(replenisher);
+
+    assertEquals(List.of("Java blocker", "React hooks", "Java rare"), order);
+  }
+
+  private PoolReplenisher replenisher(boolean enabled) {
+    PoolReplenisher replenisher =
+        new PoolReplenisher(
+            quizMaster,
+            txOps,
+            new GenerationCoalescer(Duration.ofSeconds(5), Duration.ZERO, 2),
+            new NearDuplicateIndex(null, false, 0.7),
+            new SimilarQuestionSelector(2, 1500),
+            enabled,
+            5,
+            12,
+            5,
+            1,
+            10,
+            Duration.ofMinutes(10));
+    replenishers.add(replenisher);
+    return replenisher;
+  }
+
+  private static void awaitIdle(PoolReplenisher replenisher) throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (replenisher.pendingJobs() > 0 && System.nanoTime() < deadline) {
+      Thread.sleep(5);
+    }
+    assertEquals(0, replenisher.pendingJobs());
+  }
+
+  private static List<Question> questions(int count) {
+    return IntStream.range(0, count)
+        .mapToObj(i -> new Question(null, "Question " + i, null, Question.Difficulty.EASY, null))
+        .collect(Collectors.toCollection(ArrayList::new));
+  }
+}
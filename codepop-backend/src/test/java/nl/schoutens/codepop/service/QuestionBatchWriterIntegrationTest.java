@@ -0,0 +1,124 @@
+package nl.schoutens.codepop.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import nl.schoutens.codepop.entity.Question;
+import nl.schoutens.codepop.entity.Question.Difficulty;
+import nl.schoutens.codepop.entity.QuestionOption;
+import nl.schoutens.codepop.entity.Topic;
+import nl.schoutens.codepop.repository.QuestionRepository;
+import nl.schoutens.codepop.repository.TopicRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.test.context.ActiveProfiles;
+
+/**
+ * Integration tests for QuestionBatchWriter against the SQLite test database. Verifies generated
+ * ids, option ownership across statement chunks and pool cache invalidation (also for changes
+ * saved through JPA).
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@ActiveProfiles("test")
+class QuestionBatchWriterIntegrationTest {
+
+  @TestConfiguration
+  static class TestConfig {
+    @Bean
+    public QuizMaster testQuizMaster() {
+      return (topic, count, existingQuestionTexts) -> Collections.emptyList();
+    }
+  }
+
+  @Autowired private QuizService.TransactionalOperations txOps;
+
+  @Autowired private QuestionRepository questionRepository;
+
+  @Autowired private TopicRepository topicRepository;
+
+  @Autowired private QuestionPoolCache poolCache;
+
+  private Topic java;
+
+  @BeforeEach
+  void setUp() {
+    questionRepository.deleteAll();
+    topicRepository.deleteAll();
+    java = topicRepository.save(new Topic("Java", "backend"));
+  }
+
+  @Test
+  void saveQuestions_shouldAssignIdsAndPersistOptions() {
+    List<Question> questions = questions(3);
+
+    txOps.saveQuestions(questions);
+
+    assertThat(questions).allSatisfy(q -> assertThat(q.getId()).isNotNull());
+    List<Question> stored =
+        questionRepository.findWithOptionsByIdIn(questions.stream().map(Question::getId).toList());
+    assertThat(stored).hasSize(3);
+    for (Question question : stored) {
+      assertThat(question.getCreatedAt()).isNotNull();
+      assertThat(question.getSubtopic()).isEqualTo("records");
+      assertThat(question.getOptions()).hasSize(4);
+      assertThat(question.getOptions())
+          .allSatisfy(o -> assertThat(o.getOptionText()).startsWith(question.getQuestionText()));
+      assertThat(question.getOptions()).filteredOn(QuestionOption::getIsCorrect).hasSize(1);
+    }
+  }
+
+  @Test
+  void saveQuestions_shouldKeepOptionsWithTheirQuestion_acrossStatementChunks() {
+    List<Question> questions = questions(QuestionBatchWriter.ROWS_PER_STATEMENT + 100);
+
+    txOps.saveQuestions(questions);
+
+    assertThat(questionRepository.count()).isEqualTo(questions.size());
+    List<Question> stored = questionRepository.findByTopicId(java.getId());
+    assertThat(stored).hasSize(questions.size());
+    assertThat(stored)
+        .allSatisfy(
+            q ->
+                assertThat(q.getOptions())
+                    .hasSize(4)
+                    .allSatisfy(
+                        o -> assertThat(o.getOptionText()).startsWith(q.getQuestionText())));
+  }
+
+  @Test
+  void saveQuestions_shouldInvalidateCachedPoolOfTopic() {
+    poolCache.get(java.getId(), null, List::of);
+
+    txOps.saveQuestions(questions(1));
+
+    assertThat(poolCache.getIfPresent(java.getId(), null)).isNull();
+  }
+
+  @Test
+  void repositorySave_shouldInvalidateCachedPoolOfTopic() {
+    poolCache.get(java.getId(), null, List::of);
+
+    questionRepository.save(questions(1).get(0));
+
+    assertThat(poolCache.getIfPresent(java.getId(), null)).isNull();
+  }
+
+  private List<Question> questions(int count) {
+    List<Question> questions = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      Question question =
+          new Question(java, "Question " + i + ":", "records", Difficulty.MEDIUM, "Because");
+      for (int o = 0; o < 4; o++) {
+        question.addOption(new QuestionOption(null, "Question " + i + ": option " + o, o == 0));
+      }
+      questions.add(question);
+    }
+    return questions;
+  }
+}
@@ -0,0 +1,170 @@
+package nl.schoutens.codepop.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import nl.schoutens.codepop.entity.Question;
+import nl.schoutens.codepop.entity.Question.Difficulty;
+import nl.schoutens.codepop.entity.QuestionOption;
+import nl.schoutens.codepop.entity.Topic;
+import nl.schoutens.codepop.repository.QuestionRepository;
+import nl.schoutens.codepop.repository.TopicRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+
+/**
+ * Integration tests for QuestionExporter against the SQLite test database. Uses a page size of 2
+ * so every export spans several keyset pages.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@ActiveProfiles("test")
+class QuestionExporterIntegrationTest {
+
+  @TestConfiguration
+  static class TestConfig {
+    @Bean
+    public QuizMaster testQuizMaster() {
+      return (topic, count, existingQuestionTexts) -> Collections.emptyList();
+    }
+  }
+
+  @Autowired private QuizService.TransactionalOperations txOps;
+
+  @Autowired private QuestionRepository questionRepository;
+
+  @Autowired private TopicRepository topicRepository;
+
+  @Autowired private JdbcTemplate jdbcTemplate;
+
+  @Autowired private PlatformTransactionManager transactionManager;
+
+  private final ObjectMapper objectMapper = new ObjectMapper();
+
+  private QuestionExporter exporter;
+  private Topic java;
+
+  @BeforeEach
+  void setUp() {
+    questionRepository.deleteAll();
+    topicRepository.deleteAll();
+    java = topicRepository.save(new Topic("Java", "backend"));
+    exporter = new QuestionExporter(jdbcTemplate, transactionManager, 2);
+  }
+
+  @Test
+  void export_shouldWriteTopicsThenQuestionsWithOptionsThenCursor() throws Exception {
+    List<Question> questions = questions(5);
+    txOps.saveQuestions(questions);
+
+    List<JsonNode> lines = export(0, null);
+
+    assertThat(lines).hasSize(1 + 5 + 1);
+    assertThat(lines.get(0).get("type").asText()).isEqualTo("topic");
+    assertThat(lines.get(0).get("name").asText()).isEqualTo("Java");
+    List<JsonNode> exported = lines.subList(1, 6);
+    for (int i = 0; i < exported.size(); i++) {
+      JsonNode question = exported.get(i);
+      String text = "Question " + i + ":";
+      assertThat(question.get("type").asText()).isEqualTo("question");
+      assertThat(question.get("id").asLong()).isEqualTo(questions.get(i).getId());
+      assertThat(question.get("topicId").asLong()).isEqualTo(java.getId());
+      assertThat(question.get("text").asText()).isEqualTo(text);
+      assertThat(question.get("createdAt").isTextual()).isTrue();
+      assertThat(question.get("options")).hasSize(4);
+      question.get("options").forEach(o -> assertThat(o.get("text").asText()).startsWith(text));
+    }
+    JsonNode end = lines.get(6);
+    assertThat(end.get("type").asText()).isEqualTo("end");
+    assertThat(end.get("cursor").asLong()).isEqualTo(questions.get(4).getId());
+    assertThat(end.get("questions").asLong()).isEqualTo(5);
+  }
+
+  @Test
+  void export_shouldResumeAfterCursor() throws Exception {
+    List<Question> questions = questions(5);
+    txOps.saveQuestions(questions);
+
+    List<JsonNode> lines = export(questions.get(2).getId(), null);
+
+    assertThat(questionIds(lines))
+        .containsExactly(questions.get(3).getId(), questions.get(4).getId());
+    assertThat(lines.get(lines.size() - 1).get("cursor").asLong())
+        .isEqualTo(questions.get(4).getId());
+  }
+
+  @Test
+  void export_shouldKeepCursor_whenNothingNew() throws Exception {
+    List<Question> questions = questions(2);
+    txOps.saveQuestions(questions);
+    long last = questions.get(1).getId();
+
+    List<JsonNode> lines = export(last, null);
+
+    assertThat(questionIds(lines)).isEmpty();
+    assertThat(lines.get(lines.size() - 1).get("cursor").asLong()).isEqualTo(last);
+  }
+
+  @Test
+  void export_shouldOnlyIncludeQuestionsCreatedAfter() throws Exception {
+    List<Question> questions = questions(5);
+    txOps.saveQuestions(questions);
+    LocalDateTime lastSync = LocalDateTime.now().minusDays(1);
+    jdbcTemplate.update(
+        "UPDATE questions SET created_at = ? WHERE id <= ?",
+        Timestamp.valueOf(lastSync.minusDays(1)),
+        questions.get(2).getId());
+
+    List<JsonNode> lines = export(0, lastSync);
+
+    assertThat(questionIds(lines))
+        .containsExactly(questions.get(3).getId(), questions.get(4).getId());
+    assertThat(lines.get(2).get("options")).hasSize(4);
+  }
+
+  private List<JsonNode> export(long since, LocalDateTime createdAfter) throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    exporter.export(out, since, createdAfter);
+    String ndjson = out.toString(StandardCharsets.UTF_8);
+    assertThat(ndjson).endsWith("\n");
+    List<JsonNode> lines = new ArrayList<>();
+    for (String line : ndjson.split("\n")) {
+      lines.add(objectMapper.readTree(line));
+    }
+    return lines;
+  }
+
+  private static List<Long> questionIds(List<JsonNode> lines) {
+    return lines.stream()
+        .filter(line -> line.get("type").asText().equals("question"))
+        .map(line -> line.get("id").asLong())
+        .toList();
+  }
+
+  private List<Question> questions(int count) {
+    List<Question> questions = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      Question question =
+          new Question(java, "Question " + i + ":", "records", Difficulty.MEDIUM, "Because");
+      for (int o = 0; o < 4; o++) {
+        question.addOption(new QuestionOption(null, "Question " + i + ": option " + o, o == 0));
+      }
+      questions.add(question);
+    }
+    return questions;
+  }
+}
@@ -0,0 +1,186 @@
+package nl.schoutens.codepop.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import nl.schoutens.codepop.dto.ImportReportDTO;
+import nl.schoutens.codepop.entity.Question;
+import nl.schoutens.codepop.entity.Question.Difficulty;
+import nl.schoutens.codepop.entity.QuestionOption;
+import nl.schoutens.codepop.entity.Topic;
+import nl.schoutens.codepop.repository.QuestionRepository;
+import nl.schoutens.codepop.repository.TopicRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.test.context.ActiveProfiles;
+
+/**
+ * Integration tests for QuestionImporter against the SQLite test database. Uses a batch size of 2
+ * so imports span several write transactions. Verifies validation, deduplication against stored
+ * and earlier questions, and that export output imports again.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@ActiveProfiles("test")
+class QuestionImporterIntegrationTest {
+
+  @TestConfiguration
+  static class TestConfig {
+    @Bean
+    public QuizMaster testQuizMaster() {
+      return (topic, count, existingQuestionTexts) -> Collections.emptyList();
+    }
+  }
+
+  @Autowired private QuizService.TransactionalOperations txOps;
+
+  @Autowired private QuestionRepository questionRepository;
+
+  @Autowired private TopicRepository topicRepository;
+
+  @Autowired private NearDuplicateIndex nearDuplicateIndex;
+
+  @Autowired private QuestionExporter exporter;
+
+  @Autowired private TaskExecutor taskExecutor;
+
+  private final ObjectMapper objectMapper = new ObjectMapper();
+
+  private QuestionImporter importer;
+  private Topic java;
+
+  @BeforeEach
+  void setUp() {
+    questionRepository.deleteAll();
+    topicRepository.deleteAll();
+    java = topicRepository.save(new Topic("Java", "backend"));
+    importer =
+        new QuestionImporter(
+            topicRepository, questionRepository, txOps, nearDuplicateIndex, taskExecutor, 2);
+  }
+
+  @Test
+  void importQuestions_shouldSaveValidQuestionsWithOptions() throws Exception {
+    int indexed = nearDuplicateIndex.size(java.getId());
+    List<String> lines = new ArrayList<>();
+    for (int i = 0; i < 5; i++) {
+      lines.add(line("java", "Imported question " + i + " about sealed classes?", 4, 1));
+    }
+
+    ImportReportDTO report = importLines(lines);
+
+    assertThat(report.lines()).isEqualTo(5);
+    assertThat(report.imported()).isEqualTo(5);
+    assertThat(report.errors()).isEmpty();
+    List<Question> stored = questionRepository.findByTopicId(java.getId());
+    assertThat(stored).hasSize(5);
+    assertThat(stored)
+        .allSatisfy(
+            q -> {
+              assertThat(q.getSubtopic()).isEqualTo("sealed");
+              assertThat(q.getDifficulty()).isEqualTo(Difficulty.MEDIUM);
+              assertThat(q.getOptions()).hasSize(4);
+              assertThat(q.getOptions()).filteredOn(QuestionOption::getIsCorrect).hasSize(1);
+            });
+    assertThat(nearDuplicateIndex.size(java.getId())).isEqualTo(indexed + 5);
+  }
+
+  @Test
+  void importQuestions_shouldReportInvalidLinesAndKeepGoing() throws Exception {
+    ImportReportDTO report =
+        importLines(
+            List.of(
+                line("Java", "Three options?", 3, 1),
+                line("Java", "Two correct options?", 4, 2),
+                line("Java", " ", 4, 1),
+                line("Cobol", "Unknown topic?", 4, 1),
+                "not json",
+                "",
+                line("Java", "The valid one?", 4, 1)));
+
+    assertThat(report.lines()).isEqualTo(6);
+    assertThat(report.imported()).isEqualTo(1);
+    assertThat(report.invalid()).isEqualTo(5);
+    assertThat(report.errors())
+        .containsExactly(
+            "line 1: expected 4 options, got 3",
+            "line 2: expected exactly one correct option, got 2",
+            "line 3: text is missing",
+            "line 4: unknown topic Cobol",
+            "line 5: not a JSON object");
+    assertThat(questionRepository.count()).isEqualTo(1);
+  }
+
+  @Test
+  void importQuestions_shouldSkipDuplicatesOfStoredAndEarlierQuestions() throws Exception {
+    txOps.saveQuestions(List.of(new Question(java, "What is a record?", Difficulty.EASY, null)));
+
+    ImportReportDTO report =
+        importLines(
+            List.of(
+                line("Java", "  what is a   RECORD? ", 4, 1),
+                line("Java", "What is a sealed class?", 4, 1),
+                line("Java", "What is a sealed class?", 4, 1)));
+
+    assertThat(report.imported()).isEqualTo(1);
+    assertThat(report.duplicates()).isEqualTo(2);
+    assertThat(questionRepository.count()).isEqualTo(2);
+  }
+
+  @Test
+  void importQuestions_shouldAcceptExportOutput() throws Exception {
+    List<Question> questions = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      Question question = new Question(java, "Exported " + i + "?", Difficulty.HARD, "Why");
+      for (int o = 0; o < 4; o++) {
+        question.addOption(new QuestionOption(null, "Option " + o, o == 2));
+      }
+      questions.add(question);
+    }
+    txOps.saveQuestions(questions);
+    ByteArrayOutputStream export = new ByteArrayOutputStream();
+    exporter.export(export, 0, null);
+    questionRepository.deleteAll();
+
+    ImportReportDTO report =
+        importer.importQuestions(new ByteArrayInputStream(export.toByteArray()));
+
+    assertThat(report.imported()).isEqualTo(3);
+    assertThat(report.invalid()).isZero();
+    assertThat(questionRepository.findByTopicId(java.getId()))
+        .extracting(Question::getQuestionText)
+        .containsExactlyInAnyOrder("Exported 0?", "Exported 1?", "Exported 2?");
+  }
+
+  private ImportReportDTO importLines(List<String> lines) throws Exception {
+    byte[] ndjson = (String.join("\n", lines) + "\n").getBytes(StandardCharsets.UTF_8);
+    return importer.importQuestions(new ByteArrayInputStream(ndjson));
+  }
+
+  private String line(String topic, String text, int options, int correct) throws Exception {
+    List<Map<String, Object>> optionList = new ArrayList<>();
+    for (int o = 0; o < options; o++) {
+      optionList.add(Map.of("text", "Option " + o, "isCorrect", o < correct));
+    }
+    Map<String, Object> line = new LinkedHashMap<>();
+    line.put("topic", topic);
+    line.put("subtopic", "sealed");
+    line.put("difficulty", "medium");
+    line.put("text", text);
+    line.put("explanation", "Because.");
+    line.put("options", optionList);
+    return objectMapper.writeValueAsString(line);
+  }
+}
@@ -0,0 +1,130 @@
+package nl.schoutens.codepop.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import nl.schoutens.codepop.config.QuizJsonMessageConverter;
+import nl.schoutens.codepop.dto.OptionDTO;
+import nl.schoutens.codepop.dto.QuestionDTO;
+import nl.schoutens.codepop.dto.QuizDTO;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.MockHttpOutputMessage;
+
+/**
+ * Unit tests for QuestionJsonCache and QuizJsonMessageConverter. Verifies that the pre-encoded
+ * fragments and the assembled quiz are identical to what Jackson writes for the same records.
+ */
+class QuestionJsonCacheTest {
+
+  private final ObjectMapper objectMapper = new ObjectMapper();
+
+  @Test
+  void encode_shouldMatchJackson() throws Exception {
+    QuestionDTO question =
+        new QuestionDTO(
+            7L,
+            "What does \"final\" mean?\n<script> ‘quotes’ ✓ \u0001",
+            "MEDIUM",
+            "It can't be reassigned \\ overridden.",
+            List.of(new OptionDTO(70L, "Constant", true), new OptionDTO(71L, "Static", false)));
+
+    assertEquals(
+        objectMapper.writeValueAsString(question),
+        new String(QuestionJsonCache.encode(question), StandardCharsets.UTF_8));
+  }
+
+  @Test
+  void encode_shouldWriteNulls() throws Exception {
+    QuestionDTO question = new QuestionDTO(null, "Question", null, null, null);
+
+    assertEquals(
+        objectMapper.writeValueAsString(question),
+        new String(QuestionJsonCache.encode(question), StandardCharsets.UTF_8));
+  }
+
+  @Test
+  void fragment_shouldEncodeOncePerQuestionUntilInvalidated() {
+    QuestionJsonCache cache = new QuestionJsonCache(1 << 20);
+    QuestionDTO question = question(1L, "Original");
+
+    byte[] first = cache.fragment(question);
+    assertSame(first, cache.fragment(question(1L, "Changed")));
+
+    cache.invalidate(1L);
+    assertTrue(
+        new String(cache.fragment(question(1L, "Changed")), StandardCharsets.UTF_8)
+            .contains("Changed"));
+  }
+
+  @Test
+  void fragment_shouldKeepSlimAndFullFormsApart() {
+    QuestionJsonCache cache = new QuestionJsonCache(1 << 20);
+    QuestionDTO full = question(1L, "Question");
+    QuestionDTO slim = new QuestionDTO(1L, "Question", "EASY", null, full.options());
+
+    assertTrue(new String(cache.fragment(full), StandardCharsets.UTF_8).contains("Because."));
+    assertFalse(new String(cache.fragment(slim), StandardCharsets.UTF_8).contains("Because."));
+
+    byte[] slimBefore = cache.fragment(slim);
+    cache.invalidate(1L);
+    assertNotSame(slimBefore, cache.fragment(slim));
+  }
+
+  @Test
+  void converter_shouldWriteQuizLikeJackson() throws Exception {
+    QuizDTO quiz =
+        new QuizDTO(
+            "Java", 2, List.of(question(1L, "First"), question(2L, "Second")), "token-123");
+
+    assertEquals(objectMapper.writeValueAsString(quiz), write(quiz));
+  }
+
+  @Test
+  void converter_shouldOmitAbsentExcludeToken() throws Exception {
+    QuizDTO quiz = new QuizDTO("Java", 1, List.of(question(1L, "First")));
+
+    assertEquals(objectMapper.writeValueAsString(quiz), write(quiz));
+    assertFalse(write(quiz).contains("excludeToken"));
+  }
+
+  @Test
+  void converter_shouldOnlyHandleQuizAndQuestionResponses() {
+    QuizJsonMessageConverter converter = new QuizJsonMessageConverter(provider(null));
+
+    assertTrue(converter.canWrite(QuizDTO.class, MediaType.APPLICATION_JSON));
+    assertTrue(converter.canWrite(QuestionDTO.class, MediaType.APPLICATION_JSON));
+    assertFalse(converter.canWrite(OptionDTO.class, MediaType.APPLICATION_JSON));
+    assertFalse(converter.canRead(QuizDTO.class, MediaType.APPLICATION_JSON));
+  }
+
+  private String write(Object body) throws Exception {
+    QuizJsonMessageConverter converter =
+        new QuizJsonMessageConverter(provider(new QuestionJsonCache(1 << 20)));
+    MockHttpOutputMessage output = new MockHttpOutputMessage();
+    converter.write(body, MediaType.APPLICATION_JSON, output);
+    return output.getBodyAsString(StandardCharsets.UTF_8);
+  }
+
+  @SuppressWarnings("unchecked")
+  private static ObjectProvider<QuestionJsonCache> provider(QuestionJsonCache cache) {
+    ObjectProvider<QuestionJsonCache> provider = mock(ObjectProvider.class);
+    when(provider.getIfAvailable()).thenReturn(cache);
+    return provider;
+  }
+
+  private static QuestionDTO question(Long id, String text) {
+    return new QuestionDTO(
+        id,
+        text,
+        "EASY",
+        id % 2 == 0 ? null : "Because.",
+        Arrays.asList(
+            new OptionDTO(id * 10, text + " A", true), new OptionDTO(id * 10 + 1, "B", false)));
+  }
+}
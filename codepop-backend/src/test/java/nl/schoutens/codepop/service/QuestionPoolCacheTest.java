@@ -0,0 +1,117 @@
+package nl.schoutens.codepop.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import nl.schoutens.codepop.dto.OptionDTO;
+import nl.schoutens.codepop.dto.QuestionDTO;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for QuestionPoolCache. Verifies key normalization, invalidation, eviction and the
+ * explanation cache.
+ */
+class QuestionPoolCacheTest {
+
+  private static List<QuestionDTO> pool(long id, int textLength) {
+    return List.of(
+        new QuestionDTO(
+            id,
+            "x".repeat(textLength),
+            "EASY",
+            null,
+            List.of(new OptionDTO(id * 10, "A", true), new OptionDTO(id * 10 + 1, "B", false))));
+  }
+
+  @Test
+  void get_shouldLoadOnceAndNormalizeSubtopic() {
+    QuestionPoolCache cache = new QuestionPoolCache(1_000_000, 1_000_000);
+    AtomicInteger loads = new AtomicInteger();
+
+    cache.get(1L, "Records", () -> pool(loads.incrementAndGet(), 10));
+    List<QuestionDTO> second = cache.get(1L, "  records ", () -> pool(loads.incrementAndGet(), 10));
+
+    assertEquals(1, loads.get());
+    assertEquals(1L, second.get(0).id());
+    assertEquals(1, cache.stats().hitCount());
+    assertEquals(1, cache.stats().missCount());
+  }
+
+  @Test
+  void get_shouldReturnImmutablePool() {
+    QuestionPoolCache cache = new QuestionPoolCache(1_000_000, 1_000_000);
+
+    List<QuestionDTO> result = cache.get(1L, null, () -> new ArrayList<>(pool(1, 10)));
+
+    assertThrows(UnsupportedOperationException.class, () -> result.add(null));
+  }
+
+  @Test
+  void invalidateTopic_shouldDropAllSubtopicsOfTopicOnly() {
+    QuestionPoolCache cache = new QuestionPoolCache(1_000_000, 1_000_000);
+    AtomicInteger loads = new AtomicInteger();
+    cache.get(1L, null, () -> pool(loads.incrementAndGet(), 10));
+    cache.get(1L, "records", () -> pool(loads.incrementAndGet(), 10));
+    cache.get(2L, null, () -> pool(loads.incrementAndGet(), 10));
+
+    cache.invalidateTopic(1L);
+    cache.get(1L, null, () -> pool(loads.incrementAndGet(), 10));
+    cache.get(1L, "records", () -> pool(loads.incrementAndGet(), 10));
+    cache.get(2L, null, () -> pool(loads.incrementAndGet(), 10));
+
+    assertEquals(5, loads.get());
+  }
+
+  @Test
+  void get_shouldEvictWhenMemoryCapExceeded() {
+    // Each pool is roughly 20 KB, cap allows only a few of them
+    QuestionPoolCache cache = new QuestionPoolCache(64 * 1024, 1_000_000);
+    for (long topicId = 1; topicId <= 20; topicId++) {
+      cache.get(topicId, null, () -> pool(1, 10_000));
+    }
+    cache.cleanUp();
+
+    assertTrue(cache.stats().evictionCount() > 0);
+    assertTrue(cache.estimatedSize() < 20);
+  }
+
+  @Test
+  void explanations_shouldLoadOnlyMissingIdsAndRememberQuestionsWithout() {
+    QuestionPoolCache cache = new QuestionPoolCache(1_000_000, 1_000_000);
+    List<Set<Long>> loads = new ArrayList<>();
+    Map<Long, String> stored = new HashMap<>();
+    stored.put(1L, "One");
+    stored.put(2L, null);
+
+    cache.explanations(List.of(1L), ids -> load(loads, stored, ids));
+    Map<Long, String> result =
+        cache.explanations(List.of(1L, 2L, 3L), ids -> load(loads, stored, ids));
+    cache.explanations(List.of(1L, 2L), ids -> load(loads, stored, ids));
+
+    assertEquals(Map.of(1L, "One"), result);
+    assertEquals(List.of(Set.of(1L), Set.of(2L, 3L)), loads);
+  }
+
+  @Test
+  void invalidateExplanation_shouldReloadQuestion() {
+    QuestionPoolCache cache = new QuestionPoolCache(1_000_000, 1_000_000);
+    cache.explanations(List.of(1L), ids -> Map.of(1L, "Old"));
+
+    cache.invalidateExplanation(1L);
+
+    assertEquals(Map.of(1L, "New"), cache.explanations(List.of(1L), ids -> Map.of(1L, "New")));
+  }
+
+  private static Map<Long, String> load(
+      List<Set<Long>> loads, Map<Long, String> stored, Set<Long> ids) {
+    loads.add(ids);
+    Map<Long, String> found = new HashMap<>();
+    ids.stream().filter(stored::containsKey).forEach(id -> found.put(id, stored.get(id)));
+    return found;
+  }
+}
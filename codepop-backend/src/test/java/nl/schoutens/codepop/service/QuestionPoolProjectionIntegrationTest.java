@@ -0,0 +1,111 @@
+package nl.schoutens.codepop.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import nl.schoutens.codepop.dto.ExplanationDTO;
+import nl.schoutens.codepop.dto.OptionDTO;
+import nl.schoutens.codepop.dto.QuestionDTO;
+import nl.schoutens.codepop.entity.Question;
+import nl.schoutens.codepop.entity.Question.Difficulty;
+import nl.schoutens.codepop.entity.QuestionOption;
+import nl.schoutens.codepop.entity.Topic;
+import nl.schoutens.codepop.repository.QuestionRepository;
+import nl.schoutens.codepop.repository.TopicRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.test.context.ActiveProfiles;
+
+/**
+ * Integration tests for the DTO pool projection against the SQLite test database. Verifies that
+ * projected pools match the entity mapping without explanations, and that the explanations are
+ * read separately.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@ActiveProfiles("test")
+class QuestionPoolProjectionIntegrationTest {
+
+  @TestConfiguration
+  static class TestConfig {
+    @Bean
+    public QuizMaster testQuizMaster() {
+      return (topic, count, existingQuestionTexts) -> Collections.emptyList();
+    }
+  }
+
+  @Autowired private QuizService.TransactionalOperations txOps;
+
+  @Autowired private QuestionRepository questionRepository;
+
+  @Autowired private TopicRepository topicRepository;
+
+  private Topic java;
+
+  @BeforeEach
+  void setUp() {
+    questionRepository.deleteAll();
+    topicRepository.deleteAll();
+    java = topicRepository.save(new Topic("Java", "backend"));
+  }
+
+  @Test
+  void fetchPool_shouldReturnEntityMappingWithoutExplanations() {
+    txOps.saveQuestions(questions(20));
+    Question other = new Question(java, "Other subtopic", "streams", Difficulty.EASY, null);
+    txOps.saveQuestions(List.of(other));
+
+    // The projection returns options in id order; JOIN FETCH leaves their order unspecified
+    assertThat(txOps.fetchPool(java.getId(), null))
+        .containsExactlyInAnyOrderElementsOf(
+            questionRepository.findByTopicId(java.getId()).stream()
+                .map(QuizService::convertToQuestionDTO)
+                .map(QuestionPoolProjectionIntegrationTest::withoutExplanationSortedOptions)
+                .toList());
+    assertThat(txOps.fetchPool(java.getId(), "Records")).hasSize(20);
+    assertThat(txOps.fetchPool(java.getId(), "streams"))
+        .singleElement()
+        .satisfies(q -> assertThat(q.options()).isEmpty());
+  }
+
+  @Test
+  void fetchExplanations_shouldReturnExplanationsOfRequestedQuestions() {
+    List<Question> questions = questions(3);
+    txOps.saveQuestions(questions);
+    List<Long> ids = List.of(questions.get(0).getId(), questions.get(2).getId());
+
+    assertThat(txOps.fetchExplanations(ids))
+        .containsExactlyInAnyOrder(
+            new ExplanationDTO(ids.get(0), "Because 0"),
+            new ExplanationDTO(ids.get(1), "Because 2"));
+    assertThat(txOps.fetchExplanations(List.of())).isEmpty();
+  }
+
+  private static QuestionDTO withoutExplanationSortedOptions(QuestionDTO question) {
+    return new QuestionDTO(
+        question.id(),
+        question.text(),
+        question.difficulty(),
+        null,
+        question.options().stream().sorted(Comparator.comparing(OptionDTO::id)).toList());
+  }
+
+  private List<Question> questions(int count) {
+    List<Question> questions = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      Question question =
+          new Question(java, "Question " + i + ":", "records", Difficulty.MEDIUM, "Because " + i);
+      for (int o = 0; o < 4; o++) {
+        question.addOption(new QuestionOption(null, "Question " + i + ": option " + o, o == 0));
+      }
+      questions.add(question);
+    }
+    return questions;
+  }
+}
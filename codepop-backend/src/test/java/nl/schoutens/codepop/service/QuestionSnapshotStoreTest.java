@@ -0,0 +1,148 @@
+package nl.schoutens.codepop.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import nl.schoutens.codepop.dto.OptionDTO;
+import nl.schoutens.codepop.dto.QuestionDTO;
+import nl.schoutens.codepop.entity.Question;
+import nl.schoutens.codepop.entity.Question.Difficulty;
+import nl.schoutens.codepop.entity.QuestionOption;
+import nl.schoutens.codepop.entity.Topic;
+import nl.schoutens.codepop.service.QuestionSnapshotStore.Snapshot;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for the columnar snapshot of QuestionSnapshotStore. Verifies that rows round-trip to
+ * DTOs, are grouped per topic, and that appending copies instead of modifying the snapshot and
+ * skips questions a load already read.
+ */
+class QuestionSnapshotStoreTest {
+
+  @Test
+  void build_shouldRoundTripQuestionsAndOptions() {
+    Snapshot.Builder builder = new Snapshot.Builder();
+    builder.addQuestion(10, 1, "What is a record?", Difficulty.EASY, "Records are immutable.");
+    builder.addQuestion(11, 2, "Wat is een ‘hook’? ✓", Difficulty.HARD, null);
+    builder.addOption(10, 100, "A data carrier", true);
+    builder.addOption(10, 101, "A thread", false);
+    builder.addOption(11, 102, "Een functie", true);
+    builder.addOption(99, 103, "Orphan option", false);
+    Snapshot snapshot = builder.build();
+
+    assertEquals(2, snapshot.size);
+    assertEquals(
+        new QuestionDTO(
+            10L,
+            "What is a record?",
+            "EASY",
+            "Records are immutable.",
+            List.of(
+                new OptionDTO(100L, "A data carrier", true),
+                new OptionDTO(101L, "A thread", false))),
+        snapshot.question(0));
+    assertEquals(
+        new QuestionDTO(
+            11L,
+            "Wat is een ‘hook’? ✓",
+            "HARD",
+            null,
+            List.of(new OptionDTO(102L, "Een functie", true))),
+        snapshot.question(1));
+  }
+
+  @Test
+  void build_shouldGroupRowsPerTopic() {
+    Snapshot.Builder builder = new Snapshot.Builder();
+    for (int i = 0; i < 3000; i++) {
+      builder.addQuestion(i + 1, i % 3, "Question " + i, Difficulty.MEDIUM, null);
+    }
+    Snapshot snapshot = builder.build();
+
+    assertEquals(1000, snapshot.topicRows(0L).length);
+    assertEquals(1000, snapshot.topicRows(2L).length);
+    assertEquals(0, snapshot.topicRows(42L).length);
+    for (int row : snapshot.topicRows(1L)) {
+      assertEquals(2, snapshot.ids[row] % 3);
+    }
+  }
+
+  @Test
+  void append_shouldCopyAndLeaveOriginalUnchanged() {
+    Snapshot.Builder builder = new Snapshot.Builder();
+    builder.addQuestion(1, 1, "Old question", Difficulty.EASY, null);
+    builder.addOption(1, 1, "Old option", true);
+    Snapshot original = builder.build();
+
+    Snapshot appended = original.append(List.of(question(3, 1, "New 3"), question(2, 7, "New 2")));
+
+    assertEquals(1, original.size);
+    assertEquals(1, original.topicRows(1L).length);
+    assertEquals(3, appended.size);
+    assertArrayEquals(new long[] {1, 2, 3}, appended.ids);
+    assertEquals(2, appended.topicRows(1L).length);
+    assertEquals("New 2", appended.question(appended.topicRows(7L)[0]).text());
+    assertEquals("Old option", appended.question(0).options().get(0).text());
+    assertEquals(
+        List.of(new OptionDTO(31L, "New 3 right", true), new OptionDTO(32L, "New 3 wrong", false)),
+        appended.question(2).options());
+  }
+
+  @Test
+  void append_shouldRefuseIdsBelowTheCurrentOnes() {
+    Snapshot.Builder builder = new Snapshot.Builder();
+    builder.addQuestion(5, 1, "Question", Difficulty.EASY, null);
+
+    assertNull(builder.build().append(List.of(question(4, 1, "Older"))));
+  }
+
+  @Test
+  void appendNewer_shouldSkipQuestionsTheLoadAlreadyRead() {
+    Snapshot.Builder builder = new Snapshot.Builder();
+    builder.addQuestion(1, 1, "Question 1", Difficulty.EASY, null);
+    builder.addQuestion(2, 1, "Question 2", Difficulty.EASY, null);
+    Snapshot loaded = builder.build();
+
+    Snapshot published =
+        loaded.appendNewer(List.of(question(2, 1, "Question 2"), question(3, 1, "Question 3")));
+
+    assertArrayEquals(new long[] {1, 2, 3}, Arrays.copyOf(published.ids, published.size));
+    assertSame(loaded, loaded.appendNewer(List.of(question(1, 1, "Question 1"))));
+  }
+
+  @Test
+  void subtopicRows_shouldResolveOncePerSnapshotAndSkipUnknownIds() {
+    Snapshot.Builder builder = new Snapshot.Builder();
+    builder.addQuestion(1, 1, "Records 1", Difficulty.EASY, null);
+    builder.addQuestion(2, 1, "Streams", Difficulty.EASY, null);
+    builder.addQuestion(3, 1, "Records 2", Difficulty.EASY, null);
+    Snapshot snapshot = builder.build();
+    AtomicInteger lookups = new AtomicInteger();
+
+    QuestionSnapshotStore.SubtopicMatcher matcher =
+        (topicId, subtopic) -> {
+          lookups.incrementAndGet();
+          return new long[] {1, 3, 4};
+        };
+
+    assertArrayEquals(new int[] {0, 2}, snapshot.subtopicRows(1L, "Records", matcher));
+    assertArrayEquals(new int[] {0, 2}, snapshot.subtopicRows(1L, " records ", matcher));
+    assertEquals(1, lookups.get());
+  }
+
+  private static Question question(long id, long topicId, String text) {
+    Topic topic = new Topic("Topic " + topicId, "backend");
+    topic.setId(topicId);
+    Question question = new Question(topic, text, Difficulty.MEDIUM, null);
+    question.setId(id);
+    QuestionOption right = new QuestionOption(question, text + " right", true);
+    right.setId(id * 10 + 1);
+    QuestionOption wrong = new QuestionOption(question, text + " wrong", false);
+    wrong.setId(id * 10 + 2);
+    question.addOption(right);
+    question.addOption(wrong);
+    return question;
+  }
+}
@@ -4,10 +4,18 @@ import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import nl.schoutens.codepop.dto.ExplanationDTO;
+import nl.schoutens.codepop.dto.QuestionDTO;
+import nl.schoutens.codepop.dto.QuizBatchRequestDTO.QuizSpec;
 import nl.schoutens.codepop.dto.QuizDTO;
 import nl.schoutens.codepop.entity.Question;
 import nl.schoutens.codepop.entity.QuestionOption;
@@ -18,7 +26,6 @@ import nl.schoutens.codepop.repository.TopicRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
@@ -40,11 +47,15 @@ class QuizServiceTest {
   @Mock(lenient = true)
   private QuizService.TransactionalOperations txOps;
 
-  @InjectMocks private QuizService quizService;
+  @Mock private PoolReplenisher poolReplenisher;
+
+  private QuizService quizService;
+  private QuizSessionStore sessionStore;
 
   private Topic testTopic;
   private List<Question> testQuestions;
   private List<QuestionOption> testOptions;
+  private List<QuestionDTO> testPool;
 
   @BeforeEach
   void setUp() {
@@ -70,24 +81,45 @@ class QuizServiceTest {
             new QuestionOption(q1, "Option C", false),
             new QuestionOption(q1, "Option D", false));
 
-    // Configure txOps mock to delegate to repository mocks
-    when(txOps.findTopicByName(anyString()))
-        .thenAnswer(inv -> topicRepository.findByNameIgnoreCase(inv.getArgument(0)).orElse(null));
-    when(txOps.findAllTopics()).thenAnswer(inv -> topicRepository.findAll());
-    when(txOps.fetchQuestions(anyLong(), isNull()))
-        .thenAnswer(inv -> questionRepository.findByTopicId(inv.getArgument(0)));
-    when(txOps.fetchQuestions(anyLong(), anyString()))
-        .thenAnswer(
-            inv ->
-                questionRepository.findByTopicIdAndSubtopicContainingIgnoreCase(
-                    inv.getArgument(0), inv.getArgument(1)));
+    sessionStore = new QuizSessionStore(Duration.ofHours(1), 1_000_000);
+
+    // Pools are read as DTOs without explanations; those are fetched for the chosen questions
+    testPool =
+        List.of(
+            new QuestionDTO(1L, "Question 1", "EASY", null, List.of()),
+            new QuestionDTO(2L, "Question 2", "MEDIUM", null, List.of()),
+            new QuestionDTO(3L, "Question 3", "HARD", null, List.of()));
+
+    quizService = quizService(0);
+  }
+
+  /**
+   * The service under test; the topic index is built lazily from topicRepository.findAll().
+   *
+   * @param samplingThreshold Pool size from which quizzes are sampled in the database (0: never)
+   */
+  private QuizService quizService(int samplingThreshold) {
+    return new QuizService(
+        topicRepository,
+        questionRepository,
+        quizMaster,
+        txOps,
+        new TopicIndex(topicRepository, ""),
+        new QuestionPoolCache(1_000_000, 1_000_000),
+        sessionStore,
+        new GenerationCoalescer(Duration.ofSeconds(5), Duration.ZERO, 2),
+        poolReplenisher,
+        new SimilarQuestionSelector(50, 1500),
+        new NearDuplicateIndex(questionRepository, true, 0.7),
+        new QuestionSnapshotStore(null, questionRepository, null, false),
+        samplingThreshold);
   }
 
   @Test
   void getQuiz_shouldReturnQuizWithAllQuestions_whenNoExclusions() {
     when(topicRepository.findByNameIgnoreCase("Java")).thenReturn(Optional.of(testTopic));
     when(topicRepository.findAll()).thenReturn(List.of(testTopic));
-    when(questionRepository.findByTopicId(1L)).thenReturn(testQuestions);
+    when(txOps.fetchPool(1L, null)).thenReturn(testPool);
     when(questionOptionRepository.findByQuestionId(anyLong())).thenReturn(testOptions);
 
     QuizDTO result = quizService.getQuiz("Java", null);
@@ -96,15 +128,16 @@ class QuizServiceTest {
     assertEquals("Java", result.topic());
     assertEquals(3, result.totalQuestions());
     assertEquals(3, result.questions().size());
-    verify(topicRepository, atLeastOnce()).findByNameIgnoreCase("Java");
-    verify(questionRepository).findByTopicId(1L);
+    verify(topicRepository).findAll();
+    verify(txOps).fetchPool(1L, null);
+    verify(poolReplenisher).recordDemand(testTopic, null, 3);
   }
 
   @Test
   void getQuiz_shouldExcludeQuestions_whenExcludeListProvided() {
     when(topicRepository.findByNameIgnoreCase("Java")).thenReturn(Optional.of(testTopic));
     when(topicRepository.findAll()).thenReturn(List.of(testTopic));
-    when(questionRepository.findByTopicId(1L)).thenReturn(testQuestions);
+    when(txOps.fetchPool(1L, null)).thenReturn(testPool);
     when(questionOptionRepository.findByQuestionId(anyLong())).thenReturn(testOptions);
 
     List<Long> excludeIds = Arrays.asList(1L, 2L);
@@ -132,7 +165,7 @@ class QuizServiceTest {
   void getQuiz_shouldCallQuizMaster_whenLessThan5QuestionsAvailable() {
     when(topicRepository.findByNameIgnoreCase("Java")).thenReturn(Optional.of(testTopic));
     when(topicRepository.findAll()).thenReturn(List.of(testTopic));
-    when(questionRepository.findByTopicId(1L)).thenReturn(testQuestions);
+    when(txOps.fetchPool(1L, null)).thenReturn(testPool);
     when(questionOptionRepository.findByQuestionId(anyLong())).thenReturn(testOptions);
     when(quizMaster.generateQuestions(anyString(), anyInt(), anyList()))
         .thenReturn(Collections.emptyList());
@@ -146,7 +179,7 @@ class QuizServiceTest {
   void getQuiz_shouldReturnOnlyAvailableQuestions_whenLessThan5() {
     when(topicRepository.findByNameIgnoreCase("Java")).thenReturn(Optional.of(testTopic));
     when(topicRepository.findAll()).thenReturn(List.of(testTopic));
-    when(questionRepository.findByTopicId(1L)).thenReturn(testQuestions);
+    when(txOps.fetchPool(1L, null)).thenReturn(testPool);
     when(questionOptionRepository.findByQuestionId(anyLong())).thenReturn(testOptions);
     when(quizMaster.generateQuestions(anyString(), anyInt(), anyList()))
         .thenReturn(Collections.emptyList());
@@ -159,26 +192,14 @@ class QuizServiceTest {
 
   @Test
   void getQuiz_shouldRandomizeQuestions_whenMoreThan5Available() {
-    List<Question> manyQuestions =
-        Arrays.asList(
-            new Question(testTopic, "Q1", Question.Difficulty.EASY, null),
-            new Question(testTopic, "Q2", Question.Difficulty.EASY, null),
-            new Question(testTopic, "Q3", Question.Difficulty.EASY, null),
-            new Question(testTopic, "Q4", Question.Difficulty.EASY, null),
-            new Question(testTopic, "Q5", Question.Difficulty.EASY, null),
-            new Question(testTopic, "Q6", Question.Difficulty.EASY, null),
-            new Question(testTopic, "Q7", Question.Difficulty.EASY, null),
-            new Question(testTopic, "Q8", Question.Difficulty.EASY, null),
-            new Question(testTopic, "Q9", Question.Difficulty.EASY, null),
-            new Question(testTopic, "Q10", Question.Difficulty.EASY, null));
-
-    for (int i = 0; i < manyQuestions.size(); i++) {
-      manyQuestions.get(i).setId((long) (i + 1));
+    List<QuestionDTO> manyQuestions = new ArrayList<>();
+    for (long id = 1; id <= 10; id++) {
+      manyQuestions.add(new QuestionDTO(id, "Q" + id, "EASY", null, List.of()));
     }
 
     when(topicRepository.findByNameIgnoreCase("Java")).thenReturn(Optional.of(testTopic));
     when(topicRepository.findAll()).thenReturn(List.of(testTopic));
-    when(questionRepository.findByTopicId(1L)).thenReturn(manyQuestions);
+    when(txOps.fetchPool(1L, null)).thenReturn(manyQuestions);
     when(questionOptionRepository.findByQuestionId(anyLong())).thenReturn(testOptions);
 
     QuizDTO result = quizService.getQuiz("Java", null);
@@ -191,27 +212,23 @@ class QuizServiceTest {
   void getQuiz_shouldBeCaseInsensitive() {
     when(topicRepository.findByNameIgnoreCase("java")).thenReturn(Optional.of(testTopic));
     when(topicRepository.findAll()).thenReturn(List.of(testTopic));
-    when(questionRepository.findByTopicId(1L)).thenReturn(testQuestions);
+    when(txOps.fetchPool(1L, null)).thenReturn(testPool);
     when(questionOptionRepository.findByQuestionId(anyLong())).thenReturn(testOptions);
 
     QuizDTO result = quizService.getQuiz("java", null);
 
     assertNotNull(result);
-    verify(topicRepository, atLeastOnce()).findByNameIgnoreCase("java");
+    assertEquals(3, result.totalQuestions());
+    verify(txOps).fetchPool(1L, null);
   }
 
   @Test
   void getQuiz_shouldMatchSubtopic_whenUserInputIncludesSubtopic() {
-    List<Question> recordsQuestions =
-        Arrays.asList(
-            testQuestions.get(0), // q1 with subtopic "records"
-            testQuestions.get(1) // q2 with subtopic "records"
-            );
+    List<QuestionDTO> recordsQuestions = testPool.subList(0, 2); // q1 and q2 are about records
 
     when(topicRepository.findByNameIgnoreCase("Java")).thenReturn(Optional.of(testTopic));
     when(topicRepository.findAll()).thenReturn(List.of(testTopic));
-    when(questionRepository.findByTopicIdAndSubtopicContainingIgnoreCase(1L, "records"))
-        .thenReturn(recordsQuestions);
+    when(txOps.fetchPool(1L, "records")).thenReturn(recordsQuestions);
     when(questionOptionRepository.findByQuestionId(anyLong())).thenReturn(testOptions);
     when(quizMaster.generateQuestions(anyString(), anyInt(), anyList()))
         .thenReturn(Collections.emptyList());
@@ -221,15 +238,14 @@ class QuizServiceTest {
     assertNotNull(result);
     assertEquals("Java records", result.topic());
     assertEquals(2, result.totalQuestions());
-    verify(questionRepository).findByTopicIdAndSubtopicContainingIgnoreCase(1L, "records");
+    verify(txOps).fetchPool(1L, "records");
   }
 
   @Test
   void getQuiz_shouldReturnEmptyAndCallLLM_whenSubtopicNotFound() {
     when(topicRepository.findByNameIgnoreCase("Java")).thenReturn(Optional.of(testTopic));
     when(topicRepository.findAll()).thenReturn(List.of(testTopic));
-    when(questionRepository.findByTopicIdAndSubtopicContainingIgnoreCase(1L, "nonexistent"))
-        .thenReturn(Collections.emptyList());
+    when(txOps.fetchPool(1L, "nonexistent")).thenReturn(Collections.emptyList());
     when(questionOptionRepository.findByQuestionId(anyLong())).thenReturn(testOptions);
     when(quizMaster.generateQuestions(anyString(), eq(5), anyList()))
         .thenReturn(Collections.emptyList());
@@ -238,8 +254,8 @@ class QuizServiceTest {
 
     assertNotNull(result);
     assertEquals(0, result.totalQuestions());
-    verify(questionRepository).findByTopicIdAndSubtopicContainingIgnoreCase(1L, "nonexistent");
-    verify(questionRepository, never()).findByTopicId(1L); // Should NOT fallback to all topic
+    verify(txOps).fetchPool(1L, "nonexistent");
+    verify(txOps, never()).fetchPool(1L, null); // Should NOT fallback to all topic
     verify(quizMaster)
         .generateQuestions(eq("Java nonexistent"), eq(5), anyList()); // Should call LLM
   }
@@ -248,15 +264,239 @@ class QuizServiceTest {
   void getQuiz_shouldReturnAllTopicQuestions_whenNoSubtopicSpecified() {
     when(topicRepository.findByNameIgnoreCase("Java")).thenReturn(Optional.of(testTopic));
     when(topicRepository.findAll()).thenReturn(List.of(testTopic));
-    when(questionRepository.findByTopicId(1L)).thenReturn(testQuestions);
+    when(txOps.fetchPool(1L, null)).thenReturn(testPool);
     when(questionOptionRepository.findByQuestionId(anyLong())).thenReturn(testOptions);
 
     QuizDTO result = quizService.getQuiz("Java", null);
 
     assertNotNull(result);
     assertEquals(3, result.totalQuestions());
-    verify(questionRepository).findByTopicId(1L);
-    verify(questionRepository, never())
-        .findByTopicIdAndSubtopicContainingIgnoreCase(anyLong(), anyString());
+    verify(txOps).fetchPool(1L, null);
+    verify(txOps, never()).fetchPool(anyLong(), anyString());
+  }
+
+  @Test
+  void getQuiz_shouldServeRepeatedRequestsFromPoolCache() {
+    when(topicRepository.findAll()).thenReturn(List.of(testTopic));
+    when(txOps.fetchPool(1L, "records")).thenReturn(testPool.subList(0, 2));
+    when(quizMaster.generateQuestions(anyString(), anyInt(), anyList()))
+        .thenReturn(Collections.emptyList());
+
+    quizService.getQuiz("Java records", null);
+    QuizDTO result = quizService.getQuiz("java  RECORDS", List.of(1L));
+
+    assertEquals(1, result.totalQuestions());
+    assertEquals(2L, result.questions().get(0).id());
+    verify(txOps, times(1)).fetchPool(1L, "records");
+  }
+
+  @Test
+  void getQuiz_shouldExcludeQuestionsAlreadyServedToSession() {
+    when(topicRepository.findAll()).thenReturn(List.of(testTopic));
+    when(txOps.fetchPool(1L, null)).thenReturn(testPool);
+    when(quizMaster.generateQuestions(anyString(), anyInt(), anyList()))
+        .thenReturn(Collections.emptyList());
+    String sessionId = sessionStore.create();
+
+    QuizDTO first = quizService.getQuiz("Java", List.of(3L), sessionId);
+    QuizDTO second = quizService.getQuiz("Java", null, sessionId);
+
+    assertEquals(2, first.totalQuestions());
+    assertEquals(1, second.totalQuestions());
+    assertEquals(3L, second.questions().get(0).id());
+  }
+
+  @Test
+  void getQuiz_shouldThrowException_whenSessionUnknown() {
+    when(topicRepository.findAll()).thenReturn(List.of(testTopic));
+
+    IllegalArgumentException exception =
+        assertThrows(
+            IllegalArgumentException.class, () -> quizService.getQuiz("Java", null, "missing"));
+
+    assertTrue(exception.getMessage().contains("Session not found"));
+    verify(quizMaster, never()).generateQuestions(anyString(), anyInt(), anyList());
+  }
+
+  @Test
+  void getQuiz_shouldSampleInDatabase_whenPoolIsLarge() {
+    when(topicRepository.findAll()).thenReturn(List.of(testTopic));
+    QuizService samplingService = quizService(100);
+    when(txOps.sampleQuestions(eq(1L), isNull(), eq(List.of(2L)), eq(5), eq(101L)))
+        .thenReturn(new QuizService.TransactionalOperations.Sample(5000, testQuestions));
+
+    QuizDTO result = samplingService.getQuiz("Java", List.of(2L));
+
+    assertEquals(3, result.totalQuestions());
+    verify(txOps, never()).fetchPool(anyLong(), any());
+    verify(quizMaster, never()).generateQuestions(anyString(), anyInt(), anyList());
+  }
+
+  @Test
+  void getQuiz_shouldFallBackToPool_whenSampleReportsSmallPool() {
+    when(topicRepository.findAll()).thenReturn(List.of(testTopic));
+    when(txOps.fetchPool(1L, null)).thenReturn(testPool);
+    when(quizMaster.generateQuestions(anyString(), anyInt(), anyList()))
+        .thenReturn(Collections.emptyList());
+    QuizService samplingService = quizService(100);
+    when(txOps.sampleQuestions(anyLong(), any(), anyCollection(), anyInt(), anyLong()))
+        .thenReturn(new QuizService.TransactionalOperations.Sample(3, List.of()));
+
+    QuizDTO result = samplingService.getQuiz("Java", null);
+
+    assertEquals(3, result.totalQuestions());
+    verify(txOps).fetchPool(1L, null);
+  }
+
+  @Test
+  void streamQuiz_shouldDeliverPoolQuestionsBeforeGeneratedOnes() {
+    when(topicRepository.findAll()).thenReturn(List.of(testTopic));
+    when(txOps.fetchPool(1L, null)).thenReturn(testPool);
+    Question generated = new Question(null, "Generated", null, Question.Difficulty.EASY, null);
+    generated.setId(10L);
+    when(quizMaster.generateQuestions(eq("Java"), eq(2), anyList(), any()))
+        .thenAnswer(
+            inv -> {
+              Consumer<Question> onQuestion = inv.getArgument(3);
+              onQuestion.accept(generated);
+              return List.of(generated);
+            });
+    List<String> delivered = new ArrayList<>();
+
+    QuizDTO result =
+        quizService.streamQuiz("Java", null, null, question -> delivered.add(question.text()));
+
+    assertEquals(4, delivered.size());
+    assertEquals("Generated", delivered.get(3));
+    assertEquals(4, result.totalQuestions());
+    assertEquals(testTopic, generated.getTopic());
+    verify(txOps).saveQuestions(List.of(generated));
+  }
+
+  @Test
+  void streamQuiz_shouldNotGenerate_whenPoolHasEnoughQuestions() {
+    when(topicRepository.findAll()).thenReturn(List.of(testTopic));
+    when(txOps.fetchPool(1L, null)).thenReturn(testPool);
+    List<QuestionDTO> delivered = new ArrayList<>();
+
+    QuizDTO result = quizService.streamQuiz("Java", List.of(1L, 2L), null, delivered::add);
+
+    assertEquals(1, delivered.size());
+    assertEquals(3L, delivered.get(0).id());
+    assertEquals(delivered, result.questions());
+  }
+
+  @Test
+  void getQuiz_shouldLeaveExplanationsOut_whenSlim() {
+    when(topicRepository.findAll()).thenReturn(List.of(testTopic));
+    when(txOps.fetchPool(1L, null)).thenReturn(testPool);
+
+    QuizDTO result = quizService.getQuiz("Java", null, null, false);
+
+    assertEquals(3, result.questions().size());
+    assertTrue(result.questions().stream().allMatch(q -> q.explanation() == null));
+    verify(txOps, never()).fetchExplanations(anyCollection());
+  }
+
+  @Test
+  void getQuiz_shouldReadExplanationsOfChosenQuestionsOnly() {
+    when(topicRepository.findAll()).thenReturn(List.of(testTopic));
+    doReturn(
+            List.of(
+                new QuestionDTO(1L, "Question 1", "EASY", null, List.of()),
+                new QuestionDTO(3L, "Question 3", "HARD", null, List.of())))
+        .when(txOps)
+        .fetchPool(1L, null);
+    when(txOps.fetchExplanations(anyCollection()))
+        .thenReturn(List.of(new ExplanationDTO(3L, "Explanation 3")));
+
+    QuizDTO result = quizService.getQuiz("Java", List.of(1L));
+
+    assertEquals(1, result.questions().size());
+    assertEquals("Explanation 3", result.questions().get(0).explanation());
+    verify(txOps).fetchExplanations(Set.of(3L));
+  }
+
+  @Test
+  void getQuiz_shouldServeCachedExplanations_whenPoolRepeats() {
+    when(topicRepository.findAll()).thenReturn(List.of(testTopic));
+    doReturn(List.of(new QuestionDTO(3L, "Question 3", "HARD", null, List.of())))
+        .when(txOps)
+        .fetchPool(1L, null);
+    when(txOps.fetchExplanations(anyCollection()))
+        .thenReturn(List.of(new ExplanationDTO(3L, "Explanation 3")));
+
+    quizService.getQuiz("Java", null);
+    QuizDTO result = quizService.getQuiz("Java", null);
+
+    assertEquals("Explanation 3", result.questions().get(0).explanation());
+    verify(txOps, times(1)).fetchPool(1L, null);
+    verify(txOps, times(1)).fetchExplanations(anyCollection());
+  }
+
+  @Test
+  void getExplanations_shouldKeepRequestedOrderAndSkipUnknownIds() {
+    when(txOps.fetchExplanations(anyCollection()))
+        .thenReturn(List.of(new ExplanationDTO(1L, "One"), new ExplanationDTO(3L, "Three")));
+
+    List<ExplanationDTO> result = quizService.getExplanations(List.of(3L, 99L, 1L, 3L));
+
+    assertEquals(List.of(new ExplanationDTO(3L, "Three"), new ExplanationDTO(1L, "One")), result);
+  }
+
+  @Test
+  void getQuizzes_shouldReadEachPoolOnceAndGenerateLargestShortfallOnce() {
+    when(topicRepository.findAll()).thenReturn(List.of(testTopic));
+    when(txOps.fetchPool(1L, null)).thenReturn(testPool);
+
+    List<QuizDTO> result =
+        quizService.getQuizzes(
+            List.of(
+                new QuizSpec("Java", 3, List.of(1L)),
+                new QuizSpec("Java", null, null),
+                new QuizSpec("java", 1, List.of(1L, 2L))),
+            true);
+
+    assertEquals(
+        List.of(2, 3, 1),
+        result.stream().map(QuizDTO::totalQuestions).collect(Collectors.toList()));
+    assertEquals("java", result.get(2).topic());
+    assertTrue(result.get(0).questions().stream().noneMatch(q -> q.id() == 1L));
+    assertEquals(3L, result.get(2).questions().get(0).id());
+    verify(txOps, times(1)).fetchPool(1L, null);
+    // The second quiz lacks 2 questions, the first only 1: one generation of 2 serves both
+    verify(quizMaster, times(1)).generateQuestions(eq("Java"), eq(2), anyList());
+  }
+
+  @Test
+  void getQuizzes_shouldSampleInDatabase_whenPoolIsLarge() {
+    when(topicRepository.findAll()).thenReturn(List.of(testTopic));
+    QuizService samplingService = quizService(100);
+    when(txOps.sampleQuestions(eq(1L), isNull(), anyCollection(), anyInt(), anyLong()))
+        .thenReturn(new QuizService.TransactionalOperations.Sample(5000, testQuestions));
+
+    List<QuizDTO> result =
+        samplingService.getQuizzes(
+            List.of(new QuizSpec("Java", 2, List.of(2L)), new QuizSpec("Java", null, null)),
+            false);
+
+    assertEquals(2, result.size());
+    verify(txOps).sampleQuestions(1L, null, List.of(2L), 2, 101L);
+    verify(txOps).sampleQuestions(1L, null, List.of(), 5, 101L);
+    verify(txOps, never()).fetchPool(anyLong(), any());
+    verify(quizMaster, never()).generateQuestions(anyString(), anyInt(), anyList());
+  }
+
+  @Test
+  void getQuizzes_shouldBuildNoQuiz_whenATopicIsUnknown() {
+    when(topicRepository.findAll()).thenReturn(List.of(testTopic));
+
+    assertThrows(
+        IllegalArgumentException.class,
+        () ->
+            quizService.getQuizzes(
+                List.of(new QuizSpec("Java", 5, null), new QuizSpec("InvalidTopic", 5, null)),
+                true));
+    verify(txOps, never()).fetchPool(anyLong(), any());
   }
 }
@@ -0,0 +1,83 @@
+package nl.schoutens.codepop.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/** Unit tests for SimilarQuestionSelector. Verifies relevance ranking and the prompt budget. */
+class SimilarQuestionSelectorTest {
+
+  @Test
+  void select_shouldReturnAllTexts_whenWithinBudget() {
+    SimilarQuestionSelector selector = new SimilarQuestionSelector(50, 1500);
+    List<String> texts = List.of("What is a record?", "What does final mean?");
+
+    assertSame(texts, selector.select("Java", texts));
+  }
+
+  @Test
+  void select_shouldStayWithinTokenBudget_forLargeBank() {
+    SimilarQuestionSelector selector = new SimilarQuestionSelector(1_000, 500);
+    List<String> texts = bank(2_000);
+
+    List<String> selected = selector.select("Java streams", texts);
+
+    int tokens = selected.stream().mapToInt(SimilarQuestionSelector::estimateTokens).sum();
+    assertFalse(selected.isEmpty());
+    assertTrue(tokens <= 500, "estimated tokens: " + tokens);
+  }
+
+  @Test
+  void select_shouldPreferQuestionsAboutTheRequestedSubtopic() {
+    SimilarQuestionSelector selector = new SimilarQuestionSelector(5, 10_000);
+    List<String> texts = new ArrayList<>(bank(200));
+    texts.add("Which Java record component accessor is generated for a record field?");
+    texts.add("Can a Java record declare additional instance fields?");
+
+    List<String> selected = selector.select("Java records", texts);
+
+    assertEquals(5, selected.size());
+    assertTrue(selected.get(0).contains("record"), selected.get(0));
+    assertTrue(selected.get(1).contains("record"), selected.get(1));
+  }
+
+  @Test
+  void select_shouldSkipNearDuplicates() {
+    SimilarQuestionSelector selector = new SimilarQuestionSelector(2, 10_000);
+    List<String> texts =
+        List.of(
+            "What does the volatile keyword guarantee in Java?",
+            "What does the volatile keyword guarantee in Java ?",
+            "How does a synchronized block acquire its monitor?");
+
+    List<String> selected = selector.select("Java", texts);
+
+    assertEquals(2, selected.size());
+    assertTrue(selected.contains(texts.get(2)));
+  }
+
+  @Test
+  void signature_shouldEstimateJaccardSimilarity() {
+    SimilarQuestionSelector.Signature a =
+        SimilarQuestionSelector.signature("What is the default capacity of an ArrayList?");
+    SimilarQuestionSelector.Signature b =
+        SimilarQuestionSelector.signature("What is the default capacity of a HashMap?");
+    SimilarQuestionSelector.Signature c =
+        SimilarQuestionSelector.signature("Explain event bubbling in the browser DOM");
+
+    assertEquals(1.0, a.jaccard(a));
+    assertTrue(a.jaccard(b) > a.jaccard(c));
+  }
+
+  private static List<String> bank(int size) {
+    String[] subjects = {"HashMap", "String", "Thread", "Optional", "interface", "enum", "lambda"};
+    List<String> texts = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      texts.add(
+          "Question " + i + ": what happens when you use " + subjects[i % subjects.length] + "?");
+    }
+    return texts;
+  }
+}
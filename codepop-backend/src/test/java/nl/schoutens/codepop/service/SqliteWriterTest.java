@@ -0,0 +1,196 @@
+package nl.schoutens.codepop.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+
+/**
+ * Unit tests for SqliteWriter. Verifies that writes run on one thread, queued writes share a
+ * commit, a failing write does not fail the writes it was grouped with, and callers do not wait
+ * forever on a blocked or stopped writer.
+ */
+class SqliteWriterTest {
+
+  private final CountingTransactionManager transactionManager = new CountingTransactionManager();
+  private final SqliteWriter writer =
+      new SqliteWriter(transactionManager, 64, Duration.ofSeconds(5));
+  private final ExecutorService executor = Executors.newFixedThreadPool(8);
+
+  @AfterEach
+  void tearDown() {
+    executor.shutdownNow();
+    writer.shutdown();
+  }
+
+  @Test
+  void write_shouldReturnResultAfterCommit() {
+    assertEquals("done", writer.write(status -> "done"));
+    assertEquals(1, transactionManager.commits.get());
+  }
+
+  @Test
+  void write_shouldRunOnTheWriterThread() {
+    List<String> threads = Collections.synchronizedList(new ArrayList<>());
+
+    writer.write(status -> threads.add(Thread.currentThread().getName()));
+    writer.write(status -> threads.add(Thread.currentThread().getName()));
+
+    assertEquals(List.of("sqlite-writer", "sqlite-writer"), threads);
+  }
+
+  @Test
+  void write_shouldGroupQueuedWritesIntoOneCommit() throws Exception {
+    CountDownLatch blocking = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    Future<Object> first =
+        executor.submit(
+            () ->
+                writer.write(
+                    status -> {
+                      blocking.countDown();
+                      await(release);
+                      return null;
+                    }));
+    assertTrue(blocking.await(5, TimeUnit.SECONDS));
+
+    List<Future<Integer>> queued = new ArrayList<>();
+    for (int i = 0; i < 5; i++) {
+      int value = i;
+      queued.add(executor.submit(() -> writer.write(status -> value)));
+    }
+    while (writer.queued() < 5) {
+      Thread.sleep(5);
+    }
+    release.countDown();
+
+    first.get(5, TimeUnit.SECONDS);
+    for (int i = 0; i < queued.size(); i++) {
+      assertEquals(i, queued.get(i).get(5, TimeUnit.SECONDS));
+    }
+    // One commit for the blocking write, one for the five queued behind it
+    assertEquals(2, transactionManager.commits.get());
+  }
+
+  @Test
+  void write_shouldFailOnlyTheFailingWriteOfAGroup() throws Exception {
+    CountDownLatch blocking = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    executor.submit(
+        () ->
+            writer.write(
+                status -> {
+                  blocking.countDown();
+                  await(release);
+                  return null;
+                }));
+    assertTrue(blocking.await(5, TimeUnit.SECONDS));
+
+    Future<String> ok = executor.submit(() -> writer.write(status -> "ok"));
+    Future<String> failing =
+        executor.submit(
+            () ->
+                writer.<String>write(
+                    status -> {
+                      throw new IllegalArgumentException("bad write");
+                    }));
+    while (writer.queued() < 2) {
+      Thread.sleep(5);
+    }
+    release.countDown();
+
+    assertEquals("ok", ok.get(5, TimeUnit.SECONDS));
+    ExecutionException e = assertThrows(ExecutionException.class, () -> failing.get());
+    assertInstanceOf(IllegalArgumentException.class, e.getCause());
+    assertEquals("bad write", e.getCause().getMessage());
+  }
+
+  @Test
+  void write_shouldRunNestedWritesInline() {
+    AtomicInteger nested = new AtomicInteger();
+
+    writer.write(status -> writer.write(inner -> nested.incrementAndGet()));
+
+    assertEquals(1, nested.get());
+  }
+
+  @Test
+  void write_shouldWithdrawQueuedWrite_whenNotCommittedWithinTimeout() throws Exception {
+    SqliteWriter impatient = new SqliteWriter(transactionManager, 64, Duration.ofMillis(100));
+    CountDownLatch blocking = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    try {
+      executor.submit(
+          () ->
+              impatient.write(
+                  status -> {
+                    blocking.countDown();
+                    await(release);
+                    return null;
+                  }));
+      assertTrue(blocking.await(5, TimeUnit.SECONDS));
+
+      IllegalStateException e =
+          assertThrows(IllegalStateException.class, () -> impatient.write(status -> "late"));
+
+      assertTrue(e.getMessage().contains("withdrawn"));
+      assertEquals(0, impatient.queued());
+    } finally {
+      release.countDown();
+      impatient.shutdown();
+    }
+  }
+
+  @Test
+  void write_shouldFail_whenWriterStopped() {
+    writer.shutdown();
+
+    IllegalStateException e =
+        assertThrows(IllegalStateException.class, () -> writer.write(status -> "after"));
+
+    assertEquals("SQLite writer stopped", e.getMessage());
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      latch.await(5, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /** Transaction manager without a resource that only counts commits. */
+  private static final class CountingTransactionManager extends AbstractPlatformTransactionManager {
+    private final AtomicInteger commits = new AtomicInteger();
+
+    @Override
+    protected Object doGetTransaction() {
+      return new Object();
+    }
+
+    @Override
+    protected void doBegin(Object transaction, TransactionDefinition definition) {}
+
+    @Override
+    protected void doCommit(DefaultTransactionStatus status) {
+      commits.incrementAndGet();
+    }
+
+    @Override
+    protected void doRollback(DefaultTransactionStatus status) {}
+  }
+}
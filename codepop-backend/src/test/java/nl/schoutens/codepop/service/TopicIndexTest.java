@@ -0,0 +1,124 @@
+package nl.schoutens.codepop.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import nl.schoutens.codepop.entity.Topic;
+import nl.schoutens.codepop.repository.TopicRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/** Unit tests for TopicIndex. Verifies topic/subtopic resolution and snapshot refresh. */
+class TopicIndexTest {
+
+  private TopicRepository topicRepository;
+  private TopicIndex topicIndex;
+  private List<Topic> topics;
+
+  @BeforeEach
+  void setUp() {
+    topics = new ArrayList<>();
+    topics.add(topic(1L, "Java"));
+    topics.add(topic(2L, "Node.js"));
+    topics.add(topic(3L, "JavaScript"));
+    topics.add(topic(4L, "React"));
+    topics.add(topic(5L, "React Native"));
+    topics.add(topic(6L, "Go"));
+
+    topicRepository = mock(TopicRepository.class);
+    when(topicRepository.findAll()).thenAnswer(inv -> new ArrayList<>(topics));
+
+    topicIndex = new TopicIndex(topicRepository, "js=JavaScript, node=Node.js, bogus=Unknown");
+  }
+
+  private static Topic topic(Long id, String name) {
+    Topic topic = new Topic(name, "backend");
+    topic.setId(id);
+    return topic;
+  }
+
+  @Test
+  void resolve_shouldMatchExactWordAndExtractSubtopic() {
+    TopicIndex.Resolution result = topicIndex.resolve("Java records");
+
+    assertEquals("Java", result.topic().getName());
+    assertEquals("records", result.subtopic());
+  }
+
+  @Test
+  void resolve_shouldMatchAnyWordCaseInsensitive() {
+    TopicIndex.Resolution result = topicIndex.resolve("Javascript REACT");
+
+    assertEquals("JavaScript", result.topic().getName());
+    assertEquals("REACT", result.subtopic());
+  }
+
+  @Test
+  void resolve_shouldReturnNullSubtopic_whenSingleWord() {
+    TopicIndex.Resolution result = topicIndex.resolve("  java ");
+
+    assertEquals("Java", result.topic().getName());
+    assertNull(result.subtopic());
+  }
+
+  @Test
+  void resolve_shouldMatchAliases() {
+    assertEquals("JavaScript", topicIndex.resolve("js closures").topic().getName());
+    assertEquals("closures", topicIndex.resolve("js closures").subtopic());
+    assertEquals("Node.js", topicIndex.resolve("NODE streams").topic().getName());
+  }
+
+  @Test
+  void resolve_shouldFuzzyMatchInputContainingTopicName() {
+    // "Django" contains "go"; no word matches exactly
+    TopicIndex.Resolution result = topicIndex.resolve("Django");
+
+    assertEquals("Go", result.topic().getName());
+    assertNull(result.subtopic());
+  }
+
+  @Test
+  void resolve_shouldFuzzyMatchTopicNameContainingInput() {
+    TopicIndex.Resolution result = topicIndex.resolve("Nati");
+
+    assertEquals("React Native", result.topic().getName());
+  }
+
+  @Test
+  void resolve_shouldPreferFirstTopicInRepositoryOrder_whenSeveralFuzzyMatches() {
+    // Both "Java" and "JavaScript" contain "jav"
+    assertEquals("Java", topicIndex.resolve("jav").topic().getName());
+  }
+
+  @Test
+  void resolve_shouldReturnNoTopic_whenNothingMatches() {
+    TopicIndex.Resolution result = topicIndex.resolve("Cobol mainframes");
+
+    assertNull(result.topic());
+    assertNull(result.subtopic());
+  }
+
+  @Test
+  void resolve_shouldNotQueryRepositoryAgain_untilInvalidated() {
+    topicIndex.resolve("Java");
+    topicIndex.resolve("React hooks");
+    topicIndex.resolve("Django");
+
+    verify(topicRepository, times(1)).findAll();
+  }
+
+  @Test
+  void invalidate_shouldPickUpNewTopicsOnNextLookup() {
+    assertNull(topicIndex.resolve("Kotlin coroutines").topic());
+
+    topics.add(topic(7L, "Kotlin"));
+    topicIndex.invalidate();
+
+    TopicIndex.Resolution result = topicIndex.resolve("Kotlin coroutines");
+    assertEquals(7L, result.topic().getId());
+    assertEquals("coroutines", result.subtopic());
+    verify(topicRepository, times(2)).findAll();
+  }
+}